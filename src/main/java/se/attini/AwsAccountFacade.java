@@ -2,35 +2,77 @@ package se.attini;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 import se.attini.cli.global.GlobalConfig;
 import se.attini.client.AwsClientFactory;
+import se.attini.domain.CallerIdentity;
 import se.attini.domain.Profile;
-import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
 
+/**
+ * Resolves the identity of the caller. The identity is cached in memory for the lifetime of the process and on disk
+ * for a limited time, keyed by profile and credentials, so most commands never have to call STS.
+ */
 public class AwsAccountFacade {
 
-    private final Map<Profile, String> accountCache = new ConcurrentHashMap<>();
+    private static final int DEFAULT_CACHE_TTL_MINUTES = 60;
 
+    private final Map<String, CallerIdentity> identityCache = new ConcurrentHashMap<>();
 
     private final AwsClientFactory awsClientFactory;
     private final GlobalConfig globalConfig;
+    private final EnvironmentVariables environmentVariables;
+    private final CallerIdentityCache persistentCache;
 
     public AwsAccountFacade(AwsClientFactory awsClientFactory,
-                            GlobalConfig globalConfig) {
+                            GlobalConfig globalConfig,
+                            EnvironmentVariables environmentVariables) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
         this.globalConfig = requireNonNull(globalConfig, "globalConfig");
+        this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
+        int ttlMinutes = environmentVariables.getIdentityCacheTtlMinutes().orElse(DEFAULT_CACHE_TTL_MINUTES);
+        this.persistentCache = ttlMinutes > 0
+                               ? new CallerIdentityCache(environmentVariables.getCacheDirectory()
+                                                                             .resolve("caller-identities.properties"),
+                                                         Duration.ofMinutes(ttlMinutes))
+                               : null;
     }
 
     public String getAccount() {
-        return accountCache.computeIfAbsent(globalConfig.getProfile().orElse(Profile.create("default")),
-                                            profile ->{
-                                                try(StsClient stsClient = awsClientFactory.stsClient()) {
-                                                    return stsClient.getCallerIdentity()
-                                                            .account();
-                                                }
-                                            });
+        return getCallerIdentity().getAccount();
+    }
+
+    public CallerIdentity getCallerIdentity() {
+        return identityCache.computeIfAbsent(getProfileName(), this::loadCallerIdentity);
+    }
+
+    private CallerIdentity loadCallerIdentity(String profileName) {
+        if (persistentCache == null) {
+            return callSts();
+        }
+        String accessKeyId = awsClientFactory.credentialsProvider().resolveCredentials().accessKeyId();
+        Optional<CallerIdentity> cached = persistentCache.get(profileName, accessKeyId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        CallerIdentity callerIdentity = callSts();
+        persistentCache.put(profileName, accessKeyId, callerIdentity);
+        return callerIdentity;
+    }
+
+    private CallerIdentity callSts() {
+        GetCallerIdentityResponse response = awsClientFactory.stsClient().getCallerIdentity();
+        return CallerIdentity.create(response.account(), response.arn());
+    }
+
+    private String getProfileName() {
+        return globalConfig.getProfile()
+                           .map(Profile::getProfileName)
+                           .or(() -> Optional.ofNullable(environmentVariables.getAwsProfile()))
+                           .orElse("default");
     }
 }
@@ -0,0 +1,105 @@
+package se.attini;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.LongSupplier;
+
+import se.attini.domain.CallerIdentity;
+
+/**
+ * Caches the caller identity on disk per profile and credentials. The credentials are identified by a hash of the
+ * access key id, so the cached identity is not used after the credentials have been rotated or have been replaced by
+ * new temporary credentials.
+ */
+class CallerIdentityCache {
+
+    private static final String SEPARATOR = "|";
+
+    private final Path cacheFile;
+    private final Duration ttl;
+    private final LongSupplier clock;
+
+    CallerIdentityCache(Path cacheFile, Duration ttl) {
+        this(cacheFile, ttl, System::currentTimeMillis);
+    }
+
+    CallerIdentityCache(Path cacheFile, Duration ttl, LongSupplier clock) {
+        this.cacheFile = requireNonNull(cacheFile, "cacheFile");
+        this.ttl = requireNonNull(ttl, "ttl");
+        this.clock = requireNonNull(clock, "clock");
+    }
+
+    Optional<CallerIdentity> get(String profileName, String accessKeyId) {
+        String value = read().getProperty(key(profileName, accessKeyId));
+        if (value == null) {
+            return Optional.empty();
+        }
+        String[] parts = value.split("\\|", 3);
+        if (parts.length != 3 || isExpired(parts[0])) {
+            return Optional.empty();
+        }
+        return Optional.of(CallerIdentity.create(parts[1], parts[2]));
+    }
+
+    void put(String profileName, String accessKeyId, CallerIdentity callerIdentity) {
+        Properties cache = read();
+        cache.stringPropertyNames()
+             .stream()
+             .filter(key -> isExpired(cache.getProperty(key).split("\\|", 2)[0]))
+             .forEach(cache::remove);
+        cache.setProperty(key(profileName, accessKeyId),
+                          (clock.getAsLong() + ttl.toMillis()) + SEPARATOR + callerIdentity.getAccount() + SEPARATOR + callerIdentity.getArn());
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                cache.store(writer, null);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization
+        }
+    }
+
+    private boolean isExpired(String expiresAt) {
+        try {
+            return Long.parseLong(expiresAt) <= clock.getAsLong();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private Properties read() {
+        Properties cache = new Properties();
+        if (Files.isRegularFile(cacheFile)) {
+            try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                cache.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                return new Properties();
+            }
+        }
+        return cache;
+    }
+
+    private static String key(String profileName, String accessKeyId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(accessKeyId.getBytes(StandardCharsets.UTF_8));
+            return profileName + "." + HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
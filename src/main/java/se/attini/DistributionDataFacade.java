@@ -25,40 +25,39 @@ public class DistributionDataFacade {
                                                    DistributionName distributionName) {
 
         String s = environment.getName().getName() + "-" + distributionName.getName();
-        try( DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            Map<String, AttributeValue> item = dynamoDbClient
-                    .getItem(GetItemRequest.builder().tableName(
-                                                   "AttiniResourceStatesV1")
-                                           .key(Map.of("resourceType",
-                                                       AttributeValue.builder()
-                                                                     .s("Distribution")
-                                                                     .build(),
-                                                       "name",
-                                                       AttributeValue.builder()
-                                                                     .s(s)
-                                                                     .build()))
-                                           .build())
-                    .item();
-            AttributeValue attributeValue = item.get("distributionId");
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        Map<String, AttributeValue> item = dynamoDbClient
+                .getItem(GetItemRequest.builder().tableName(
+                                               "AttiniResourceStatesV1")
+                                       .key(Map.of("resourceType",
+                                                   AttributeValue.builder()
+                                                                 .s("Distribution")
+                                                                 .build(),
+                                                   "name",
+                                                   AttributeValue.builder()
+                                                                 .s(s)
+                                                                 .build()))
+                                       .build())
+                .item();
+        AttributeValue attributeValue = item.get("distributionId");
 
-            if (attributeValue != null) {
+        if (attributeValue != null) {
 
-                AttributeValue distributionTags = item.get("distributionTags");
+            AttributeValue distributionTags = item.get("distributionTags");
 
-                Map<String, String> distTags = distributionTags == null ? Collections.emptyMap() : distributionTags.m()
-                                                                                                                   .entrySet()
-                                                                                                                   .stream()
-                                                                                                                   .collect(
-                                                                                                                           Collectors.toMap(
-                                                                                                                                   Map.Entry::getKey,
-                                                                                                                                   entry -> entry.getValue()
-                                                                                                                                                 .s()));
+            Map<String, String> distTags = distributionTags == null ? Collections.emptyMap() : distributionTags.m()
+                                                                                                               .entrySet()
+                                                                                                               .stream()
+                                                                                                               .collect(
+                                                                                                                       Collectors.toMap(
+                                                                                                                               Map.Entry::getKey,
+                                                                                                                               entry -> entry.getValue()
+                                                                                                                                             .s()));
 
-                String version = item.get("version") != null ? item.get("version").s() : null;
-                return Optional.of(new DistData(DistributionId.create(attributeValue.s()), distTags, version));
-            }
-            return Optional.empty();
+            String version = item.get("version") != null ? item.get("version").s() : null;
+            return Optional.of(new DistData(DistributionId.create(attributeValue.s()), distTags, version));
         }
+        return Optional.empty();
     }
 
     public record DistData(DistributionId distId, Map<String, String> distTags, String version) {
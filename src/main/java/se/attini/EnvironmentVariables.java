@@ -1,11 +1,22 @@
 package se.attini;
 
+import java.nio.file.Path;
+import java.util.Optional;
+
 public class EnvironmentVariables {
 
     public String getAwsRegion() {
         return System.getenv("AWS_REGION");
     }
 
+    public String getAwsDefaultRegion() {
+        return System.getenv("AWS_DEFAULT_REGION");
+    }
+
+    public String getAwsProfile() {
+        return System.getenv("AWS_PROFILE");
+    }
+
     public String getShell() {
         return System.getenv("SHELL") != null ? System.getenv("SHELL") : "/bin/bash";
     }
@@ -17,4 +28,79 @@ public class EnvironmentVariables {
     public boolean isDisableAnsiColor() {
         return "true".equalsIgnoreCase(System.getenv("ATTINI_DISABLE_ANSI_COLOR"));
     }
+
+    public boolean isDisableSamBuildCache() {
+        return "true".equalsIgnoreCase(System.getenv("ATTINI_DISABLE_SAM_BUILD_CACHE"));
+    }
+
+    /**
+     * @return the directory of the SAM build cache, may be a directory shared with other machines
+     */
+    public Path getSamBuildCacheDirectory() {
+        String cacheDirectory = System.getenv("ATTINI_SAM_BUILD_CACHE_DIR");
+        if (cacheDirectory != null && !cacheDirectory.isBlank()) {
+            return Path.of(cacheDirectory);
+        }
+        return getCacheDirectory().resolve("sam-builds");
+    }
+
+    public boolean isDisableIncrementalPackaging() {
+        return "true".equalsIgnoreCase(System.getenv("ATTINI_DISABLE_INCREMENTAL_PACKAGING"));
+    }
+
+    public boolean isDisableSharedApiBudget() {
+        return "true".equalsIgnoreCase(System.getenv("ATTINI_DISABLE_SHARED_API_BUDGET"));
+    }
+
+    public Path getCacheDirectory() {
+        String cacheDirectory = System.getenv("ATTINI_CACHE_DIR");
+        if (cacheDirectory != null && !cacheDirectory.isBlank()) {
+            return Path.of(cacheDirectory);
+        }
+        return Path.of(System.getProperty("user.home"), ".attini", "cache");
+    }
+
+    public Optional<Integer> getUploadPartSizeMb() {
+        return getInteger("ATTINI_UPLOAD_PART_SIZE_MB");
+    }
+
+    public Optional<Integer> getUploadConcurrency() {
+        return getInteger("ATTINI_UPLOAD_CONCURRENCY");
+    }
+
+    public Optional<Integer> getPollMinIntervalMillis() {
+        return getInteger("ATTINI_POLL_MIN_INTERVAL_MS");
+    }
+
+    public Optional<Integer> getPollMaxIntervalMillis() {
+        return getInteger("ATTINI_POLL_MAX_INTERVAL_MS");
+    }
+
+    public Optional<Integer> getPollTimeoutMinutes() {
+        return getInteger("ATTINI_POLL_TIMEOUT_MINUTES");
+    }
+
+    public Optional<Integer> getIdentityCacheTtlMinutes() {
+        return getInteger("ATTINI_IDENTITY_CACHE_TTL_MINUTES");
+    }
+
+    public Optional<Integer> getEnvironmentCacheTtlSeconds() {
+        return getInteger("ATTINI_ENVIRONMENT_CACHE_TTL_SECONDS");
+    }
+
+    public Optional<Integer> getSamBuildParallelism() {
+        return getInteger("ATTINI_SAM_BUILD_PARALLELISM");
+    }
+
+    private static Optional<Integer> getInteger(String name) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Environment variable " + name + " should be an integer, was: " + value);
+        }
+    }
 }
@@ -17,7 +17,6 @@ import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
-import software.amazon.awssdk.services.sts.StsClient;
 
 
 public class GetDistributionOutputService {
@@ -26,12 +25,15 @@ public class GetDistributionOutputService {
     private final static String BUCKET = "attini-artifact-store-%s-%s";
 
     private final AwsClientFactory awsClientFactory;
+    private final AwsAccountFacade awsAccountFacade;
     private final ProfileFacade profileFacade;
     private final EnvironmentUserInput environmentUserInput;
 
     public GetDistributionOutputService(AwsClientFactory awsClientFactory,
+                                        AwsAccountFacade awsAccountFacade,
                                         ProfileFacade profileFacade, EnvironmentUserInput environmentUserInput) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
+        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
         this.profileFacade = requireNonNull(profileFacade, "profileFacade");
         this.environmentUserInput = requireNonNull(environmentUserInput, "environmentUserInput");
     }
@@ -39,61 +41,58 @@ public class GetDistributionOutputService {
     public String getDistributionOutput(GetDistributionOutputRequest request) {
 
         Region givenRegion = profileFacade.getRegion();
-        try (StsClient stsClient = awsClientFactory.stsClient()) {
-            String account = stsClient.getCallerIdentity().account();
-            Environment environment = environmentUserInput.getEnvironment(request);
-            String distId = request.getDistributionId()
-                                   .map(DistributionId::getId)
-                                   .orElseGet(() -> getDistId(request, environment));
-            String key = String.format(KEY,
-                                       environment.getName().getName(),
-                                       request.getDistributionName().getName(),
-                                       distId);
-            String bucket = String.format(BUCKET, givenRegion.getName(), account);
-
-            try (S3Client s3Client = awsClientFactory.s3Client()) {
-                return new String(s3Client.getObject(GetObjectRequest.builder()
-                                                                     .key(key)
-                                                                     .bucket(bucket)
-                                                                     .build(),
-                                                     ResponseTransformer.toBytes())
-                                          .asByteArray());
-            } catch (NoSuchKeyException e) {
-                throw new IllegalArgumentException(
-                        "No output found for distributionName: %s, distributionId: %s. This could be because the distribution is not deployed in the current environment, because the deployment failed, or because the output has been cleaned by the artifact store life cycle policy".formatted(
-                                request.getDistributionName().getName(), distId));
-            }
-
+        String account = awsAccountFacade.getAccount();
+        Environment environment = environmentUserInput.getEnvironment(request);
+        String distId = request.getDistributionId()
+                               .map(DistributionId::getId)
+                               .orElseGet(() -> getDistId(request, environment));
+        String key = String.format(KEY,
+                                   environment.getName().getName(),
+                                   request.getDistributionName().getName(),
+                                   distId);
+        String bucket = String.format(BUCKET, givenRegion.getName(), account);
+
+        S3Client s3Client = awsClientFactory.s3Client();
+        try {
+            return new String(s3Client.getObject(GetObjectRequest.builder()
+                                                                 .key(key)
+                                                                 .bucket(bucket)
+                                                                 .build(),
+                                                 ResponseTransformer.toBytes())
+                                      .asByteArray());
+        } catch (NoSuchKeyException e) {
+            throw new IllegalArgumentException(
+                    "No output found for distributionName: %s, distributionId: %s. This could be because the distribution is not deployed in the current environment, because the deployment failed, or because the output has been cleaned by the artifact store life cycle policy".formatted(
+                            request.getDistributionName().getName(), distId));
         }
 
     }
 
     private String getDistId(GetDistributionOutputRequest request, Environment environment) {
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            AttributeValue attributeValue = dynamoDbClient
-                    .getItem(GetItemRequest.builder()
-                                           .tableName("AttiniResourceStatesV1")
-                                           .key(Map.of("resourceType",
-                                                       AttributeValue.builder()
-                                                                     .s("Distribution")
-                                                                     .build(),
-                                                       "name",
-                                                       AttributeValue.builder()
-                                                                     .s(environment.getName()
-                                                                                   .getName() + "-" + request.getDistributionName()
-                                                                                                             .getName())
-                                                                     .build()))
-                                           .build())
-                    .item()
-                    .get("distributionId");
-
-            if (attributeValue == null) {
-                throw new IllegalArgumentException("Distribution output for distribution " + request.getDistributionName()
-                                                                                                    .getName() + " not found");
-            }
-
-            return attributeValue.s();
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        AttributeValue attributeValue = dynamoDbClient
+                .getItem(GetItemRequest.builder()
+                                       .tableName("AttiniResourceStatesV1")
+                                       .key(Map.of("resourceType",
+                                                   AttributeValue.builder()
+                                                                 .s("Distribution")
+                                                                 .build(),
+                                                   "name",
+                                                   AttributeValue.builder()
+                                                                 .s(environment.getName()
+                                                                               .getName() + "-" + request.getDistributionName()
+                                                                                                         .getName())
+                                                                 .build()))
+                                       .build())
+                .item()
+                .get("distributionId");
+
+        if (attributeValue == null) {
+            throw new IllegalArgumentException("Distribution output for distribution " + request.getDistributionName()
+                                                                                                .getName() + " not found");
         }
 
+        return attributeValue.s();
+
     }
 }
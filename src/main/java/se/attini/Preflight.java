@@ -0,0 +1,148 @@
+package se.attini;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import se.attini.client.AwsClientFactory;
+import se.attini.domain.Environment;
+import se.attini.domain.Region;
+import se.attini.environment.EnvironmentService;
+import se.attini.profile.ProfileFacade;
+import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
+import software.amazon.awssdk.services.cloudformation.model.Output;
+
+/**
+ * Resolves the prerequisites most commands need before they can do any real work. The lookups are independent of
+ * each other, so they are started concurrently when a command starts and the results are consumed when needed. A
+ * lookup that is requested without having been started is started on demand.
+ * <p>
+ * If several lookups fail the errors are surfaced in the order of {@link Lookup}, regardless of which lookup
+ * finished first.
+ */
+public class Preflight {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "attini-preflight-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public enum Lookup {
+        REGION, ACCOUNT, ENVIRONMENTS, SETUP_VERSION
+    }
+
+    private final Map<Lookup, CompletableFuture<?>> lookups = new EnumMap<>(Lookup.class);
+
+    private final ProfileFacade profileFacade;
+    private final AwsAccountFacade awsAccountFacade;
+    private final EnvironmentService environmentService;
+    private final AwsClientFactory awsClientFactory;
+
+    public Preflight(ProfileFacade profileFacade,
+                     AwsAccountFacade awsAccountFacade,
+                     EnvironmentService environmentService,
+                     AwsClientFactory awsClientFactory) {
+        this.profileFacade = requireNonNull(profileFacade, "profileFacade");
+        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
+        this.environmentService = requireNonNull(environmentService, "environmentService");
+        this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
+    }
+
+    /**
+     * Starts the given lookups in the background. Lookups that are already started are not started again.
+     */
+    public void start(Lookup... lookups) {
+        Arrays.stream(lookups).forEach(this::lookup);
+    }
+
+    /**
+     * Waits for the given lookups and throws the error of the first one, in the order of {@link Lookup}, that failed.
+     */
+    public void verify(Lookup... lookups) {
+        start(lookups);
+        Arrays.stream(lookups)
+              .sorted()
+              .distinct()
+              .forEach(lookup -> join(lookup(lookup)));
+    }
+
+    public Region getRegion() {
+        return join(lookup(Lookup.REGION));
+    }
+
+    public String getAccount() {
+        return join(lookup(Lookup.ACCOUNT));
+    }
+
+    public List<Environment> getEnvironments() {
+        return join(lookup(Lookup.ENVIRONMENTS));
+    }
+
+    /**
+     * @return the version of the attini-setup stack or empty if Attini is not installed in the account and region
+     */
+    public Optional<String> getAttiniSetupVersion() {
+        return join(lookup(Lookup.SETUP_VERSION));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> CompletableFuture<T> lookup(Lookup lookup) {
+        return (CompletableFuture<T>) lookups.computeIfAbsent(lookup,
+                                                              key -> CompletableFuture.supplyAsync(supplier(key),
+                                                                                                   EXECUTOR));
+    }
+
+    private Supplier<?> supplier(Lookup lookup) {
+        return switch (lookup) {
+            case REGION -> profileFacade::getRegion;
+            case ACCOUNT -> awsAccountFacade::getAccount;
+            case ENVIRONMENTS -> environmentService::getEnvironments;
+            case SETUP_VERSION -> this::readAttiniSetupVersion;
+        };
+    }
+
+    private Optional<String> readAttiniSetupVersion() {
+        try {
+            return awsClientFactory.cfnClient()
+                                   .describeStacks(DescribeStacksRequest.builder()
+                                                                        .stackName("attini-setup")
+                                                                        .build())
+                                   .stacks()
+                                   .get(0)
+                                   .outputs()
+                                   .stream()
+                                   .filter(output -> output.outputKey().equals("AttiniSetupVersion"))
+                                   .map(Output::outputValue)
+                                   .findAny();
+        } catch (CloudFormationException e) {
+            if (e.awsErrorDetails().errorCode().equals("InvalidClientTokenId")) {
+                throw new InvalidCredentialsException(e.awsErrorDetails().errorMessage(), e);
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -4,7 +4,6 @@ package se.attini.cli;
 import static java.util.Objects.requireNonNull;
 import static se.attini.cli.ConsolePrinter.ErrorPrintType.TEXT;
 
-import java.util.List;
 import java.util.Optional;
 
 import jakarta.inject.Inject;
@@ -12,34 +11,25 @@ import picocli.CommandLine;
 import se.attini.cli.global.DebugOption;
 import se.attini.cli.global.JsonOption;
 import se.attini.cli.global.RegionAndProfileOption;
-import se.attini.client.AwsClientFactory;
-import se.attini.deployment.DeploymentOrigin;
+import se.attini.deployment.DistributionVersionLookup;
 import se.attini.deployment.FollowDeploymentRequest;
 import se.attini.deployment.FollowDeploymentService;
 import se.attini.deployment.history.DeploymentHistoryFacade;
-import se.attini.domain.BucketName;
 import se.attini.domain.DistributionId;
 import se.attini.domain.DistributionName;
 import se.attini.domain.Environment;
 import se.attini.domain.EnvironmentName;
 import se.attini.domain.ObjectIdentifier;
 import se.attini.environment.EnvironmentUserInput;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
-import software.amazon.awssdk.services.s3.model.ObjectVersion;
-import software.amazon.awssdk.services.s3.model.Tag;
 
 @CommandLine.Command(name = "describe", versionProvider = AttiniCliCommand.VersionProvider.class, description = "Describe/follow a deployment. Will print info about a running deployment or a previously run deployment.")
 public class FollowDeploymentCommand implements Runnable {
 
 
     private FollowDeploymentService followDeploymentService;
-    private AwsClientFactory awsClientFactory;
     private EnvironmentUserInput environmentUserInput;
     private DeploymentHistoryFacade deploymentHistoryFacade;
-    private DeploymentOrigin deploymentOrigin;
+    private DistributionVersionLookup distributionVersionLookup;
     private ConsolePrinter consolePrinter;
     @CommandLine.Mixin
     RegionAndProfileOption regionAndProfileOption;
@@ -69,16 +59,14 @@ public class FollowDeploymentCommand implements Runnable {
 
     @Inject
     public FollowDeploymentCommand(FollowDeploymentService followDeploymentService,
-                                   AwsClientFactory awsClientFactory,
-                                   DeploymentOrigin deploymentOrigin,
+                                   DistributionVersionLookup distributionVersionLookup,
                                    EnvironmentUserInput environmentUserInput,
                                    DeploymentHistoryFacade deploymentHistoryFacade,
                                    ConsolePrinter consolePrinter) {
         this.followDeploymentService = requireNonNull(followDeploymentService, "followDeploymentService");
-        this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
         this.environmentUserInput = requireNonNull(environmentUserInput, "environmentUserInput");
         this.deploymentHistoryFacade = requireNonNull(deploymentHistoryFacade, "deploymentHistoryFacade");
-        this.deploymentOrigin = requireNonNull(deploymentOrigin, "deploymentOrigin");
+        this.distributionVersionLookup = requireNonNull(distributionVersionLookup, "distributionVersionLookup");
         this.consolePrinter = requireNonNull(consolePrinter, "consolePrinter");
     }
 
@@ -124,31 +112,8 @@ public class FollowDeploymentCommand implements Runnable {
                                        DistributionId distributionId,
                                        Environment environment) {
 
-        try( S3Client s3Client = awsClientFactory.s3Client()){
-            BucketName deploymentOriginBucketName = deploymentOrigin.getDeploymentOriginBucketName();
-            List<ObjectVersion> versions = s3Client.listObjectVersions(ListObjectVersionsRequest.builder()
-                                                                                                .bucket(deploymentOriginBucketName.getName())
-                                                                                                .prefix(environment.getName()
-                                                                                                                   .getName() + "/" + distributionName.getName())
-                                                                                                .build())
-                                                   .versions();
-
-            for (ObjectVersion objectVersion : versions) {
-                GetObjectTaggingResponse objectTagging = s3Client.getObjectTagging(GetObjectTaggingRequest.builder()
-                                                                                                          .bucket(deploymentOriginBucketName.getName())
-                                                                                                          .key(objectVersion.key())
-                                                                                                          .versionId(
-                                                                                                                  objectVersion.versionId())
-                                                                                                          .build());
-
-                if (objectTagging.tagSet().contains(Tag.builder()
-                                                       .key("distributionId")
-                                                       .value(distributionId.getId())
-                                                       .build())) {
-                    return objectVersion.key() + "#" + objectTagging.versionId();
-                }
-            }
-        }
-        throw new RuntimeException("Could not find object identifier");
+        return distributionVersionLookup.findObjectVersion(environment, distributionName, distributionId)
+                                        .map(objectVersion -> objectVersion.key() + "#" + objectVersion.versionId())
+                                        .orElseThrow(() -> new RuntimeException("Could not find object identifier"));
     }
 }
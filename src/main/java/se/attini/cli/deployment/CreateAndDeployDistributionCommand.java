@@ -12,6 +12,8 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import se.attini.CheckVersionService;
+import se.attini.Preflight;
+import se.attini.Preflight.Lookup;
 import se.attini.cli.AttiniCliCommand;
 import se.attini.cli.CliError;
 import se.attini.cli.ConsolePrinter;
@@ -43,6 +45,7 @@ public class CreateAndDeployDistributionCommand implements Runnable {
     private final PackageDistributionService packageDistributionService;
     private final AttiniConfigFiles attiniConfigFiles;
     private final CheckVersionService checkVersionService;
+    private final Preflight preflight;
     private final GlobalConfig globalConfig;
     private final ConsolePrinter consolePrinter;
     @Parameters(description = "Specify a path to a directory you wish do deploy. Required.")
@@ -81,6 +84,9 @@ public class CreateAndDeployDistributionCommand implements Runnable {
     @Option(names = {"--force", "-f"}, description = "Force the deployment. This will skipp the confirmation question for production environments.")
     private boolean forceDeployment;
 
+    @Option(names = {"--skip-unchanged"}, description = "Don't start a deployment if the distribution is identical to the latest distribution uploaded to the environment. By default an unchanged distribution is deployed again by copying the latest upload instead of uploading it again.")
+    private boolean skipUnchanged;
+
     @CommandLine.Option(names = {"--distribution-id", "-i"}, description = "Specify a distribution id to set for the distribution during the package phase. Will be set before any prepackage commands are run. Will override any existing distributionId. Will be ignored if the path specifies an already packaged distribution.")
     private DistributionId distributionId;
 
@@ -90,12 +96,16 @@ public class CreateAndDeployDistributionCommand implements Runnable {
     @CommandLine.Option(names = {"--distribution-version", "-v"}, description = "Specify a semantic version for the distribution. Will be executed during the package phase and will be ignored if the path specifies an already packaged distribution.")
     private String version;
 
+    @CommandLine.Option(names = {"--compression-threads"}, description = "Number of threads used to compress the distribution. Defaults to the number of available processors. The archive is the same regardless of the number of threads. Will be ignored if the path specifies an already packaged distribution.")
+    private Integer compressionThreads;
+
     @Inject
     public CreateAndDeployDistributionCommand(DeployDistributionService deployDistributionService,
                                               FollowDeploymentService followDeploymentService,
                                               PackageDistributionService packageDistributionService,
                                               AttiniConfigFiles attiniConfigFiles,
                                               CheckVersionService checkVersionService,
+                                              Preflight preflight,
                                               GlobalConfig globalConfig,
                                               ConsolePrinter consolePrinter) {
         this.deployDistributionService = requireNonNull(deployDistributionService, "deployDistributionService");
@@ -103,6 +113,7 @@ public class CreateAndDeployDistributionCommand implements Runnable {
         this.packageDistributionService = requireNonNull(packageDistributionService, "packageDistributionService");
         this.attiniConfigFiles = requireNonNull(attiniConfigFiles, "attiniConfigFiles");
         this.checkVersionService = requireNonNull(checkVersionService, "checkVersionService");
+        this.preflight = requireNonNull(preflight, "preflight");
         this.globalConfig = requireNonNull(globalConfig, "globalConfig");
         this.consolePrinter = requireNonNull(consolePrinter, "consolePrinter");
     }
@@ -116,6 +127,8 @@ public class CreateAndDeployDistributionCommand implements Runnable {
                 System.exit(1);
             }
             checkVersionService.checkVersion();
+            // resolved in the background while the distribution is packaged
+            preflight.start(Lookup.REGION, Lookup.ACCOUNT, Lookup.ENVIRONMENTS);
 
             if (path.getSourceType().equals(FilePath.SourceType.FILE_SYSTEM_DIRECTORY)) {
                 Path destinationPath =
@@ -129,7 +142,8 @@ public class CreateAndDeployDistributionCommand implements Runnable {
                                                                containerRepoLogin,
                                                                distributionId,
                                                                skipCommands,
-                                                               version);
+                                                               version,
+                                                               compressionThreads);
                 path = FilePath.create(destinationPath.toString());
             }
 
@@ -138,11 +152,15 @@ public class CreateAndDeployDistributionCommand implements Runnable {
                                                                                            .setPath(path)
                                                                                            .setForceDeployment(
                                                                                                    forceDeployment)
+                                                                                           .setSkipUnchanged(skipUnchanged)
                                                                                            .setJson(jsonOption.printAsJson())
                                                                                            .build();
 
 
             DeployDistributionResponse response = deployDistributionService.deployDistribution(request);
+            if (response.isDeploymentSkipped()) {
+                return;
+            }
             if (!dontFollow) {
                 followDeploymentService.followDeployment(FollowDeploymentRequest.builder()
                                                                                 .setDistributionName(response.getDistributionName())
@@ -2,6 +2,8 @@ package se.attini.cli.deployment;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -52,6 +54,12 @@ public class DeploymentHistoryCommand implements Runnable {
     @Option(names = {"--output-limit", "-o"}, description = "How many deployments to list, default = 10.")
     private int outputLimit = 10;
 
+    @Option(names = {"--since"}, converter = DeploymentTimeConverter.class, description = "Only list deployments made at or after this time. Format: yyyy-MM-dd HH:mm:ss or yyyy-MM-dd.")
+    private Instant since;
+
+    @Option(names = {"--before"}, converter = DeploymentTimeConverter.class, description = "Only list deployments made before this time, use the deployment time of the oldest listed deployment to list older deployments. Format: yyyy-MM-dd HH:mm:ss or yyyy-MM-dd.")
+    private Instant before;
+
     @SuppressWarnings("unused")
     @CommandLine.Option(names = {"--help", "-h"}, description = "Show information about this command.", usageHelp = true)
     private boolean help;
@@ -73,7 +81,14 @@ public class DeploymentHistoryCommand implements Runnable {
                                                                                             .setDistributionName(
                                                                                                     distributionName)
                                                                                             .setEnvironment(environment)
-                                                                                            .build());
+                                                                                            .setLimit(outputLimit)
+                                                                                            .setSince(since)
+                                                                                            .setBefore(before)
+                                                                                            .build())
+                                           .collect(Collectors.toList());
+
+            // the history is listed newest first but printed oldest first
+            Collections.reverse(deploymentHistory);
 
             if (deploymentHistory.isEmpty()) {
                 System.out.println("No distribution with name " + distributionName.getName() + " found in region");
@@ -83,7 +98,6 @@ public class DeploymentHistoryCommand implements Runnable {
             String result = objectMapperFactory.getObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL)
                                                .writerWithDefaultPrettyPrinter()
                                                .writeValueAsString(deploymentHistory.stream()
-                                                                                  .skip(getPrintLimit(deploymentHistory.size()))
                                                                                   .map(DeploymentData::new)
                                                                                   .collect(
                                                                                           Collectors.toList()));
@@ -95,12 +109,4 @@ public class DeploymentHistoryCommand implements Runnable {
         }
 
     }
-
-
-    private int getPrintLimit(int listSize) {
-        if (listSize <= outputLimit) {
-            return 0;
-        }
-        return listSize - outputLimit;
-    }
 }
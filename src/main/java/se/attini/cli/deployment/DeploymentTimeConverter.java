@@ -0,0 +1,41 @@
+package se.attini.cli.deployment;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import picocli.CommandLine;
+
+/**
+ * Converts a deployment time in the same format as it is printed by the history command, a date, or an ISO-8601
+ * instant. Times without a zone are in the local time zone.
+ */
+class DeploymentTimeConverter implements CommandLine.ITypeConverter<Instant> {
+
+    private static final DateTimeFormatter DEPLOYMENT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Override
+    public Instant convert(String value) {
+        String trimmed = value.trim();
+        try {
+            return OffsetDateTime.parse(trimmed).toInstant();
+        } catch (DateTimeParseException e) {
+            // no zone, parsed as a local time below
+        }
+        try {
+            if (trimmed.length() == 10) {
+                return LocalDate.parse(trimmed).atStartOfDay(ZoneId.systemDefault()).toInstant();
+            }
+            return LocalDateTime.parse(trimmed.replace('T', ' '), DEPLOYMENT_TIME_FORMAT)
+                                .atZone(ZoneId.systemDefault())
+                                .toInstant();
+        } catch (DateTimeParseException e) {
+            throw new CommandLine.TypeConversionException(
+                    "Invalid time '" + value + "', expected the format yyyy-MM-dd HH:mm:ss, yyyy-MM-dd or an ISO-8601 instant");
+        }
+    }
+}
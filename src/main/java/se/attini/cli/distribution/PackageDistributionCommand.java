@@ -65,6 +65,9 @@ public class PackageDistributionCommand implements Runnable {
     @CommandLine.Option(names =  {"--distribution-version", "-v"}, description = "Specify a semantic version for the distribution.")
     private String version;
 
+    @CommandLine.Option(names = {"--compression-threads"}, description = "Number of threads used to compress the distribution. Defaults to the number of available processors. The archive is the same regardless of the number of threads.")
+    private Integer compressionThreads;
+
     @Inject
     public PackageDistributionCommand(PackageDistributionService packageDistributionService,
                                       AttiniConfigFiles attiniConfigFiles,
@@ -99,7 +102,8 @@ public class PackageDistributionCommand implements Runnable {
                                                            containerRepoLogin,
                                                            distributionId,
                                                            skipCommands,
-                                                           version);
+                                                           version,
+                                                           compressionThreads);
         } catch (Exception e) {
             CliError resolve = ErrorResolver.resolve(e);
             if (jsonOption.printAsJson()) {
@@ -0,0 +1,175 @@
+package se.attini.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets that limit the rate of API calls per AWS service. The state of a bucket is kept in a small file that
+ * is locked while it is updated, so all CLI processes on the same machine share the same budget. If the file can not
+ * be used the bucket falls back to only limiting the current process.
+ */
+final class ApiCallBudget {
+
+    private static final Map<String, Double> CALLS_PER_SECOND = Map.of("DynamoDb", 40.0,
+                                                                       "S3", 100.0,
+                                                                       "CloudFormation", 8.0,
+                                                                       "Sfn", 20.0,
+                                                                       "CloudWatchLogs", 10.0,
+                                                                       "Sts", 20.0,
+                                                                       "Sns", 20.0);
+    private static final double DEFAULT_CALLS_PER_SECOND = 20.0;
+    private static final int STATE_SIZE = Double.BYTES + Long.BYTES;
+
+    private final Path directory;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory where the shared bucket files are kept, or null to only limit the current process
+     */
+    ApiCallBudget(Path directory) {
+        this(directory, System::currentTimeMillis);
+    }
+
+    ApiCallBudget(Path directory, LongSupplier clock) {
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    /**
+     * Blocks until a call to the service fits in the budget.
+     */
+    void acquire(String service) {
+        Bucket bucket = bucket(service);
+        long waitMillis;
+        while ((waitMillis = bucket.tryTake()) > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to call " + service, e);
+            }
+        }
+    }
+
+    /**
+     * Takes a token from the budget of the service without waiting for it.
+     *
+     * @return the number of millis until the call fits in the budget, 0 if it can be made right away
+     */
+    long reserve(String service) {
+        return bucket(service).reserve();
+    }
+
+    /**
+     * Empties the bucket of the service, used when the service has started to throttle calls so that all processes
+     * back off.
+     */
+    void drain(String service) {
+        bucket(service).drain();
+    }
+
+    private Bucket bucket(String service) {
+        return buckets.computeIfAbsent(service,
+                                       name -> new Bucket(CALLS_PER_SECOND.getOrDefault(name, DEFAULT_CALLS_PER_SECOND),
+                                                          directory == null ? null : directory.resolve(name + ".bucket")));
+    }
+
+    private final class Bucket {
+        private final double callsPerMilli;
+        private final double capacity;
+        private final Path file;
+        private FileChannel channel;
+        private boolean shared;
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double callsPerSecond, Path file) {
+            this.callsPerMilli = callsPerSecond / 1000;
+            this.capacity = callsPerSecond;
+            this.file = file;
+            this.shared = file != null;
+            this.tokens = capacity;
+            this.lastRefill = clock.getAsLong();
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the number of millis until one is available
+         */
+        synchronized long tryTake() {
+            return update(() -> {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return 0L;
+                }
+                return Math.max(1, (long) Math.ceil((1 - tokens) / callsPerMilli));
+            });
+        }
+
+        synchronized long reserve() {
+            return update(() -> {
+                refill();
+                tokens -= 1;
+                return tokens >= 0 ? 0L : (long) Math.ceil(-tokens / callsPerMilli);
+            });
+        }
+
+        synchronized void drain() {
+            update(() -> {
+                refill();
+                tokens = Math.min(tokens, 0);
+                return 0L;
+            });
+        }
+
+        private void refill() {
+            long now = clock.getAsLong();
+            tokens = Math.min(capacity, tokens + Math.max(0, now - lastRefill) * callsPerMilli);
+            lastRefill = Math.max(lastRefill, now);
+        }
+
+        private long update(LongSupplier operation) {
+            if (shared) {
+                try {
+                    return updateShared(operation);
+                } catch (IOException e) {
+                    shared = false;
+                }
+            }
+            return operation.getAsLong();
+        }
+
+        private long updateShared(LongSupplier operation) throws IOException {
+            if (channel == null) {
+                Files.createDirectories(file.getParent());
+                channel = FileChannel.open(file,
+                                           StandardOpenOption.CREATE,
+                                           StandardOpenOption.READ,
+                                           StandardOpenOption.WRITE);
+            }
+            try (FileLock ignored = channel.lock()) {
+                ByteBuffer state = ByteBuffer.allocate(STATE_SIZE);
+                if (channel.read(state, 0) == STATE_SIZE) {
+                    state.flip();
+                    tokens = state.getDouble();
+                    lastRefill = state.getLong();
+                }
+                long result = operation.getAsLong();
+                state.clear();
+                state.putDouble(tokens).putLong(lastRefill).flip();
+                channel.write(state, 0);
+                return result;
+            }
+        }
+    }
+}
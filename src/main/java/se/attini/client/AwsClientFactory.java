@@ -3,11 +3,20 @@ package se.attini.client;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import se.attini.EnvironmentVariables;
 import se.attini.cli.global.GlobalConfig;
 import se.attini.domain.Region;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.SdkClient;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
 import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.backoff.BackoffStrategy;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
@@ -17,16 +26,35 @@ import software.amazon.awssdk.services.sns.SnsClient;
 import software.amazon.awssdk.services.sts.StsClient;
 
 
+/**
+ * Creates AWS clients for the configured region and profile. Clients are cached for the lifetime of the process
+ * and closed on shutdown, so they should not be closed by the caller.
+ * <p>
+ * All clients use adaptive retries and share a per service budget of API calls with other CLI processes on the
+ * same machine. Throttled calls are reported when the process exits.
+ */
 public class AwsClientFactory {
 
+    private static final AwsClientRegistry CLIENT_REGISTRY = AwsClientRegistry.create();
+
     private final GlobalConfig globalConfig;
+    private final AttiniCredentialProvider credentialProvider;
+    private final ApiCallBudget apiCallBudget;
+    private final RateLimitingInterceptor rateLimitingInterceptor;
 
-    public AwsClientFactory(GlobalConfig globalConfig) {
+    public AwsClientFactory(GlobalConfig globalConfig, EnvironmentVariables environmentVariables) {
         this.globalConfig = requireNonNull(globalConfig, "globalConfig");
+        this.credentialProvider = AttiniCredentialProvider.create();
+        this.apiCallBudget = new ApiCallBudget(environmentVariables.isDisableSharedApiBudget()
+                                               ? null
+                                               : environmentVariables.getCacheDirectory().resolve("api-budget"));
+        this.rateLimitingInterceptor = new RateLimitingInterceptor(apiCallBudget);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::reportThrottling));
     }
 
     private SnsClient snsClient(Region region) {
         return SnsClient.builder()
+                        .httpClient(CLIENT_REGISTRY.httpClient())
                         .overrideConfiguration(getClientOverride())
                         .credentialsProvider(getCredentials())
                         .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -34,15 +62,24 @@ public class AwsClientFactory {
     }
 
     public SnsClient snsClient() {
-        return globalConfig.getRegion()
-                           .map(this::snsClient)
-                           .orElseGet(() -> SnsClient.builder()
-                                                     .credentialsProvider(getCredentials())
-                                                     .build());
+        return getClient(SnsClient.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::snsClient)
+                                           .orElseGet(() -> SnsClient.builder()
+                                                                     .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                     .overrideConfiguration(getClientOverride())
+                                                                     .credentialsProvider(getCredentials())
+                                                                     .build()));
     }
 
     public S3Client s3Client(Region region) {
+        return getClient(S3Client.class, Optional.of(region), () -> createS3Client(region));
+    }
+
+    private S3Client createS3Client(Region region) {
         return S3Client.builder()
+                       .httpClient(CLIENT_REGISTRY.httpClient())
                        .overrideConfiguration(getS3ClientOverride())
                        .credentialsProvider(getCredentials())
                        .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -50,18 +87,22 @@ public class AwsClientFactory {
     }
 
     public S3Client s3Client() {
-        return globalConfig.getRegion()
-                           .map(this::s3Client)
-                           .orElseGet(() -> S3Client.builder()
-                                                    .overrideConfiguration(getS3ClientOverride())
-                                                    .credentialsProvider(getCredentials())
-                                                    .build());
+        return getClient(S3Client.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::createS3Client)
+                                           .orElseGet(() -> S3Client.builder()
+                                                                    .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                    .overrideConfiguration(getS3ClientOverride())
+                                                                    .credentialsProvider(getCredentials())
+                                                                    .build()));
 
     }
 
 
     private StsClient stsClient(Region region) {
         return StsClient.builder()
+                        .httpClient(CLIENT_REGISTRY.httpClient())
                         .overrideConfiguration(getClientOverride())
                         .credentialsProvider(getCredentials())
                         .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -69,17 +110,21 @@ public class AwsClientFactory {
     }
 
     public StsClient stsClient() {
-        return globalConfig.getRegion()
-                           .map(this::stsClient)
-                           .orElseGet(() -> StsClient.builder()
-                                                     .credentialsProvider(getCredentials())
-                                                     .overrideConfiguration(getClientOverride())
-                                                     .build());
+        return getClient(StsClient.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::stsClient)
+                                           .orElseGet(() -> StsClient.builder()
+                                                                     .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                     .credentialsProvider(getCredentials())
+                                                                     .overrideConfiguration(getClientOverride())
+                                                                     .build()));
 
     }
 
     private CloudWatchLogsClient cloudWatchClient(Region region) {
         return CloudWatchLogsClient.builder()
+                                   .httpClient(CLIENT_REGISTRY.httpClient())
                                    .credentialsProvider(getCredentials())
                                    .overrideConfiguration(getClientOverride())
                                    .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -87,17 +132,25 @@ public class AwsClientFactory {
     }
 
     public CloudWatchLogsClient cloudWatchClient() {
-        return globalConfig.getRegion()
-                           .map(this::cloudWatchClient)
-                           .orElseGet(() -> CloudWatchLogsClient.builder()
-                                                                .credentialsProvider(getCredentials())
-                                                                .overrideConfiguration(getClientOverride())
-                                                                .build());
+        return getClient(CloudWatchLogsClient.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::cloudWatchClient)
+                                           .orElseGet(() -> CloudWatchLogsClient.builder()
+                                                                                .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                                .credentialsProvider(getCredentials())
+                                                                                .overrideConfiguration(getClientOverride())
+                                                                                .build()));
     }
 
 
     public DynamoDbClient dynamoClient(Region region) {
+        return getClient(DynamoDbClient.class, Optional.of(region), () -> createDynamoClient(region));
+    }
+
+    private DynamoDbClient createDynamoClient(Region region) {
         return DynamoDbClient.builder()
+                             .httpClient(CLIENT_REGISTRY.httpClient())
                              .credentialsProvider(getCredentials())
                              .overrideConfiguration(getClientOverride())
                              .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -106,18 +159,26 @@ public class AwsClientFactory {
     }
 
     public DynamoDbClient dynamoClient() {
-        return globalConfig.getRegion()
-                           .map(this::dynamoClient)
-                           .orElseGet(() -> DynamoDbClient.builder()
-                                                          .credentialsProvider(getCredentials())
-                                                          .overrideConfiguration(getClientOverride())
-                                                          .build());
+        return getClient(DynamoDbClient.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::createDynamoClient)
+                                           .orElseGet(() -> DynamoDbClient.builder()
+                                                                          .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                          .credentialsProvider(getCredentials())
+                                                                          .overrideConfiguration(getClientOverride())
+                                                                          .build()));
 
     }
 
 
     public CloudFormationClient cfnClient(Region region) {
+        return getClient(CloudFormationClient.class, Optional.of(region), () -> createCfnClient(region));
+    }
+
+    private CloudFormationClient createCfnClient(Region region) {
         return CloudFormationClient.builder()
+                                   .httpClient(CLIENT_REGISTRY.httpClient())
                                    .overrideConfiguration(getClientOverride())
                                    .credentialsProvider(getCredentials())
                                    .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -125,18 +186,26 @@ public class AwsClientFactory {
     }
 
     public CloudFormationClient cfnClient() {
-        return globalConfig.getRegion()
-                           .map(this::cfnClient)
-                           .orElseGet(() -> CloudFormationClient.builder()
-                                                                .credentialsProvider(getCredentials())
-                                                                .overrideConfiguration(getClientOverride())
-                                                                .build());
+        return getClient(CloudFormationClient.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::createCfnClient)
+                                           .orElseGet(() -> CloudFormationClient.builder()
+                                                                                .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                                .credentialsProvider(getCredentials())
+                                                                                .overrideConfiguration(getClientOverride())
+                                                                                .build()));
 
     }
 
 
     public SfnClient sfnClient(Region region) {
+        return getClient(SfnClient.class, Optional.of(region), () -> createSfnClient(region));
+    }
+
+    private SfnClient createSfnClient(Region region) {
         return SfnClient.builder()
+                        .httpClient(CLIENT_REGISTRY.httpClient())
                         .credentialsProvider(getCredentials())
                         .overrideConfiguration(getClientOverride())
                         .region(software.amazon.awssdk.regions.Region.of(region.getName()))
@@ -144,37 +213,69 @@ public class AwsClientFactory {
     }
 
     public SfnClient sfnClient() {
-        return globalConfig.getRegion()
-                           .map(this::sfnClient)
-                           .orElseGet(() -> SfnClient.builder()
-                                                     .overrideConfiguration(getClientOverride())
-                                                     .credentialsProvider(getCredentials())
-                                                     .build());
+        return getClient(SfnClient.class,
+                         globalConfig.getRegion(),
+                         () -> globalConfig.getRegion()
+                                           .map(this::createSfnClient)
+                                           .orElseGet(() -> SfnClient.builder()
+                                                                     .httpClient(CLIENT_REGISTRY.httpClient())
+                                                                     .overrideConfiguration(getClientOverride())
+                                                                     .credentialsProvider(getCredentials())
+                                                                     .build()));
     }
 
-    private static ClientOverrideConfiguration getClientOverride() {
+    private <T extends SdkClient> T getClient(Class<T> type, Optional<Region> region, Supplier<T> clientSupplier) {
+        return CLIENT_REGISTRY.getClient(type, region, globalConfig.getProfile(), clientSupplier);
+    }
+
+    private ClientOverrideConfiguration getClientOverride() {
         return ClientOverrideConfiguration.builder()
                                           .apiCallTimeout(Duration.ofSeconds(240))
                                           .apiCallAttemptTimeout(Duration.ofSeconds(15))
-                                          .retryPolicy(RetryPolicy.builder()
-                                                                  .numRetries(10)
-                                                                  .build())
+                                          .retryPolicy(getRetryPolicy())
+                                          .addExecutionInterceptor(rateLimitingInterceptor)
                                           .build();
     }
 
-    private static ClientOverrideConfiguration getS3ClientOverride() {
+    private ClientOverrideConfiguration getS3ClientOverride() {
         return ClientOverrideConfiguration.builder()
                                           .apiCallTimeout(Duration.ofMinutes(15))
                                           .apiCallAttemptTimeout(Duration.ofMinutes(5))
-                                          .retryPolicy(RetryPolicy.builder()
-                                                                  .numRetries(10)
-                                                                  .build())
+                                          .retryPolicy(getRetryPolicy())
+                                          .addExecutionInterceptor(rateLimitingInterceptor)
                                           .build();
     }
 
+    private RetryPolicy getRetryPolicy() {
+        return RetryPolicy.builder(RetryMode.ADAPTIVE)
+                          .numRetries(10)
+                          .backoffStrategy(new BudgetBackoffStrategy(BackoffStrategy.defaultStrategy(RetryMode.ADAPTIVE),
+                                                                     apiCallBudget))
+                          .throttlingBackoffStrategy(new BudgetBackoffStrategy(BackoffStrategy.defaultThrottlingStrategy(RetryMode.ADAPTIVE),
+                                                                               apiCallBudget))
+                          .build();
+    }
+
+    private void reportThrottling() {
+        Map<String, Long> throttledCalls = rateLimitingInterceptor.getThrottledCalls();
+        if (!throttledCalls.isEmpty()) {
+            System.err.println("AWS API calls were throttled: " + throttledCalls.entrySet()
+                                                                               .stream()
+                                                                               .map(entry -> entry.getKey() + "=" + entry.getValue())
+                                                                               .collect(Collectors.joining(", ")));
+        }
+    }
+
+
+    /**
+     * @return the credentials provider used by all clients created by this factory
+     */
+    public AwsCredentialsProvider credentialsProvider() {
+        return credentialProvider;
+    }
 
     private AttiniCredentialProvider getCredentials() {
-        return AttiniCredentialProvider.create();
+        return credentialProvider;
     }
 
 }
@@ -0,0 +1,66 @@
+package se.attini.client;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import se.attini.domain.Profile;
+import se.attini.domain.Region;
+import software.amazon.awssdk.core.SdkClient;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+/**
+ * Process wide cache of AWS clients. The SDK clients are thread safe so one client per service, region and
+ * profile is shared by all callers and kept open until the JVM shuts down. Callers should therefore never close
+ * a client they got from the {@link AwsClientFactory}.
+ */
+final class AwsClientRegistry {
+
+    private static final String DEFAULT = "default";
+
+    private final Map<ClientKey, SdkClient> clients = new ConcurrentHashMap<>();
+    private final SdkHttpClient httpClient;
+
+    private AwsClientRegistry(SdkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    static AwsClientRegistry create() {
+        AwsClientRegistry registry = new AwsClientRegistry(UrlConnectionHttpClient.builder().build());
+        Runtime.getRuntime().addShutdownHook(new Thread(registry::closeAll));
+        return registry;
+    }
+
+    SdkHttpClient httpClient() {
+        return httpClient;
+    }
+
+    <T extends SdkClient> T getClient(Class<T> type,
+                                      Optional<Region> region,
+                                      Optional<Profile> profile,
+                                      Supplier<T> clientSupplier) {
+        ClientKey key = new ClientKey(type,
+                                      region.map(Region::getName).orElse(DEFAULT),
+                                      profile.map(Profile::getProfileName).orElse(DEFAULT));
+        return type.cast(clients.computeIfAbsent(key, clientKey -> clientSupplier.get()));
+    }
+
+    private void closeAll() {
+        clients.values().forEach(AwsClientRegistry::closeQuietly);
+        clients.clear();
+        closeQuietly(httpClient);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // the JVM is shutting down, nothing sensible to do with the error
+        }
+    }
+
+    private record ClientKey(Class<?> type, String region, String profile) {
+    }
+}
@@ -0,0 +1,30 @@
+package se.attini.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.core.retry.backoff.BackoffStrategy;
+
+/**
+ * Delays a retry until the budget of its service has room for it, or by the delay of the wrapped strategy if that is
+ * longer. The delay is spent between attempts, so it does not count against the timeout of an attempt.
+ */
+final class BudgetBackoffStrategy implements BackoffStrategy {
+
+    private final BackoffStrategy delegate;
+    private final ApiCallBudget budget;
+
+    BudgetBackoffStrategy(BackoffStrategy delegate, ApiCallBudget budget) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.budget = requireNonNull(budget, "budget");
+    }
+
+    @Override
+    public Duration computeDelayBeforeNextRetry(RetryPolicyContext context) {
+        Duration delay = delegate.computeDelayBeforeNextRetry(context);
+        long budgetMillis = budget.reserve(RateLimitingInterceptor.serviceName(context.executionAttributes()));
+        return budgetMillis > delay.toMillis() ? Duration.ofMillis(budgetMillis) : delay;
+    }
+}
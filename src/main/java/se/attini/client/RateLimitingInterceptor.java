@@ -0,0 +1,76 @@
+package se.attini.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpResponse;
+
+/**
+ * Makes every API call wait for the budget of its service before the call starts, so that the wait does not count
+ * against the timeouts of the call. Retries wait for the budget in {@link BudgetBackoffStrategy}. Responses that
+ * signal throttling are counted and drain the budget so that all processes sharing it slow down.
+ */
+final class RateLimitingInterceptor implements ExecutionInterceptor {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final String S3 = "S3";
+
+    private final ApiCallBudget budget;
+    private final Map<String, LongAdder> throttledCalls = new ConcurrentHashMap<>();
+
+    RateLimitingInterceptor(ApiCallBudget budget) {
+        this.budget = requireNonNull(budget, "budget");
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        budget.acquire(serviceName(executionAttributes));
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        String service = serviceName(executionAttributes);
+        if (isThrottled(service, context.httpResponse())) {
+            throttledCalls.computeIfAbsent(service, name -> new LongAdder()).increment();
+            budget.drain(service);
+        }
+    }
+
+    /**
+     * @return the number of throttled calls per service
+     */
+    Map<String, Long> getThrottledCalls() {
+        Map<String, Long> result = new TreeMap<>();
+        throttledCalls.forEach((service, count) -> result.put(service, count.sum()));
+        return result;
+    }
+
+    private static boolean isThrottled(String service, SdkHttpResponse response) {
+        if (response.statusCode() == TOO_MANY_REQUESTS) {
+            return true;
+        }
+        if (response.statusCode() == SERVICE_UNAVAILABLE && S3.equals(service)) {
+            // S3 answers SlowDown with a 503, for other services a 503 is not a sign of throttling
+            return true;
+        }
+        return response.firstMatchingHeader("x-amzn-ErrorType")
+                       .filter(errorType -> errorType.contains("Throttl")
+                                            || errorType.contains("ProvisionedThroughputExceeded")
+                                            || errorType.contains("RequestLimitExceeded"))
+                       .isPresent();
+    }
+
+    static String serviceName(ExecutionAttributes executionAttributes) {
+        String serviceName = executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+        return serviceName == null ? "unknown" : serviceName;
+    }
+}
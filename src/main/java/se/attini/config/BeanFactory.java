@@ -1,5 +1,6 @@
 package se.attini.config;
 
+import java.time.Duration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -10,6 +11,7 @@ import se.attini.CheckVersionService;
 import se.attini.DistributionDataFacade;
 import se.attini.EnvironmentVariables;
 import se.attini.GetDistributionOutputService;
+import se.attini.Preflight;
 import se.attini.cli.ConsolePrinter;
 import se.attini.cli.RemoveStackService;
 import se.attini.cli.UserInputReader;
@@ -24,6 +26,8 @@ import se.attini.deployment.DeployDistributionService;
 import se.attini.deployment.DeploymentOrigin;
 import se.attini.deployment.DeploymentPlanStatusFacade;
 import se.attini.deployment.DeploymentPlanStatusPrinter;
+import se.attini.deployment.DistributionVersionIndex;
+import se.attini.deployment.DistributionVersionLookup;
 import se.attini.deployment.FollowDeploymentService;
 import se.attini.deployment.RedeployDistributionService;
 import se.attini.deployment.StepLoggerFactory;
@@ -46,6 +50,7 @@ import se.attini.setup.SetupAttiniService;
 import se.attini.setup.SetupVersionsService;
 import se.attini.stackstatus.FindUnmanagedStackService;
 import se.attini.util.ObjectMapperFactory;
+import se.attini.util.Poller;
 
 @Factory
 public class BeanFactory {
@@ -61,8 +66,8 @@ public class BeanFactory {
     }
 
     @Singleton
-    AwsClientFactory awsClientFactory(GlobalConfig globalConfig) {
-        return new AwsClientFactory(globalConfig);
+    AwsClientFactory awsClientFactory(GlobalConfig globalConfig, EnvironmentVariables environmentVariables) {
+        return new AwsClientFactory(globalConfig, environmentVariables);
     }
 
     @Singleton
@@ -76,15 +81,19 @@ public class BeanFactory {
     }
 
     @Singleton
-    public EnvironmentService environmentService(AwsClientFactory awsClientFactory) {
-        return new EnvironmentService(awsClientFactory);
+    public EnvironmentService environmentService(AwsClientFactory awsClientFactory,
+                                                 ProfileFacade profileFacade,
+                                                 AwsAccountFacade awsAccountFacade,
+                                                 EnvironmentVariables environmentVariables) {
+        return new EnvironmentService(awsClientFactory, profileFacade, awsAccountFacade, environmentVariables);
     }
 
     @Singleton
     public DownloadDistributionService downloadDistributionService(AwsClientFactory awsClientFactory,
+                                                                   AwsAccountFacade awsAccountFacade,
                                                                    ProfileFacade profileFacade,
                                                                    EnvironmentUserInput environmentUserInput) {
-        return new DownloadDistributionService(awsClientFactory, profileFacade, environmentUserInput);
+        return new DownloadDistributionService(awsClientFactory, awsAccountFacade, profileFacade, environmentUserInput);
     }
 
     @Singleton
@@ -105,9 +114,10 @@ public class BeanFactory {
 
     @Singleton
     GetDistributionOutputService getDistributionOutputService(AwsClientFactory awsClientFactory,
+                                                              AwsAccountFacade awsAccountFacade,
                                                               ProfileFacade profileFacade,
                                                               EnvironmentUserInput environmentUserInput) {
-        return new GetDistributionOutputService(awsClientFactory, profileFacade, environmentUserInput);
+        return new GetDistributionOutputService(awsClientFactory, awsAccountFacade, profileFacade, environmentUserInput);
     }
 
     @Singleton
@@ -134,8 +144,9 @@ public class BeanFactory {
     public RemoveStackService removeStackService(AwsClientFactory awsClientFactory,
                                                  ProfileFacade profileFacade,
                                                  ConsolePrinter consolePrinter,
-                                                 AwsAccountFacade awsAccountFacade) {
-        return new RemoveStackService(awsClientFactory, profileFacade, consolePrinter, awsAccountFacade);
+                                                 AwsAccountFacade awsAccountFacade,
+                                                 Poller poller) {
+        return new RemoveStackService(awsClientFactory, profileFacade, consolePrinter, awsAccountFacade, poller);
 
     }
 
@@ -148,9 +159,17 @@ public class BeanFactory {
 
     @Singleton
     public ContextService contextService(AwsClientFactory awsClientFactory,
-                                         ProfileFacade profileFacade,
-                                         EnvironmentService environmentService) {
-        return new ContextService(awsClientFactory, profileFacade, environmentService);
+                                         AwsAccountFacade awsAccountFacade,
+                                         Preflight preflight) {
+        return new ContextService(awsClientFactory, awsAccountFacade, preflight);
+    }
+
+    @Singleton
+    public Preflight preflight(ProfileFacade profileFacade,
+                               AwsAccountFacade awsAccountFacade,
+                               EnvironmentService environmentService,
+                               AwsClientFactory awsClientFactory) {
+        return new Preflight(profileFacade, awsAccountFacade, environmentService, awsClientFactory);
     }
 
     @Singleton
@@ -181,9 +200,9 @@ public class BeanFactory {
     }
 
     @Singleton
-    public EnvironmentUserInput environmentUserInput(EnvironmentService environmentService,
+    public EnvironmentUserInput environmentUserInput(Preflight preflight,
                                                      UserInputReader userInputReader, GlobalConfig globalConfig) {
-        return new EnvironmentUserInput(environmentService, userInputReader, globalConfig);
+        return new EnvironmentUserInput(preflight, userInputReader, globalConfig);
     }
 
 
@@ -194,8 +213,8 @@ public class BeanFactory {
     }
 
     @Singleton
-    public DeploymentOrigin deploymentOrigin(ProfileFacade profileFacade, AwsAccountFacade awsAccountFacade){
-        return new DeploymentOrigin(profileFacade, awsAccountFacade);
+    public DeploymentOrigin deploymentOrigin(Preflight preflight){
+        return new DeploymentOrigin(preflight);
     }
 
     @Singleton
@@ -203,17 +222,34 @@ public class BeanFactory {
                                                                    EnvironmentUserInput environmentUserInput,
                                                                    ConfirmDeploymentUserInput confirmDeploymentUserInput,
                                                                    AttiniConfigFiles attiniConfigFiles,
-                                                                   DeploymentOrigin deploymentOrigin) {
+                                                                   DeploymentOrigin deploymentOrigin,
+                                                                   DistributionVersionLookup distributionVersionLookup) {
         return new RedeployDistributionService(awsClientFactory,
                                                deploymentOrigin,
                                                environmentUserInput,
                                                confirmDeploymentUserInput,
-                                               attiniConfigFiles);
+                                               attiniConfigFiles,
+                                               distributionVersionLookup);
+    }
+
+    @Singleton
+    public DistributionVersionIndex distributionVersionIndex(EnvironmentVariables environmentVariables,
+                                                             ObjectMapper objectMapper) {
+        return new DistributionVersionIndex(environmentVariables.getCacheDirectory(), objectMapper);
+    }
+
+    @Singleton
+    public DistributionVersionLookup distributionVersionLookup(AwsClientFactory awsClientFactory,
+                                                               DeploymentOrigin deploymentOrigin,
+                                                               DistributionVersionIndex distributionVersionIndex) {
+        return new DistributionVersionLookup(awsClientFactory, deploymentOrigin, distributionVersionIndex);
     }
 
     @Singleton
-    public AwsAccountFacade awsAccountFacade(AwsClientFactory awsClientFactory, GlobalConfig globalConfig) {
-        return new AwsAccountFacade(awsClientFactory, globalConfig);
+    public AwsAccountFacade awsAccountFacade(AwsClientFactory awsClientFactory,
+                                             GlobalConfig globalConfig,
+                                             EnvironmentVariables environmentVariables) {
+        return new AwsAccountFacade(awsClientFactory, globalConfig, environmentVariables);
     }
 
     @Singleton
@@ -242,7 +278,8 @@ public class BeanFactory {
                                                            DataEmitter dataEmitter,
                                                            GlobalConfig globalConfig,
                                                            ObjectMapper objectMapper,
-                                                           ConsolePrinter consolePrinter) {
+                                                           ConsolePrinter consolePrinter,
+                                                           Poller poller) {
         return new FollowDeploymentService(awsClientFactory,
                                            new DeploymentPlanStatusFacade(awsClientFactory),
                                            deploymentHistoryFacade,
@@ -251,14 +288,23 @@ public class BeanFactory {
                                            dataEmitter,
                                            globalConfig,
                                            objectMapper,
-                                           consolePrinter);
+                                           consolePrinter,
+                                           poller);
+    }
+
+    @Singleton
+    public Poller poller(EnvironmentVariables environmentVariables) {
+        return new Poller(Duration.ofMillis(environmentVariables.getPollMinIntervalMillis().orElse(1000)),
+                          Duration.ofMillis(environmentVariables.getPollMaxIntervalMillis().orElse(5000)),
+                          environmentVariables.getPollTimeoutMinutes().map(Duration::ofMinutes).orElse(null));
     }
 
     @Singleton
     public ExportLogsService exportLogsService(AwsClientFactory awsClientFactory,
+                                               AwsAccountFacade awsAccountFacade,
                                                ProfileFacade profileFacade,
                                                ConsolePrinter consolePrinter) {
-        return new ExportLogsService(awsClientFactory, profileFacade, consolePrinter);
+        return new ExportLogsService(awsClientFactory, awsAccountFacade, profileFacade, consolePrinter);
     }
 
     @Singleton
@@ -311,7 +357,8 @@ public class BeanFactory {
                                               new PrepareDistributionService(objectMapperFactory,
                                                                              environmentVariables,
                                                                              new TransformSimpleSyntax(
-                                                                                     objectMapperFactory)),
+                                                                                     objectMapperFactory),
+                                                                             dataEmitter),
                                               environmentVariables,
                                               dataEmitter,
                                               globalConfig);
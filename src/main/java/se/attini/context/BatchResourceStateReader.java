@@ -0,0 +1,118 @@
+package se.attini.context;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+/**
+ * Reads items of one resource type from the resource states table with BatchGetItem. The keys are split in batches of
+ * the maximum size and the batches are read concurrently on the given executor. Keys that DynamoDB leaves unprocessed
+ * are retried with a backoff.
+ */
+class BatchResourceStateReader {
+
+    static final String TABLE_NAME = "AttiniResourceStatesV1";
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ExecutorService executor;
+
+    BatchResourceStateReader(DynamoDbClient dynamoDbClient, ExecutorService executor) {
+        this.dynamoDbClient = requireNonNull(dynamoDbClient, "dynamoDbClient");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * @return the found items by name, names without an item are left out
+     */
+    Map<String, Map<String, AttributeValue>> getItems(String resourceType, Collection<String> names) {
+        List<String> distinctNames = new ArrayList<>(new LinkedHashSet<>(names));
+        List<Future<List<Map<String, AttributeValue>>>> futures = new ArrayList<>();
+        for (int i = 0; i < distinctNames.size(); i += MAX_BATCH_SIZE) {
+            List<String> batch = distinctNames.subList(i, Math.min(i + MAX_BATCH_SIZE, distinctNames.size()));
+            futures.add(executor.submit(() -> getBatch(resourceType, batch)));
+        }
+
+        Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+        try {
+            for (Future<List<Map<String, AttributeValue>>> future : futures) {
+                await(future).forEach(item -> items.put(item.get("name").s(), item));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return items;
+    }
+
+    private List<Map<String, AttributeValue>> getBatch(String resourceType, List<String> names) {
+        List<Map<String, AttributeValue>> keys = names.stream()
+                                                      .map(name -> Map.of("resourceType",
+                                                                          AttributeValue.builder()
+                                                                                        .s(resourceType)
+                                                                                        .build(),
+                                                                          "name",
+                                                                          AttributeValue.builder()
+                                                                                        .s(name)
+                                                                                        .build()))
+                                                      .toList();
+        Map<String, KeysAndAttributes> requestItems = Map.of(TABLE_NAME,
+                                                             KeysAndAttributes.builder().keys(keys).build());
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int attempt = 1; ; attempt++) {
+            BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                                                                                           .requestItems(requestItems)
+                                                                                           .build());
+            items.addAll(response.responses().getOrDefault(TABLE_NAME, List.of()));
+
+            requestItems = response.unprocessedKeys();
+            if (requestItems == null || requestItems.isEmpty()) {
+                return items;
+            }
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new IllegalStateException("Could not read all " + resourceType + " items, the table is throttled");
+            }
+            backoff(attempt);
+        }
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(BASE_BACKOFF_MILLIS << (attempt - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading " + TABLE_NAME, e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading " + TABLE_NAME, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to read " + TABLE_NAME, e.getCause());
+        }
+    }
+}
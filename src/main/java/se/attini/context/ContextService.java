@@ -6,141 +6,163 @@ import static java.util.stream.Collectors.toList;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import se.attini.AttiniNotInstalledException;
+import se.attini.AwsAccountFacade;
 import se.attini.InvalidCredentialsException;
+import se.attini.Preflight;
+import se.attini.Preflight.Lookup;
 import se.attini.client.AwsClientFactory;
+import se.attini.domain.CallerIdentity;
 import se.attini.domain.DistributionName;
 import se.attini.domain.Environment;
 import se.attini.domain.EnvironmentName;
-import se.attini.environment.EnvironmentService;
-import se.attini.profile.ProfileFacade;
-import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
-import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
-import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
-import software.amazon.awssdk.services.cloudformation.model.Output;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
-import software.amazon.awssdk.services.sts.StsClient;
-import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 
 public class ContextService {
 
+    private static final int BATCH_CONCURRENCY = 4;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
     private final AwsClientFactory awsClientFactory;
-    private final ProfileFacade profileFacade;
-    private final EnvironmentService environmentService;
+    private final AwsAccountFacade awsAccountFacade;
+    private final Preflight preflight;
 
     public ContextService(AwsClientFactory awsClientFactory,
-                          ProfileFacade profileFacade,
-                          EnvironmentService environmentService) {
+                          AwsAccountFacade awsAccountFacade,
+                          Preflight preflight) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
-        this.profileFacade = requireNonNull(profileFacade, "profileFacade");
-        this.environmentService = requireNonNull(environmentService, "environmentService");
+        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
+        this.preflight = requireNonNull(preflight, "preflight");
     }
 
     public Context getContext(GetContextRequest request) {
 
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
-             StsClient stsClient = awsClientFactory.stsClient()) {
+        preflight.start(Lookup.SETUP_VERSION, Lookup.REGION, Lookup.ACCOUNT, Lookup.ENVIRONMENTS);
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        ExecutorService executor = Executors.newFixedThreadPool(BATCH_CONCURRENCY, runnable -> {
+            Thread thread = new Thread(runnable, "attini-context-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
 
-            CompletableFuture<Optional<String>> attiniVersion =
-                    CompletableFuture.supplyAsync(this::getAttiniSetupVersion);
+            CompletableFuture<Set<String>> envListFuture = CompletableFuture.supplyAsync(() -> preflight.getEnvironments()
+                                                                                                        .stream()
+                                                                                                        .map(Environment::getName)
+                                                                                                        .map(EnvironmentName::getName)
+                                                                                                        .collect(Collectors.toSet()));
 
-            CompletableFuture<Set<String>> envListFuture = CompletableFuture.supplyAsync(() -> environmentService.getEnvironments()
-                                                                                                                 .stream()
 
-                                                                                                                 .map(Environment::getName)
-                                                                                                                 .map(EnvironmentName::getName)
-                                                                                                                 .collect(
-                                                                                                                         Collectors.toSet()));
+            CompletableFuture<List<EnvironmentContext>> contextFuture =
+                    CompletableFuture.supplyAsync(() -> getEnvironmentContexts(request,
+                                                                               dynamoDbClient,
+                                                                               new BatchResourceStateReader(dynamoDbClient,
+                                                                                                            executor),
+                                                                               envListFuture));
 
 
-            CompletableFuture<List<EnvironmentContext>> contextFuture =
-                    CompletableFuture.supplyAsync(() -> dynamoDbClient.query(getDistributionRequest(request.getDistributionName()
-                                                                                                           .orElse(null)))
-                                                                      .items()
-                                                                      .stream()
-                                                                      .filter(map -> map.get(
-                                                                              "environment") != null)
-                                                                      .filter(map -> request.getEnvironment()
-                                                                                            .map(environment1 -> environment1.getName()
-                                                                                                                             .equals(
-                                                                                                                                     map.get("environment")
-                                                                                                                                        .s()))
-                                                                                            .orElse(true))
-                                                                      .collect(
-                                                                              Collectors.groupingBy(
-                                                                                      map -> map.get(
-                                                                                                        "environment")
-                                                                                                .s()))
-                                                                      .entrySet()
-                                                                      .stream()
-                                                                      .map((Map.Entry<String, List<Map<String, AttributeValue>>> entry) -> createEnvironmentContext(
-                                                                              entry,
-                                                                              dynamoDbClient,
-                                                                              envListFuture))
-                                                                      .collect(toList()));
-
-
-            Optional<String> attiniSetupVersion = attiniVersion.join();
+            Optional<String> attiniSetupVersion = preflight.getAttiniSetupVersion();
             if (attiniSetupVersion.isEmpty()) {
                 throw new AttiniNotInstalledException();
             }
+            preflight.verify(Lookup.REGION, Lookup.ACCOUNT);
 
-            GetCallerIdentityResponse callerIdentity = stsClient
-                    .getCallerIdentity();
+            CallerIdentity callerIdentity = awsAccountFacade.getCallerIdentity();
 
             return Context.builder()
-                          .setAccount(callerIdentity.account())
+                          .setAccount(callerIdentity.getAccount())
                           .setAttiniVersion(attiniSetupVersion.get())
-                          .setUser(callerIdentity.arn())
-                          .setRegion(profileFacade.getRegion().getName())
+                          .setUser(callerIdentity.getArn())
+                          .setRegion(preflight.getRegion().getName())
                           .setEnvironments(contextFuture.join()).build();
         } catch (CompletionException e) {
             if (e.getCause() instanceof InvalidCredentialsException) {
                 throw (InvalidCredentialsException) e.getCause();
             }
             throw e;
+        } finally {
+            executor.shutdownNow();
         }
 
     }
 
-    private Optional<String> getAttiniSetupVersion() {
-        try (CloudFormationClient cloudFormationClient = awsClientFactory.cfnClient()) {
-            return cloudFormationClient
-                    .describeStacks(DescribeStacksRequest.builder()
-                                                         .stackName(
-                                                                 "attini-setup")
-                                                         .build())
-                    .stacks()
-                    .get(0)
-                    .outputs()
-                    .stream()
-                    .filter(output -> output.outputKey()
-                                            .equals("AttiniSetupVersion"))
-                    .map(Output::outputValue)
-                    .findAny();
-
-        } catch (CloudFormationException e) {
-            if (e.awsErrorDetails().errorCode().equals("InvalidClientTokenId")) {
-                throw new InvalidCredentialsException(e.awsErrorDetails().errorMessage(), e);
-            }
-            return Optional.empty();
-        }
+    /**
+     * Reads all distributions first, then the init stacks of all distributions in one round of batch reads and
+     * finally all deployment plans of those init stacks in another.
+     */
+    private List<EnvironmentContext> getEnvironmentContexts(GetContextRequest request,
+                                                            DynamoDbClient dynamoDbClient,
+                                                            BatchResourceStateReader batchReader,
+                                                            CompletableFuture<Set<String>> envListFuture) {
+        List<Map<String, AttributeValue>> distributions =
+                queryDistributions(dynamoDbClient, getDistributionRequest(request.getDistributionName().orElse(null)))
+                        .stream()
+                        .filter(map -> map.get("environment") != null)
+                        .filter(map -> request.getEnvironment()
+                                              .map(environment -> environment.getName()
+                                                                             .equals(map.get("environment").s()))
+                                              .orElse(true))
+                        .collect(toList());
+
+        Map<String, Map<String, AttributeValue>> initStacks =
+                batchReader.getItems("InitDeployCloudformationStack",
+                                     distributions.stream()
+                                                  .map(map -> map.get("initStackName"))
+                                                  .filter(Objects::nonNull)
+                                                  .map(AttributeValue::s)
+                                                  .collect(toList()));
+
+        Map<String, Map<String, AttributeValue>> deploymentPlans =
+                batchReader.getItems("DeploymentPlan",
+                                     initStacks.values()
+                                               .stream()
+                                               .filter(item -> item.containsKey("sfnArns"))
+                                               .flatMap(item -> item.get("sfnArns").ss().stream())
+                                               .collect(toList()));
+
+        return distributions.stream()
+                            .collect(Collectors.groupingBy(map -> map.get("environment").s()))
+                            .entrySet()
+                            .stream()
+                            .map(entry -> createEnvironmentContext(entry,
+                                                                   initStacks,
+                                                                   deploymentPlans,
+                                                                   envListFuture))
+                            .collect(toList());
     }
 
+    private static List<Map<String, AttributeValue>> queryDistributions(DynamoDbClient dynamoDbClient,
+                                                                        QueryRequest queryRequest) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        QueryRequest nextRequest = queryRequest;
+        while (nextRequest != null) {
+            QueryResponse response = dynamoDbClient.query(nextRequest);
+            items.addAll(response.items());
+            nextRequest = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                          ? nextRequest.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build()
+                          : null;
+        }
+        return items;
+    }
 
     private QueryRequest getDistributionRequest(DistributionName distributionName) {
 
@@ -151,7 +173,7 @@ public class ContextService {
                                                                        .build());
 
         QueryRequest.Builder builder = QueryRequest.builder()
-                                                   .tableName("AttiniResourceStatesV1")
+                                                   .tableName(BatchResourceStateReader.TABLE_NAME)
                                                    .keyConditionExpression("resourceType=:v_resourceType");
 
         if (distributionName != null) {
@@ -165,13 +187,13 @@ public class ContextService {
     }
 
     private EnvironmentContext createEnvironmentContext(Map.Entry<String, List<Map<String, AttributeValue>>> entry,
-                                                        DynamoDbClient dynamoDbClient,
+                                                        Map<String, Map<String, AttributeValue>> initStacks,
+                                                        Map<String, Map<String, AttributeValue>> deploymentPlans,
                                                         CompletableFuture<Set<String>> environmentListFuture) {
 
 
         List<DistributionContext> dists = entry.getValue()
                                                .stream()
-                                               .parallel()
                                                .map(map -> {
                                                    Map<String, String> distributionTags =
                                                            map.get("distributionTags") == null ? Collections.emptyMap()
@@ -188,7 +210,8 @@ public class ContextService {
                                                                                      .s(),
                                                                                   map.get("distributionId")
                                                                                      .s(),
-                                                                                  getDeploymentPlans(dynamoDbClient,
+                                                                                  getDeploymentPlans(initStacks,
+                                                                                                     deploymentPlans,
                                                                                                      map),
                                                                                   distributionTags,
                                                                                   map.get("version") != null ? map.get(
@@ -209,48 +232,31 @@ public class ContextService {
         }
     }
 
-    private List<DeploymentPlanContext> getDeploymentPlans(DynamoDbClient dynamoDbClient,
+    private List<DeploymentPlanContext> getDeploymentPlans(Map<String, Map<String, AttributeValue>> initStacks,
+                                                           Map<String, Map<String, AttributeValue>> deploymentPlans,
                                                            Map<String, AttributeValue> map) {
 
 
         if (map.get("initStackName") == null) {
             return Collections.emptyList();
         }
-        Map<String, AttributeValue> initStackItem = dynamoDbClient.getItem(GetItemRequest.builder()
-                                                                                         .tableName(
-                                                                                                 "AttiniResourceStatesV1")
-                                                                                         .key(Map.of("resourceType",
-                                                                                                     AttributeValue.builder()
-                                                                                                                   .s("InitDeployCloudformationStack")
-                                                                                                                   .build(),
-                                                                                                     "name",
-                                                                                                     map.get("initStackName")))
-                                                                                         .build()).item();
+        Map<String, AttributeValue> initStackItem = initStacks.getOrDefault(map.get("initStackName").s(),
+                                                                            Collections.emptyMap());
         if (initStackItem.containsKey("sfnArns")) {
             return initStackItem.get("sfnArns")
                                 .ss()
                                 .stream()
-                                .map(s -> createDeploymentPlanContext(dynamoDbClient, s))
+                                .map(s -> createDeploymentPlanContext(deploymentPlans.getOrDefault(s,
+                                                                                                   Collections.emptyMap()),
+                                                                      s))
                                 .collect(toList());
         }
         return Collections.emptyList();
     }
 
 
-    private DeploymentPlanContext createDeploymentPlanContext(DynamoDbClient dynamoDbClient,
+    private DeploymentPlanContext createDeploymentPlanContext(Map<String, AttributeValue> item,
                                                               String sfnArn) {
-        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
-                                                                                .tableName("AttiniResourceStatesV1")
-                                                                                .key(Map.of("resourceType",
-                                                                                            AttributeValue.builder()
-                                                                                                          .s("DeploymentPlan")
-                                                                                                          .build(),
-                                                                                            "name",
-                                                                                            AttributeValue.builder()
-                                                                                                          .s(sfnArn)
-                                                                                                          .build()))
-                                                                                .build()).item();
-
         String[] arnSplit = sfnArn.split(":");
 
         if (item.get("status") == null || item.get("startTime") == null) {
@@ -2,23 +2,39 @@ package se.attini.deployment;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Optional;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import se.attini.domain.Region;
+import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
+/**
+ * Tails the runner log object in S3. Only the bytes after the last read offset are requested, and the request is
+ * conditional on the ETag of the last read so an unchanged log costs a 304 response without a body. A trailing line
+ * that is not yet complete is kept and prepended to the next read.
+ */
 public class AttiniRunnerLogger implements StepLogger {
 
+    private static final int NOT_MODIFIED = 304;
+    private static final int RANGE_NOT_SATISFIABLE = 416;
+    private static final byte NEW_LINE = '\n';
+
     private final S3Client s3Client;
     private final ObjectMapper objectMapper;
 
@@ -26,7 +42,11 @@ public class AttiniRunnerLogger implements StepLogger {
 
     private final String bucket;
 
-    private int printedLines = 0;
+    private long offset = 0;
+
+    private String eTag;
+
+    private byte[] remainder = new byte[0];
 
     public AttiniRunnerLogger(S3Client s3Client,
                               StepLoggerFactory.GetLoggerRequest getLoggerRequest,
@@ -42,32 +62,91 @@ public class AttiniRunnerLogger implements StepLogger {
     @Override
     public List<Line> lines() {
         try {
-            String[] split = new String(s3Client.getObject(GetObjectRequest.builder()
-                                                                           .key(key)
-                                                                           .bucket(bucket)
-                                                                           .build(),
-                                                           ResponseTransformer.toBytes())
-                                                .asByteArray())
-                    .split("\n");
-            List<Line> lines = Stream.of(split)
-                                     .skip(printedLines)
-                                     .map(s -> {
-                                         try {
-                                             return objectMapper.readTree(s);
-                                         } catch (JsonProcessingException e) {
-                                             throw new UncheckedIOException(e);
-                                         }
-                                     })
-                                     .map(jsonNode -> new Line(Instant.ofEpochMilli(jsonNode.get("timestamp").asLong()),
-                                                               jsonNode.get("data").asText()))
-                                     .toList();
-
-            printedLines = printedLines + lines.size();
-
-            return lines;
+            ResponseBytes<GetObjectResponse> response = s3Client.getObject(createRequest(),
+                                                                           ResponseTransformer.toBytes());
+            byte[] bytes = response.asByteArray();
+            eTag = response.response().eTag();
+            offset = offset + bytes.length;
+            return toLines(bytes);
         } catch (NoSuchKeyException e) {
             return Collections.emptyList();
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_MODIFIED || e.statusCode() == RANGE_NOT_SATISFIABLE) {
+                return Collections.emptyList();
+            }
+            throw e;
+        }
+    }
+
+    private GetObjectRequest createRequest() {
+        GetObjectRequest.Builder builder = GetObjectRequest.builder()
+                                                           .key(key)
+                                                           .bucket(bucket)
+                                                           .range("bytes=" + offset + "-");
+        if (eTag != null) {
+            builder.ifNoneMatch(eTag);
+        }
+        return builder.build();
+    }
+
+    private List<Line> toLines(byte[] bytes) {
+        byte[] data = concat(remainder, bytes);
+        ArrayList<Line> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == NEW_LINE) {
+                if (i > lineStart) {
+                    lines.add(toLine(readTree(data, lineStart, i)));
+                }
+                lineStart = i + 1;
+            }
+        }
+        remainder = Arrays.copyOfRange(data, lineStart, data.length);
+
+        // the last line of a finished log is not always terminated, so emit it if it is already a complete entry
+        Optional<Line> lastLine = tryReadLine(remainder);
+        if (lastLine.isPresent()) {
+            lines.add(lastLine.get());
+            remainder = new byte[0];
+        }
+        return lines;
+    }
+
+    private Optional<Line> tryReadLine(byte[] bytes) {
+        if (bytes.length == 0) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode jsonNode = objectMapper.readTree(bytes);
+            if (jsonNode == null || !jsonNode.has("timestamp") || !jsonNode.has("data")) {
+                return Optional.empty();
+            }
+            return Optional.of(toLine(jsonNode));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private JsonNode readTree(byte[] data, int from, int to) {
+        try {
+            return objectMapper.readTree(new String(data, from, to - from, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Line toLine(JsonNode jsonNode) {
+        return new Line(Instant.ofEpochMilli(jsonNode.get("timestamp").asLong()),
+                        jsonNode.get("data").asText());
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        if (first.length == 0) {
+            return second;
         }
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
     }
 
     private String createKey(StepLoggerFactory.GetLoggerRequest getLoggerRequest, String stepName) {
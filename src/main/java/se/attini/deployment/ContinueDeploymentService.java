@@ -43,48 +43,45 @@ public class ContinueDeploymentService {
         EnvironmentName environmentName = environmentUserInput.getEnvironment(request)
                                                               .getName();
 
-        try(DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            AttributeValue sfnTokenAttribute = dynamoDbClient
-                    .getItem(GetItemRequest.builder()
-                                           .key(createKey(request.getDistributionName(),
-                                                          request.getStepName(),
-                                                          environmentName))
-                                           .tableName("AttiniResourceStatesV1")
-                                           .build())
-                    .item()
-                    .get("sfnToken");
-
-            if (sfnTokenAttribute == null){
-                throw new IllegalArgumentException("No distribution with name %s has a running deployment in the current account.".formatted(request.getDistributionName().getName()));
-            }
-            String sfnToken = sfnTokenAttribute.s();
-
-            ObjectMapper objectMapper = new ObjectMapper();
-            ObjectNode objectNode = objectMapper.createObjectNode();
-            ObjectNode node = objectNode.put("environment", environmentName.getName())
-                                        .put("distributionName", request.getDistributionName().getName())
-                                        .put("stepName", request.getStepName())
-                                        .put("abort", request.isAbort())
-                                        .put("sfnToken", sfnToken);
-
-            request.getMessage().ifPresent(message -> node.put("message", message));
-
-            try (SnsClient snsClient = awsClientFactory.snsClient()) {
-                snsClient
-                        .publish(PublishRequest.builder()
-                                               .message(node.toString())
-                                               .topicArn(getTopic())
-                                               .messageAttributes(Map.of("type",
-                                                                         MessageAttributeValue.builder()
-                                                                                              .dataType(
-                                                                                                      "String")
-                                                                                              .stringValue(
-                                                                                                      "manualApprovalEvent")
-                                                                                              .build()))
-                                               .build());
-
-            }
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        AttributeValue sfnTokenAttribute = dynamoDbClient
+                .getItem(GetItemRequest.builder()
+                                       .key(createKey(request.getDistributionName(),
+                                                      request.getStepName(),
+                                                      environmentName))
+                                       .tableName("AttiniResourceStatesV1")
+                                       .build())
+                .item()
+                .get("sfnToken");
+
+        if (sfnTokenAttribute == null){
+            throw new IllegalArgumentException("No distribution with name %s has a running deployment in the current account.".formatted(request.getDistributionName().getName()));
         }
+        String sfnToken = sfnTokenAttribute.s();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode objectNode = objectMapper.createObjectNode();
+        ObjectNode node = objectNode.put("environment", environmentName.getName())
+                                    .put("distributionName", request.getDistributionName().getName())
+                                    .put("stepName", request.getStepName())
+                                    .put("abort", request.isAbort())
+                                    .put("sfnToken", sfnToken);
+
+        request.getMessage().ifPresent(message -> node.put("message", message));
+
+        SnsClient snsClient = awsClientFactory.snsClient();
+        snsClient
+                .publish(PublishRequest.builder()
+                                       .message(node.toString())
+                                       .topicArn(getTopic())
+                                       .messageAttributes(Map.of("type",
+                                                                 MessageAttributeValue.builder()
+                                                                                      .dataType(
+                                                                                              "String")
+                                                                                      .stringValue(
+                                                                                              "manualApprovalEvent")
+                                                                                      .build()))
+                                       .build());
     }
 
     private String getTopic() {
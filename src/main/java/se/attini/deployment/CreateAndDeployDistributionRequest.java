@@ -13,6 +13,7 @@ public class CreateAndDeployDistributionRequest implements ClientWithEnvironment
     private final FilePath path;
     private final EnvironmentName environment;
     private final boolean forceDeployment;
+    private final boolean skipUnchanged;
 
     private final boolean json;
 
@@ -20,6 +21,7 @@ public class CreateAndDeployDistributionRequest implements ClientWithEnvironment
         this.path = requireNonNull(builder.path, "path");
         this.environment =builder.environment;
         this.forceDeployment =builder.forceDeployment;
+        this.skipUnchanged = builder.skipUnchanged;
         this.json =builder.json;
     }
 
@@ -40,6 +42,14 @@ public class CreateAndDeployDistributionRequest implements ClientWithEnvironment
         return forceDeployment;
     }
 
+    /**
+     * @return true if no deployment should be started when the distribution is identical to the latest one uploaded
+     * to the environment
+     */
+    public boolean skipUnchanged() {
+        return skipUnchanged;
+    }
+
     public boolean isJson() {
         return json;
     }
@@ -48,6 +58,7 @@ public class CreateAndDeployDistributionRequest implements ClientWithEnvironment
         private FilePath path;
         private EnvironmentName environment;
         private boolean forceDeployment;
+        private boolean skipUnchanged;
 
         private boolean json;
 
@@ -69,6 +80,11 @@ public class CreateAndDeployDistributionRequest implements ClientWithEnvironment
             return this;
         }
 
+        public Builder setSkipUnchanged(boolean skipUnchanged) {
+            this.skipUnchanged = skipUnchanged;
+            return this;
+        }
+
         public Builder setJson(boolean json) {
             this.json = json;
             return this;
@@ -8,11 +8,13 @@ public class DeployDistributionResponse {
     private final ObjectIdentifier objectIdentifier;
     private final Environment environment;
     private final DistributionName distributionName;
+    private final boolean deploymentSkipped;
 
     private DeployDistributionResponse(Builder builder) {
         this.objectIdentifier = builder.objectIdentifier;
         this.environment = builder.environment;
         this.distributionName = builder.distributionName;
+        this.deploymentSkipped = builder.deploymentSkipped;
     }
 
     public static Builder builder() {
@@ -32,10 +34,19 @@ public class DeployDistributionResponse {
         return distributionName;
     }
 
+    /**
+     * @return true if no deployment was started since the distribution was unchanged, there is no object identifier
+     * in that case
+     */
+    public boolean isDeploymentSkipped() {
+        return deploymentSkipped;
+    }
+
     public static class Builder {
         private ObjectIdentifier objectIdentifier;
         private Environment environment;
         private DistributionName distributionName;
+        private boolean deploymentSkipped;
 
         private Builder() {
         }
@@ -55,6 +66,11 @@ public class DeployDistributionResponse {
             return this;
         }
 
+        public Builder setDeploymentSkipped(boolean deploymentSkipped) {
+            this.deploymentSkipped = deploymentSkipped;
+            return this;
+        }
+
         public DeployDistributionResponse build() {
             return new DeployDistributionResponse(this);
         }
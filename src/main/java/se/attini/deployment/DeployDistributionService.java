@@ -4,12 +4,22 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
 import javax.net.ssl.HttpsURLConnection;
 
 import se.attini.EnvironmentVariables;
@@ -24,17 +34,20 @@ import se.attini.domain.FilePath;
 import se.attini.domain.ObjectIdentifier;
 import se.attini.domain.Region;
 import se.attini.environment.EnvironmentUserInput;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetBucketLocationRequest;
 import software.amazon.awssdk.services.s3.model.GetBucketLocationResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ObjectVersion;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 public class DeployDistributionService {
 
+    static final String SHA256_METADATA = "sha256";
+
     private final AwsClientFactory awsClientFactory;
     private final AttiniConfigFiles attiniConfigFiles;
     private final EnvironmentUserInput environmentUserInput;
@@ -77,10 +90,41 @@ public class DeployDistributionService {
                                                           BucketName bucket,
                                                           CreateAndDeployDistributionRequest deployDistributionRequest) {
 
-        byte[] bytes = getFileToUpload(path, s3Client);
-        AttiniConfigFile attiniConfigFile = attiniConfigFiles.getAttiniConfigFile(bytes);
+        FileToUpload fileToUpload = getFileToUpload(path, s3Client);
+        try {
+            return deployDistribution(fileToUpload.path(), environment, s3Client, bucket, deployDistributionRequest);
+        } finally {
+            fileToUpload.deleteIfTemporary();
+        }
+    }
+
+    private DeployDistributionResponse deployDistribution(Path file,
+                                                          Environment environment,
+                                                          S3Client s3Client,
+                                                          BucketName bucket,
+                                                          CreateAndDeployDistributionRequest deployDistributionRequest) {
+        AttiniConfigFile attiniConfigFile = attiniConfigFiles.getAttiniConfigFileFromArchive(file);
         DistributionName distributionName  = attiniConfigFile.getDistributionName();
 
+        String key = String.format("%s/%s/%s.zip",
+                                   environment.getName()
+                                              .getName(),
+                                   distributionName.getName(),
+                                   distributionName.getName());
+        String sha256 = sha256(file);
+        Optional<HeadObjectResponse> unchanged = getLatestObject(s3Client, bucket, key)
+                .filter(latest -> sha256.equals(latest.metadata().get(SHA256_METADATA)));
+
+        if (unchanged.isPresent() && deployDistributionRequest.skipUnchanged()) {
+            printMessage("Distribution is unchanged since the latest upload, skipping deployment",
+                         deployDistributionRequest.isJson());
+            return DeployDistributionResponse.builder()
+                                             .setDistributionName(distributionName)
+                                             .setEnvironment(environment)
+                                             .setDeploymentSkipped(true)
+                                             .build();
+        }
+
         LoadingIndicator loadingIndicator = new LoadingIndicator("Uploading distribution",
                                                                  environmentVariables.isDisableAnsiColor());
 
@@ -98,30 +142,32 @@ public class DeployDistributionService {
                 loadingIndicator.startSpinner();
             }
 
-            String key = String.format("%s/%s/%s.zip",
-                                       environment.getName()
-                                                  .getName(),
-                                       distributionName.getName(),
-                                       distributionName.getName());
-            PutObjectRequest request = PutObjectRequest.builder()
-                                                       .bucket(bucket.getName())
-                                                       .key(key)
-                                                       .build();
-            PutObjectResponse response = s3Client.putObject(request,
-                                          RequestBody.fromBytes(bytes));
+            DistributionUploader uploader = new DistributionUploader(s3Client,
+                                                                     environmentVariables.getUploadPartSizeMb()
+                                                                                         .orElse(DistributionUploader.DEFAULT_PART_SIZE_MB),
+                                                                     environmentVariables.getUploadConcurrency()
+                                                                                         .orElse(DistributionUploader.DEFAULT_CONCURRENCY));
+            // the latest upload is identical, copying it on to itself starts a new deployment without uploading it again
+            String versionId = unchanged.isPresent()
+                               ? uploader.copy(bucket, key, ObjectVersion.builder()
+                                                                         .key(key)
+                                                                         .versionId(unchanged.get().versionId())
+                                                                         .size(unchanged.get().contentLength())
+                                                                         .build())
+                               : uploader.upload(bucket, key, file, Map.of(SHA256_METADATA, sha256));
+            String message = unchanged.isPresent()
+                             ? "Distribution is unchanged since the latest upload, deploying it again"
+                             : "Uploaded distribution";
 
-            if (deployDistributionRequest.isJson()) {
-                System.out.println("{\"timestamp\":" + Instant.now().toEpochMilli() +
-                                   ",\"type\":\"string\",\"data\":\"Uploaded distribution\"}");
-            } else {
+            if (!deployDistributionRequest.isJson()) {
                 loadingIndicator.stopSpinner();
-                System.out.println("Uploaded distribution");
             }
+            printMessage(message, deployDistributionRequest.isJson());
 
             return DeployDistributionResponse.builder()
                                              .setDistributionName(distributionName)
                                              .setEnvironment(environment)
-                                             .setObjectIdentifier(ObjectIdentifier.create(key + "#" + response.versionId()))
+                                             .setObjectIdentifier(ObjectIdentifier.create(key + "#" + versionId))
                                              .build();
         } catch (Exception e) {
             loadingIndicator.stopSpinner();
@@ -131,15 +177,56 @@ public class DeployDistributionService {
 
     }
 
-    private byte[] getFileToUpload(FilePath filePath, S3Client s3Client) {
+    private static Optional<HeadObjectResponse> getLatestObject(S3Client s3Client, BucketName bucket, String key) {
+        try {
+            return Optional.of(s3Client.headObject(HeadObjectRequest.builder()
+                                                                    .bucket(bucket.getName())
+                                                                    .key(key)
+                                                                    .build()));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404 || e.statusCode() == 403) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private static void printMessage(String message, boolean json) {
+        if (json) {
+            System.out.println("{\"timestamp\":" + Instant.now().toEpochMilli() +
+                               ",\"type\":\"string\",\"data\":\"" + message + "\"}");
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    private static String sha256(Path file) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read file " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private FileToUpload getFileToUpload(FilePath filePath, S3Client s3Client) {
         switch (filePath.getSourceType()) {
             case HTTPS -> {
+                Path tempFile = createTempFile();
                 try {
                     HttpsURLConnection connection = (HttpsURLConnection) new URL(filePath.getPath()).openConnection();
                     connection.setRequestMethod("GET");
-                    InputStream in = connection.getInputStream();
-                    return in.readAllBytes();
+                    try (InputStream in = connection.getInputStream()) {
+                        Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return new FileToUpload(tempFile, true);
                 } catch (IOException e) {
+                    deleteFile(tempFile);
                     throw new UncheckedIOException("Could not get file from url " + filePath.getPath(), e);
                 }
             }
@@ -148,24 +235,56 @@ public class DeployDistributionService {
                 GetBucketLocationResponse bucketLocation = s3Client.getBucketLocation(GetBucketLocationRequest.builder()
                                                                                                               .bucket(uri.getHost())
                                                                                                               .build());
-                try (S3Client newClient = awsClientFactory.s3Client(Region.create(bucketLocation.locationConstraintAsString()))) {
-                    return newClient.getObject(GetObjectRequest.builder()
-                                                               .bucket(uri.getHost())
-                                                               .key(uri.getPath().substring(1))
-                                                               .build(),
-                                               ResponseTransformer.toBytes()).asByteArray();
-
+                S3Client newClient = awsClientFactory.s3Client(Region.create(bucketLocation.locationConstraintAsString()));
+                Path tempFile = createTempFile();
+                try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                    newClient.getObject(GetObjectRequest.builder()
+                                                        .bucket(uri.getHost())
+                                                        .key(uri.getPath().substring(1))
+                                                        .build(),
+                                        ResponseTransformer.toOutputStream(outputStream));
+                    return new FileToUpload(tempFile, true);
+                } catch (IOException e) {
+                    deleteFile(tempFile);
+                    throw new UncheckedIOException("Could not get file from " + filePath.getPath(), e);
+                } catch (RuntimeException e) {
+                    deleteFile(tempFile);
+                    throw e;
                 }
             }
             default -> {
-                try {
-                    return Files.readAllBytes(Paths.get(filePath.getPath()));
-                } catch (IOException e) {
-                    throw new UncheckedIOException("Could not get zip file from path " + filePath.getPath(), e);
+                Path path = Paths.get(filePath.getPath());
+                if (!Files.isRegularFile(path)) {
+                    throw new UncheckedIOException("Could not get zip file from path " + filePath.getPath(),
+                                                   new NoSuchFileException(filePath.getPath()));
                 }
+                return new FileToUpload(path, false);
             }
         }
     }
 
+    private static Path createTempFile() {
+        try {
+            return Files.createTempFile("attini-distribution", ".zip");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create temp file", e);
+        }
+    }
+
+    private static void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete file " + path, e);
+        }
+    }
+
+    private record FileToUpload(Path path, boolean temporary) {
 
+        void deleteIfTemporary() {
+            if (temporary) {
+                deleteFile(path);
+            }
+        }
+    }
 }
@@ -2,24 +2,22 @@ package se.attini.deployment;
 
 import static java.util.Objects.requireNonNull;
 
-import se.attini.AwsAccountFacade;
+import se.attini.Preflight;
+import se.attini.Preflight.Lookup;
 import se.attini.domain.BucketName;
-import se.attini.profile.ProfileFacade;
 
 
 public class DeploymentOrigin {
-    private final ProfileFacade profileFacade;
-    private final AwsAccountFacade awsAccountFacade;
+    private final Preflight preflight;
 
-    public DeploymentOrigin(ProfileFacade profileFacade,
-                            AwsAccountFacade awsAccountFacade) {
-        this.profileFacade = requireNonNull(profileFacade, "profileFacade");
-        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
+    public DeploymentOrigin(Preflight preflight) {
+        this.preflight = requireNonNull(preflight, "preflight");
     }
 
     public BucketName getDeploymentOriginBucketName() {
-        return BucketName.create("attini-deployment-origin-%s-%s".formatted(profileFacade.getRegion().getName(),
-                                                                            awsAccountFacade.getAccount()));
+        preflight.verify(Lookup.REGION, Lookup.ACCOUNT);
+        return BucketName.create("attini-deployment-origin-%s-%s".formatted(preflight.getRegion().getName(),
+                                                                            preflight.getAccount()));
 
     }
 }
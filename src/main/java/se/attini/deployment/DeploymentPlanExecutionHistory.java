@@ -0,0 +1,214 @@
+package se.attini.deployment;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.attini.domain.DeploymentPlanStatus;
+import se.attini.domain.DeploymentPlanStepStatus;
+import se.attini.domain.ExecutionArn;
+import se.attini.domain.StepStatus;
+import software.amazon.awssdk.services.sfn.SfnClient;
+import software.amazon.awssdk.services.sfn.model.DescribeExecutionRequest;
+import software.amazon.awssdk.services.sfn.model.DescribeExecutionResponse;
+import software.amazon.awssdk.services.sfn.model.ExecutionFailedEventDetails;
+import software.amazon.awssdk.services.sfn.model.ExecutionStatus;
+import software.amazon.awssdk.services.sfn.model.GetExecutionHistoryRequest;
+import software.amazon.awssdk.services.sfn.model.GetExecutionHistoryResponse;
+import software.amazon.awssdk.services.sfn.model.HistoryEvent;
+import software.amazon.awssdk.services.sfn.model.StateExitedEventDetails;
+
+/**
+ * Incrementally maintained status of one deployment plan execution.
+ *
+ * <p>Every poll reads the execution history newest first and stops as soon as it reaches an event that has already
+ * been folded into the status, so the cost of a poll is proportional to the number of new events. The execution
+ * status and start/stop time are derived from the execution events, so no DescribeExecution call is needed.
+ */
+class DeploymentPlanExecutionHistory {
+
+    private static final int MAX_RESULTS = 1000;
+
+    private final ExecutionArn executionArn;
+    private final String deploymentPlanName;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, EventLink> eventLinks = new HashMap<>();
+    private final Set<DeploymentPlanStepStatus> completedSteps = new LinkedHashSet<>();
+    private final Set<DeploymentPlanStepStatus> failedSteps = new LinkedHashSet<>();
+    private final Set<DeploymentPlanStepStatus> startedSteps = new LinkedHashSet<>();
+
+    private long lastEventId = 0;
+    private String status = ExecutionStatus.RUNNING.name();
+    private Instant startTime;
+    private Instant endTime;
+
+    DeploymentPlanExecutionHistory(ExecutionArn executionArn, String deploymentPlanName, ObjectMapper objectMapper) {
+        this.executionArn = requireNonNull(executionArn, "executionArn");
+        this.deploymentPlanName = requireNonNull(deploymentPlanName, "deploymentPlanName");
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+    }
+
+    synchronized DeploymentPlanStatus update(SfnClient sfnClient) {
+        if (!isTerminated()) {
+            getNewEvents(sfnClient).forEach(this::fold);
+        }
+
+        if (startTime == null) {
+            // the ExecutionStarted event is always the first event, this is only a fallback for an empty history
+            DescribeExecutionResponse response = sfnClient.describeExecution(DescribeExecutionRequest.builder()
+                                                                                                     .executionArn(
+                                                                                                             executionArn.getValue())
+                                                                                                     .build());
+            startTime = response.startDate();
+        }
+
+        List<DeploymentPlanStepStatus> completed = new ArrayList<>(completedSteps);
+        completed.addAll(failedSteps);
+
+        return DeploymentPlanStatus.create(completed,
+                                           new ArrayList<>(startedSteps),
+                                           status,
+                                           deploymentPlanName,
+                                           startTime,
+                                           endTime);
+    }
+
+    private boolean isTerminated() {
+        return !ExecutionStatus.RUNNING.name().equals(status);
+    }
+
+    private List<HistoryEvent> getNewEvents(SfnClient sfnClient) {
+        ArrayList<HistoryEvent> newEvents = new ArrayList<>();
+        String nextToken = null;
+        do {
+            GetExecutionHistoryResponse response =
+                    sfnClient.getExecutionHistory(GetExecutionHistoryRequest.builder()
+                                                                            .executionArn(executionArn.getValue())
+                                                                            .reverseOrder(true)
+                                                                            .maxResults(MAX_RESULTS)
+                                                                            .nextToken(nextToken)
+                                                                            .build());
+            for (HistoryEvent event : response.events()) {
+                if (event.id() <= lastEventId) {
+                    return reverse(newEvents);
+                }
+                newEvents.add(event);
+            }
+            nextToken = response.nextToken();
+        } while (nextToken != null);
+
+        return reverse(newEvents);
+    }
+
+    private static List<HistoryEvent> reverse(ArrayList<HistoryEvent> events) {
+        ArrayList<HistoryEvent> reversed = new ArrayList<>(events.size());
+        for (int i = events.size() - 1; i >= 0; i--) {
+            reversed.add(events.get(i));
+        }
+        return reversed;
+    }
+
+    private void fold(HistoryEvent event) {
+        lastEventId = Math.max(lastEventId, event.id());
+        String enteredStateName = event.stateEnteredEventDetails() != null ? event.stateEnteredEventDetails()
+                                                                                  .name() : null;
+        eventLinks.put(event.id(), new EventLink(event.previousEventId(), enteredStateName));
+
+        if (enteredStateName != null) {
+            startedSteps.add(new DeploymentPlanStepStatus(enteredStateName,
+                                                          StepStatus.STARTED,
+                                                          getTimestamp(event)));
+        }
+
+        if (event.stateExitedEventDetails() != null) {
+            completedSteps.add(toCompletedStep(event));
+        }
+
+        if (event.executionFailedEventDetails() != null) {
+            failedSteps.add(findFailedTask(event));
+        }
+
+        switch (event.type()) {
+            case EXECUTION_STARTED -> startTime = event.timestamp();
+            case EXECUTION_SUCCEEDED -> terminate(ExecutionStatus.SUCCEEDED, event);
+            case EXECUTION_FAILED -> terminate(ExecutionStatus.FAILED, event);
+            case EXECUTION_ABORTED -> terminate(ExecutionStatus.ABORTED, event);
+            case EXECUTION_TIMED_OUT -> terminate(ExecutionStatus.TIMED_OUT, event);
+            default -> {
+            }
+        }
+    }
+
+    private void terminate(ExecutionStatus executionStatus, HistoryEvent event) {
+        status = executionStatus.name();
+        endTime = event.timestamp();
+    }
+
+    private DeploymentPlanStepStatus findFailedTask(HistoryEvent failedEvent) {
+        ExecutionFailedEventDetails details = failedEvent.executionFailedEventDetails();
+        String message = String.format("%sError: %s%sCause: %s",
+                                       System.lineSeparator(),
+                                       details.error(),
+                                       System.lineSeparator(),
+                                       details.cause());
+        if (failedEvent.previousEventId().equals(0L)) {
+            return new DeploymentPlanStepStatus("Deployment plan",
+                                                StepStatus.RUNTIME_ERROR,
+                                                message,
+                                                getTimestamp(failedEvent));
+        }
+
+        EventLink currentEvent = getEventWithId(failedEvent.previousEventId());
+        while (currentEvent.enteredStateName() == null) {
+            currentEvent = getEventWithId(currentEvent.previousEventId());
+        }
+
+        return new DeploymentPlanStepStatus(currentEvent.enteredStateName(),
+                                            StepStatus.FAILED,
+                                            message,
+                                            getTimestamp(failedEvent));
+    }
+
+    private EventLink getEventWithId(Long eventId) {
+        EventLink eventLink = eventLinks.get(eventId);
+        if (eventLink == null) {
+            throw new IllegalStateException("Could not find step function event with id =" + eventId);
+        }
+        return eventLink;
+    }
+
+    private DeploymentPlanStepStatus toCompletedStep(HistoryEvent event) {
+        return new DeploymentPlanStepStatus(event.stateExitedEventDetails().name(),
+                                            StepStatus.SUCCESS,
+                                            getOutput(event.stateExitedEventDetails()),
+                                            getTimestamp(event));
+    }
+
+    private String getOutput(StateExitedEventDetails stateExitedEventDetails) {
+        try {
+            return objectMapper.readTree(stateExitedEventDetails.output())
+                               .path("output")
+                               .path(stateExitedEventDetails.name())
+                               .toString();
+        } catch (JsonProcessingException e) {
+            return "";
+        }
+    }
+
+    private static Instant getTimestamp(HistoryEvent event) {
+        return event.timestamp().plusNanos(event.id());
+    }
+
+    private record EventLink(Long previousEventId, String enteredStateName) {
+    }
+}
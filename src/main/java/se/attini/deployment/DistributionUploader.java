@@ -0,0 +1,339 @@
+package se.attini.deployment;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import se.attini.domain.BucketName;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.ObjectVersion;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.Tag;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * Uploads a file to S3. Files larger than the part size are uploaded with a multipart upload where the parts are
+ * streamed from disk and uploaded concurrently. Each part request is retried on its own by the retry policy of the S3
+ * client, if a part still fails the multipart upload is aborted.
+ * <p>
+ * Existing object versions are copied server side, objects larger than what a single CopyObject request supports are
+ * copied with a multipart copy.
+ */
+class DistributionUploader {
+
+    static final int DEFAULT_PART_SIZE_MB = 16;
+    static final int DEFAULT_CONCURRENCY = 8;
+
+    private static final long MB = 1024 * 1024;
+    private static final long MIN_PART_SIZE = 5 * MB;
+    private static final long MAX_COPY_OBJECT_SIZE = 5 * 1024 * MB;
+    private static final long COPY_PART_SIZE = 512 * MB;
+    private static final int MAX_PARTS = 10_000;
+    private static final String CONTENT_TYPE = "application/zip";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final S3Client s3Client;
+    private final long partSize;
+    private final int concurrency;
+
+    DistributionUploader(S3Client s3Client, int partSizeMb, int concurrency) {
+        this.s3Client = requireNonNull(s3Client, "s3Client");
+        if (partSizeMb < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("Upload part size and concurrency must be positive numbers");
+        }
+        this.partSize = Math.max(MIN_PART_SIZE, partSizeMb * MB);
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return the version id of the uploaded object
+     */
+    String upload(BucketName bucket, String key, Path file) {
+        return upload(bucket, key, file, Map.of());
+    }
+
+    /**
+     * @param metadata user metadata to store with the object
+     * @return the version id of the uploaded object
+     */
+    String upload(BucketName bucket, String key, Path file, Map<String, String> metadata) {
+        long size = size(file);
+        if (size <= partSize) {
+            return s3Client.putObject(PutObjectRequest.builder()
+                                                      .bucket(bucket.getName())
+                                                      .key(key)
+                                                      .contentType(CONTENT_TYPE)
+                                                      .metadata(metadata)
+                                                      .build(),
+                                      RequestBody.fromFile(file))
+                           .versionId();
+        }
+        CreateMultipartUploadRequest request = CreateMultipartUploadRequest.builder()
+                                                                           .bucket(bucket.getName())
+                                                                           .key(key)
+                                                                           .contentType(CONTENT_TYPE)
+                                                                           .metadata(metadata)
+                                                                           .build();
+        return multipartUpload(request,
+                               size,
+                               partSize,
+                               (uploadId, part) -> uploadPart(bucket, key, uploadId, file, part));
+    }
+
+    /**
+     * Copies a version of an object on to the given key without downloading it. The user metadata of the version is
+     * brought along, also when the version is the latest version of the key, which S3 does not allow to be copied
+     * onto itself unless the metadata is replaced.
+     *
+     * @return the version id of the new object
+     */
+    String copy(BucketName bucket, String key, ObjectVersion source) {
+        HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                                                                       .bucket(bucket.getName())
+                                                                       .key(source.key())
+                                                                       .versionId(source.versionId())
+                                                                       .build());
+        if (source.size() <= MAX_COPY_OBJECT_SIZE) {
+            return s3Client.copyObject(CopyObjectRequest.builder()
+                                                        .sourceBucket(bucket.getName())
+                                                        .sourceKey(source.key())
+                                                        .sourceVersionId(source.versionId())
+                                                        .destinationBucket(bucket.getName())
+                                                        .destinationKey(key)
+                                                        .metadataDirective(MetadataDirective.REPLACE)
+                                                        .metadata(head.metadata())
+                                                        .contentType(head.contentType())
+                                                        .build())
+                           .versionId();
+        }
+
+        // a multipart copy does not bring the tags along like CopyObject does
+        List<Tag> tags = s3Client.getObjectTagging(GetObjectTaggingRequest.builder()
+                                                                          .bucket(bucket.getName())
+                                                                          .key(source.key())
+                                                                          .versionId(source.versionId())
+                                                                          .build())
+                                 .tagSet();
+        CreateMultipartUploadRequest request = CreateMultipartUploadRequest.builder()
+                                                                           .bucket(bucket.getName())
+                                                                           .key(key)
+                                                                           .contentType(head.contentType())
+                                                                           .metadata(head.metadata())
+                                                                           .tagging(toTaggingHeader(tags))
+                                                                           .build();
+        return multipartUpload(request,
+                               source.size(),
+                               COPY_PART_SIZE,
+                               (uploadId, part) -> copyPart(bucket, key, uploadId, source, part));
+    }
+
+    private String multipartUpload(CreateMultipartUploadRequest request,
+                                   long size,
+                                   long minPartSize,
+                                   PartUploader partUploader) {
+        long actualPartSize = Math.max(minPartSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        int numberOfParts = (int) ((size + actualPartSize - 1) / actualPartSize);
+
+        String uploadId = s3Client.createMultipartUpload(request).uploadId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, numberOfParts), runnable -> {
+            Thread thread = new Thread(runnable, "attini-upload-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<CompletedPart>> futures = new ArrayList<>(numberOfParts);
+            for (int i = 0; i < numberOfParts; i++) {
+                long offset = i * actualPartSize;
+                Part part = new Part(i + 1, offset, Math.min(actualPartSize, size - offset));
+                futures.add(executor.submit(() -> partUploader.upload(uploadId, part)));
+            }
+            List<CompletedPart> parts = new ArrayList<>(numberOfParts);
+            for (Future<CompletedPart> future : futures) {
+                parts.add(await(future));
+            }
+            return s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                                                                                  .bucket(request.bucket())
+                                                                                  .key(request.key())
+                                                                                  .uploadId(uploadId)
+                                                                                  .multipartUpload(
+                                                                                          CompletedMultipartUpload.builder()
+                                                                                                                  .parts(parts)
+                                                                                                                  .build())
+                                                                                  .build())
+                           .versionId();
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            abort(request, uploadId, e);
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private CompletedPart uploadPart(BucketName bucket, String key, String uploadId, Path file, Part part) {
+        UploadPartRequest request = UploadPartRequest.builder()
+                                                     .bucket(bucket.getName())
+                                                     .key(key)
+                                                     .uploadId(uploadId)
+                                                     .partNumber(part.number())
+                                                     .contentLength(part.length())
+                                                     .build();
+        try (PartStreamProvider streamProvider = new PartStreamProvider(file, part.offset(), part.length())) {
+            String eTag = s3Client.uploadPart(request,
+                                              RequestBody.fromContentProvider(streamProvider,
+                                                                              part.length(),
+                                                                              CONTENT_TYPE))
+                                  .eTag();
+            return CompletedPart.builder()
+                                .partNumber(part.number())
+                                .eTag(eTag)
+                                .build();
+        }
+    }
+
+    private CompletedPart copyPart(BucketName bucket, String key, String uploadId, ObjectVersion source, Part part) {
+        String eTag = s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
+                                                                   .sourceBucket(bucket.getName())
+                                                                   .sourceKey(source.key())
+                                                                   .sourceVersionId(source.versionId())
+                                                                   .copySourceRange("bytes=" + part.offset() + "-" + (part.offset() + part.length() - 1))
+                                                                   .destinationBucket(bucket.getName())
+                                                                   .destinationKey(key)
+                                                                   .uploadId(uploadId)
+                                                                   .partNumber(part.number())
+                                                                   .build())
+                              .copyPartResult()
+                              .eTag();
+        return CompletedPart.builder()
+                            .partNumber(part.number())
+                            .eTag(eTag)
+                            .build();
+    }
+
+    private static String toTaggingHeader(List<Tag> tags) {
+        return tags.stream()
+                   .map(tag -> urlEncode(tag.key()) + "=" + urlEncode(tag.value()))
+                   .collect(Collectors.joining("&"));
+    }
+
+    private static String urlEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private void abort(CreateMultipartUploadRequest request, String uploadId, RuntimeException cause) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                                                                     .bucket(request.bucket())
+                                                                     .key(request.key())
+                                                                     .uploadId(uploadId)
+                                                                     .build());
+        } catch (SdkException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static CompletedPart await(Future<CompletedPart> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading distribution", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to upload distribution", e.getCause());
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read file " + file, e);
+        }
+    }
+
+    private record Part(int number, long offset, long length) {
+    }
+
+    private interface PartUploader {
+        CompletedPart upload(String uploadId, Part part);
+    }
+
+    /**
+     * Opens a new stream over the part every time the SDK asks for one, so that a retried request reads the part
+     * from disk again. The previous stream is closed when a new one is opened.
+     */
+    private static class PartStreamProvider implements ContentStreamProvider, AutoCloseable {
+        private final Path file;
+        private final long offset;
+        private final long length;
+        private InputStream current;
+
+        private PartStreamProvider(Path file, long offset, long length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream newStream() {
+            try {
+                close();
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ).position(offset);
+                current = new BoundedInputStream(Channels.newInputStream(channel), length);
+                return current;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read file " + file, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not close file " + file, e);
+                }
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package se.attini.deployment;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import se.attini.domain.BucketName;
+import se.attini.domain.DistributionId;
+import se.attini.domain.DistributionName;
+import se.attini.domain.Environment;
+import software.amazon.awssdk.services.s3.model.ObjectVersion;
+
+/**
+ * A local index of which object version in the deployment origin bucket that contains a given distribution. There is
+ * one file per bucket and environment. The index is only a hint, entries should be validated against S3 before they
+ * are used, and failing to read or write it is never an error.
+ */
+public class DistributionVersionIndex {
+
+    private static final String INDEX_DIRECTORY = "distribution-versions";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    public DistributionVersionIndex(Path cacheDirectory, ObjectMapper objectMapper) {
+        this.directory = requireNonNull(cacheDirectory, "cacheDirectory").resolve(INDEX_DIRECTORY);
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+    }
+
+    public Optional<ObjectVersion> get(BucketName bucketName,
+                                       Environment environment,
+                                       DistributionName distributionName,
+                                       DistributionId distributionId) {
+        JsonNode entry = read(bucketName, environment).path(entryKey(distributionName, distributionId));
+        if (!entry.hasNonNull("key") || !entry.hasNonNull("versionId")) {
+            return Optional.empty();
+        }
+        return Optional.of(ObjectVersion.builder()
+                                        .key(entry.get("key").asText())
+                                        .versionId(entry.get("versionId").asText())
+                                        .size(entry.path("size").asLong())
+                                        .build());
+    }
+
+    public void put(BucketName bucketName,
+                    Environment environment,
+                    DistributionName distributionName,
+                    Map<DistributionId, ObjectVersion> versions) {
+        if (versions.isEmpty()) {
+            return;
+        }
+        ObjectNode index = read(bucketName, environment);
+        versions.forEach((distributionId, version) -> index.putObject(entryKey(distributionName, distributionId))
+                                                           .put("key", version.key())
+                                                           .put("versionId", version.versionId())
+                                                           .put("size", version.size()));
+        try {
+            Path file = indexFile(bucketName, environment);
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), index);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the index is only an optimization
+        }
+    }
+
+    private ObjectNode read(BucketName bucketName, Environment environment) {
+        Path file = indexFile(bucketName, environment);
+        if (Files.isRegularFile(file)) {
+            try {
+                JsonNode jsonNode = objectMapper.readTree(file.toFile());
+                if (jsonNode instanceof ObjectNode objectNode) {
+                    return objectNode;
+                }
+            } catch (IOException e) {
+                // a corrupt index is replaced on the next write
+            }
+        }
+        return objectMapper.createObjectNode();
+    }
+
+    private Path indexFile(BucketName bucketName, Environment environment) {
+        return directory.resolve(bucketName.getName()).resolve(environment.getName().getName() + ".json");
+    }
+
+    private static String entryKey(DistributionName distributionName, DistributionId distributionId) {
+        return distributionName.getName() + "/" + distributionId.getId();
+    }
+}
@@ -0,0 +1,195 @@
+package se.attini.deployment;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.attini.client.AwsClientFactory;
+import se.attini.domain.BucketName;
+import se.attini.domain.DistributionId;
+import se.attini.domain.DistributionName;
+import se.attini.domain.Environment;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectVersion;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Finds the object version in the deployment origin bucket that contains a given distribution.
+ * <p>
+ * A previously found version is taken from the local index and validated with a single tagging call. Otherwise the
+ * versions are listed page by page, newest first, and their tags are fetched concurrently. The search stops as soon
+ * as a match is found and every version whose tags were fetched is added to the index.
+ */
+public class DistributionVersionLookup {
+
+    private static final String ATTINI_DISTRIBUTION_ID_TAG = "distributionId";
+    private static final int CONCURRENCY = 8;
+    private static final int NOT_FOUND = 404;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final AwsClientFactory awsClientFactory;
+    private final DeploymentOrigin deploymentOrigin;
+    private final DistributionVersionIndex distributionVersionIndex;
+
+    public DistributionVersionLookup(AwsClientFactory awsClientFactory,
+                                     DeploymentOrigin deploymentOrigin,
+                                     DistributionVersionIndex distributionVersionIndex) {
+        this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
+        this.deploymentOrigin = requireNonNull(deploymentOrigin, "deploymentOrigin");
+        this.distributionVersionIndex = requireNonNull(distributionVersionIndex, "distributionVersionIndex");
+    }
+
+    public Optional<ObjectVersion> findObjectVersion(Environment environment,
+                                                     DistributionName distributionName,
+                                                     DistributionId distributionId) {
+        S3Client s3Client = awsClientFactory.s3Client();
+        BucketName bucketName = deploymentOrigin.getDeploymentOriginBucketName();
+
+        Optional<ObjectVersion> indexed = distributionVersionIndex.get(bucketName,
+                                                                       environment,
+                                                                       distributionName,
+                                                                       distributionId);
+        if (indexed.isPresent() && isIndexedVersionValid(s3Client, bucketName, indexed.get(), distributionId)) {
+            return indexed;
+        }
+
+        Map<DistributionId, ObjectVersion> found = new HashMap<>();
+        try {
+            return search(s3Client, bucketName, createKeyPrefix(environment, distributionName), distributionId, found);
+        } finally {
+            distributionVersionIndex.put(bucketName, environment, distributionName, found);
+        }
+    }
+
+    private Optional<ObjectVersion> search(S3Client s3Client,
+                                           BucketName bucketName,
+                                           String prefix,
+                                           DistributionId distributionId,
+                                           Map<DistributionId, ObjectVersion> found) {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY, runnable -> {
+            Thread thread = new Thread(runnable, "attini-version-lookup-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ListObjectVersionsRequest request = ListObjectVersionsRequest.builder()
+                                                                         .bucket(bucketName.getName())
+                                                                         .prefix(prefix)
+                                                                         .build();
+            while (true) {
+                ListObjectVersionsResponse response = s3Client.listObjectVersions(request);
+                List<ObjectVersion> versions = response.versions()
+                                                       .stream()
+                                                       .filter(objectVersion -> objectVersion.key().contains(".zip"))
+                                                       .toList();
+
+                Optional<ObjectVersion> match = findInPage(s3Client, bucketName, versions, distributionId, executor, found);
+                if (match.isPresent() || !Boolean.TRUE.equals(response.isTruncated())) {
+                    return match;
+                }
+                request = request.toBuilder()
+                                 .keyMarker(response.nextKeyMarker())
+                                 .versionIdMarker(response.nextVersionIdMarker())
+                                 .build();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Optional<ObjectVersion> findInPage(S3Client s3Client,
+                                               BucketName bucketName,
+                                               List<ObjectVersion> versions,
+                                               DistributionId distributionId,
+                                               ExecutorService executor,
+                                               Map<DistributionId, ObjectVersion> found) {
+        CompletionService<TaggedVersion> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<TaggedVersion>> futures = new ArrayList<>(versions.size());
+        for (ObjectVersion version : versions) {
+            futures.add(completionService.submit(() -> new TaggedVersion(version,
+                                                                         getDistributionId(s3Client,
+                                                                                           bucketName,
+                                                                                           version))));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                TaggedVersion taggedVersion = await(completionService.take());
+                taggedVersion.distributionId()
+                             .ifPresent(id -> found.putIfAbsent(id, taggedVersion.version()));
+                if (taggedVersion.distributionId().filter(distributionId::equals).isPresent()) {
+                    return Optional.of(taggedVersion.version());
+                }
+            }
+            return Optional.empty();
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static boolean isIndexedVersionValid(S3Client s3Client,
+                                                 BucketName bucketName,
+                                                 ObjectVersion version,
+                                                 DistributionId distributionId) {
+        try {
+            return getDistributionId(s3Client, bucketName, version).filter(distributionId::equals).isPresent();
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static Optional<DistributionId> getDistributionId(S3Client s3Client,
+                                                              BucketName bucketName,
+                                                              ObjectVersion version) {
+        return s3Client.getObjectTagging(GetObjectTaggingRequest.builder()
+                                                                .bucket(bucketName.getName())
+                                                                .key(version.key())
+                                                                .versionId(version.versionId())
+                                                                .build())
+                       .tagSet()
+                       .stream()
+                       .filter(tag -> tag.key().equals(ATTINI_DISTRIBUTION_ID_TAG))
+                       .findAny()
+                       .map(tag -> DistributionId.create(tag.value()));
+    }
+
+    private static TaggedVersion await(Future<TaggedVersion> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking up distribution", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to look up distribution", e.getCause());
+        }
+    }
+
+    private static String createKeyPrefix(Environment environment, DistributionName distributionName) {
+        return environment.getName().getName() + "/" + distributionName.getName();
+    }
+
+    private record TaggedVersion(ObjectVersion version, Optional<DistributionId> distributionId) {
+    }
+}
@@ -11,10 +11,12 @@ import static software.amazon.awssdk.services.cloudformation.model.StackStatus.U
 import static software.amazon.awssdk.services.cloudformation.model.StackStatus.UPDATE_ROLLBACK_COMPLETE;
 import static software.amazon.awssdk.services.cloudformation.model.StackStatus.UPDATE_ROLLBACK_FAILED;
 
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -39,6 +41,7 @@ import se.attini.domain.Region;
 import se.attini.domain.StackName;
 import se.attini.domain.StepStatus;
 import se.attini.profile.ProfileFacade;
+import se.attini.util.Poller;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
@@ -53,6 +56,7 @@ import software.amazon.awssdk.services.sfn.model.ExecutionStatus;
 
 public class FollowDeploymentService {
 
+    private static final Duration DEPLOY_DATA_TIMEOUT = Duration.ofMinutes(15);
 
     private final AwsClientFactory awsClientFactory;
     private final DeploymentPlanStatusFacade deploymentPlanStatusFacade;
@@ -63,6 +67,7 @@ public class FollowDeploymentService {
     private final GlobalConfig globalConfig;
     private final ObjectMapper objectMapper;
     private final ConsolePrinter consolePrinter;
+    private final Poller poller;
 
     public FollowDeploymentService(AwsClientFactory awsClientFactory,
                                    DeploymentPlanStatusFacade deploymentPlanStatusFacade,
@@ -71,7 +76,9 @@ public class FollowDeploymentService {
                                    ProfileFacade profileFacade,
                                    DataEmitter dataEmitter,
                                    GlobalConfig globalConfig,
-                                   ObjectMapper objectMapper, ConsolePrinter consolePrinter) {
+                                   ObjectMapper objectMapper,
+                                   ConsolePrinter consolePrinter,
+                                   Poller poller) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
         this.deploymentPlanStatusFacade = requireNonNull(deploymentPlanStatusFacade, "deploymentPlanStatusFacade");
         this.deploymentHistoryFacade = requireNonNull(deploymentHistoryFacade, "deploymentHistoryFacade");
@@ -81,6 +88,7 @@ public class FollowDeploymentService {
         this.globalConfig = requireNonNull(globalConfig, "globalConfig");
         this.objectMapper = requireNonNull(objectMapper, "objectMapper");
         this.consolePrinter = requireNonNull(consolePrinter, "consolePrinter");
+        this.poller = requireNonNull(poller, "poller");
     }
 
     public void followDeployment(FollowDeploymentRequest request) {
@@ -151,50 +159,51 @@ public class FollowDeploymentService {
                                                   DataEmitter emitter,
                                                   GetDeploymentRequest getDeploymentRequest) {
 
-        try(DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
-            CloudFormationClient cloudFormationClient = awsClientFactory.cfnClient()) {
-            EnumSet<StackStatus> completedStatuses = EnumSet.of(ROLLBACK_COMPLETE,
-                                                                CREATE_COMPLETE,
-                                                                UPDATE_ROLLBACK_COMPLETE,
-                                                                UPDATE_COMPLETE,
-                                                                UPDATE_ROLLBACK_FAILED,
-                                                                ROLLBACK_FAILED);
-
-            waitFor(3000);
-            //TODO above wait is a temp workaround that is not very good.
-            //Things like throttling could cause the template to take considerably longer.
-            //In order to handle this the deploy origin lambda will need to report the status
-            //of the template deployment so that the CLI can react to it.
-            StackStatus stackStatus = getStackStatusWithRetry(stackName, cloudFormationClient);
-            boolean sameLine = false;
-
-            Set<String> errors = new HashSet<>();
-            while (!completedStatuses.contains(stackStatus)) {
-                waitFor(2000);
-                stackStatus = getStackStatus(stackName, cloudFormationClient, emitter);
-                emitter.emitKeyValueSameLine("StackStatus", stackStatus.name(), getColorForStatus(stackStatus));
-                sameLine = true;
-                printInitErrors(errors, getDeploymentRequest, emitter);
-            }
-            if (sameLine) {
-                emitter.emitNewLine();
-            }
-            switch (stackStatus) {
-                case CREATE_COMPLETE -> emitter.emitString("Init stack created successfully");
-                case UPDATE_COMPLETE -> emitter.emitString("Init stack updated successfully");
-                default -> {
-                    waitFor(1000); //wait for 1 second to make sure step guard has time to save error
-                    if (errors.isEmpty()) {
-                        Deployment deployment = deploymentHistoryFacade.getDeployment(getDeploymentRequest);
-                        //Using an old version of the framework
-                        throw new IllegalStateException("Stack " + stackName.getName() + " failed, ended with status: " + stackStatus
-                                .name() + ", error = " + deployment.getDeploymentError()
-                                                                   .map(DeploymentError::getErrorMessage)
-                                                                   .orElseGet(() -> getInitStackError(dynamoDbClient,
-                                                                                                      stackName)));
-                    } else {
-                        throw new IllegalStateException("Deployment failed");
-                    }
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        CloudFormationClient cloudFormationClient = awsClientFactory.cfnClient();
+        EnumSet<StackStatus> completedStatuses = EnumSet.of(ROLLBACK_COMPLETE,
+                                                            CREATE_COMPLETE,
+                                                            UPDATE_ROLLBACK_COMPLETE,
+                                                            UPDATE_COMPLETE,
+                                                            UPDATE_ROLLBACK_FAILED,
+                                                            ROLLBACK_FAILED);
+
+        waitFor(3000);
+        //TODO above wait is a temp workaround that is not very good.
+        //Things like throttling could cause the template to take considerably longer.
+        //In order to handle this the deploy origin lambda will need to report the status
+        //of the template deployment so that the CLI can react to it.
+        StackStatus stackStatus = getStackStatusWithRetry(stackName, cloudFormationClient);
+        boolean sameLine = false;
+
+        Set<String> errors = new HashSet<>();
+        Poller.Session session = poller.start("deploying the init stack");
+        while (!completedStatuses.contains(stackStatus)) {
+            session.sleep();
+            stackStatus = getStackStatus(stackName, cloudFormationClient, emitter);
+            emitter.emitKeyValueSameLine("StackStatus", stackStatus.name(), getColorForStatus(stackStatus));
+            sameLine = true;
+            printInitErrors(errors, getDeploymentRequest, emitter);
+            session.observe(List.of(stackStatus, errors.size()));
+        }
+        if (sameLine) {
+            emitter.emitNewLine();
+        }
+        switch (stackStatus) {
+            case CREATE_COMPLETE -> emitter.emitString("Init stack created successfully");
+            case UPDATE_COMPLETE -> emitter.emitString("Init stack updated successfully");
+            default -> {
+                waitFor(1000); //wait for 1 second to make sure step guard has time to save error
+                if (errors.isEmpty()) {
+                    Deployment deployment = deploymentHistoryFacade.getDeployment(getDeploymentRequest);
+                    //Using an old version of the framework
+                    throw new IllegalStateException("Stack " + stackName.getName() + " failed, ended with status: " + stackStatus
+                            .name() + ", error = " + deployment.getDeploymentError()
+                                                               .map(DeploymentError::getErrorMessage)
+                                                               .orElseGet(() -> getInitStackError(dynamoDbClient,
+                                                                                                  stackName)));
+                } else {
+                    throw new IllegalStateException("Deployment failed");
                 }
             }
         }
@@ -320,15 +329,18 @@ public class FollowDeploymentService {
 
         statusPrinter.printHeader();
         Deployment deployment = deploymentHistoryFacade.getDeployment(request);
+        Poller.Session session = poller.start("running the deployment plan");
         while (ExecutionStatus.RUNNING.name().equals(deploymentPlanStatus.getDeploymentPlanStatus())) {
-            waitFor(1000);
+            session.sleep();
             deploymentPlanStatus = getDeploymentPlansStatus(executionArn);
             deployment = deploymentHistoryFacade.getDeployment(request);
             stackErrorPrinter.printStackError(deployment);
             statusPrinter.print(deploymentPlanStatus,
                                 executionArn,
                                 deployment);
-
+            session.observe(List.of(deploymentPlanStatus.getStartedSteps(),
+                                    deploymentPlanStatus.getCompletedSteps(),
+                                    deploymentPlanStatus.getDeploymentPlanStatus()));
         }
 
         waitFor(1000);
@@ -402,24 +414,25 @@ public class FollowDeploymentService {
 
 
     private void waitForDeployData(GetDeploymentRequest getDeploymentRequest) {
-        while (getDeployment(getDeploymentRequest).isEmpty()) {
-            waitFor(1000);
-        }
+        poller.withTimeout(DEPLOY_DATA_TIMEOUT)
+              .pollUntil("waiting for the distribution to be published",
+                         () -> getDeployment(getDeploymentRequest),
+                         Optional::isPresent);
     }
 
     private void waitForStepGuardUpdates(GetDeploymentRequest getDeploymentRequest) {
-        while (getDeployment(getDeploymentRequest).flatMap(Deployment::getDeploymentPlanCount).isEmpty()) {
-            waitFor(1000);
-        }
+        poller.withTimeout(DEPLOY_DATA_TIMEOUT)
+              .pollUntil("waiting for the deployment plans to be registered",
+                         () -> getDeployment(getDeploymentRequest).flatMap(Deployment::getDeploymentPlanCount),
+                         Optional::isPresent);
     }
 
     private ExecutionArn waitForExecutionArns(GetDeploymentRequest getDeploymentRequest) {
-        Deployment deployment = deploymentHistoryFacade.getDeployment(getDeploymentRequest);
-        while (deployment.getExecutionArn().isEmpty()) {
-            waitFor(1000);
-            deployment = deploymentHistoryFacade.getDeployment(getDeploymentRequest);
-        }
-        return deployment.getExecutionArn().get();
+        return poller.withTimeout(DEPLOY_DATA_TIMEOUT)
+                     .pollUntil("waiting for the deployment plan to start",
+                                () -> deploymentHistoryFacade.getDeployment(getDeploymentRequest).getExecutionArn(),
+                                Optional::isPresent)
+                     .get();
     }
 
     private static Map<String, AttributeValue> initStackStateKey(StackName stackName) {
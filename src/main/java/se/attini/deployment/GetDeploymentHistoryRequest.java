@@ -1,5 +1,6 @@
 package se.attini.deployment;
 
+import java.time.Instant;
 import java.util.Optional;
 
 import se.attini.ClientWithEnvironmentRequest;
@@ -10,10 +11,16 @@ public class GetDeploymentHistoryRequest implements ClientWithEnvironmentRequest
 
     private final DistributionName distributionName;
     private final EnvironmentName environment;
+    private final Integer limit;
+    private final Instant since;
+    private final Instant before;
 
     private GetDeploymentHistoryRequest(Builder builder) {
         this.distributionName = builder.distributionName;
         this.environment = builder.environment;
+        this.limit = builder.limit;
+        this.since = builder.since;
+        this.before = builder.before;
     }
 
     public static Builder builder() {
@@ -29,9 +36,24 @@ public class GetDeploymentHistoryRequest implements ClientWithEnvironmentRequest
         return Optional.ofNullable(environment);
     }
 
+    public Optional<Integer> getLimit() {
+        return Optional.ofNullable(limit);
+    }
+
+    public Optional<Instant> getSince() {
+        return Optional.ofNullable(since);
+    }
+
+    public Optional<Instant> getBefore() {
+        return Optional.ofNullable(before);
+    }
+
     public static class Builder {
         private DistributionName distributionName;
         private EnvironmentName environment;
+        private Integer limit;
+        private Instant since;
+        private Instant before;
 
         private Builder() {
         }
@@ -46,6 +68,21 @@ public class GetDeploymentHistoryRequest implements ClientWithEnvironmentRequest
             return this;
         }
 
+        public Builder setLimit(Integer limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder setSince(Instant since) {
+            this.since = since;
+            return this;
+        }
+
+        public Builder setBefore(Instant before) {
+            this.before = before;
+            return this;
+        }
+
         public GetDeploymentHistoryRequest build() {
             return new GetDeploymentHistoryRequest(this);
         }
@@ -1,35 +1,24 @@
 package se.attini.deployment.file;
 
-import static se.attini.deployment.file.ignore.FilePatterns.patternMatchPath;
-
-import java.io.File;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.List;
+import java.util.function.Consumer;
 
 import se.attini.deployment.DistributionValidationException;
 import se.attini.deployment.file.ignore.FilePatterns;
+import se.attini.deployment.file.ignore.IgnoreMatcher;
 
 public class FileUtil {
 
-    public static void validateDirectory(Path path, List<String> ignores) {
-
-        File dir = path.toFile();
-        File[] files = dir.listFiles();
-
-        if (files != null && files.length > 0) {
-            List<File> filesList = Arrays.stream(files)
-                                         .filter(file -> !patternMatchPath(ignores, file.toPath())).toList();
-
-            for (File file : filesList) {
-                if (patternMatchPath(FilePatterns.ILLEGAL_PATTERNS, file.toPath())) {
-                    throw new DistributionValidationException("Could not deploy distribution. File " + file.getName() + " contains illegal characters");
-                }
-                if (file.isDirectory()) {
-                    FileUtil.validateDirectory(file.toPath(), ignores);
-                }
+    /**
+     * @return a check that fails for files with names that are not allowed in a distribution, meant to run while
+     * the distribution is zipped instead of walking the directory separately
+     */
+    public static Consumer<Path> fileNameValidator() {
+        IgnoreMatcher illegalPatterns = IgnoreMatcher.compile(FilePatterns.ILLEGAL_PATTERNS);
+        return path -> {
+            if (illegalPatterns.matches(path)) {
+                throw new DistributionValidationException("Could not deploy distribution. File " + path.getFileName() + " contains illegal characters");
             }
-        }
-
+        };
     }
 }
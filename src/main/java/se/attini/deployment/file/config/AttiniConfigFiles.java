@@ -1,9 +1,11 @@
 package se.attini.deployment.file.config;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -18,6 +20,7 @@ import java.util.zip.ZipInputStream;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import se.attini.deployment.zip.RangedZipReader;
 import se.attini.domain.DistributionId;
 import se.attini.domain.DistributionName;
 
@@ -157,8 +160,41 @@ public class AttiniConfigFiles {
         }
     }
 
+    /**
+     * Will return an instance of AttiniConfigFile if present in the zip archive on the provided path. The archive is
+     * streamed from disk and only read until the attini-config file is found.
+     *
+     * @param zip path to a zipped distribution
+     * @return AttiniConfigFile
+     */
+    public AttiniConfigFile getAttiniConfigFileFromArchive(Path zip) {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(zip))) {
+            return getAttiniConfigFile(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Will return an instance of AttiniConfigFile if present in the zip archive read by the provided reader. Only the
+     * central directory and the attini-config entry are read from the archive.
+     *
+     * @param zipReader a reader for a zipped distribution
+     * @return AttiniConfigFile
+     */
+    public AttiniConfigFile getAttiniConfigFile(RangedZipReader zipReader) {
+        return zipReader.readEntry(ATTINI_CONFIG_FILES::contains)
+                        .map(AttiniConfigFile::create)
+                        .orElseThrow(() -> new AttiniConfigFileException(
+                                "No attini-config file is present in zip archive"));
+    }
+
     private AttiniConfigFile getAttiniConfigFileFromBytes(byte[] file) throws IOException {
-        try (ZipInputStream zi = new ZipInputStream(new ByteArrayInputStream(file))) {
+        return getAttiniConfigFile(new ByteArrayInputStream(file));
+    }
+
+    private AttiniConfigFile getAttiniConfigFile(InputStream inputStream) throws IOException {
+        try (ZipInputStream zi = new ZipInputStream(inputStream)) {
             ZipEntry zipEntry;
             while ((zipEntry = zi.getNextEntry()) != null) {
                 if (ATTINI_CONFIG_FILES.contains(zipEntry.getName())) {
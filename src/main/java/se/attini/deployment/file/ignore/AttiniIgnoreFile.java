@@ -13,7 +13,7 @@ import java.util.stream.Stream;
 public class AttiniIgnoreFile {
 
     private final File file;
-
+    private List<String> lines;
 
     private AttiniIgnoreFile(File file) {
         this.file = file;
@@ -38,13 +38,30 @@ public class AttiniIgnoreFile {
         if (file == null) {
             return FilePatterns.DEFAULT_IGNORES;
         }
-        try (Stream<String> lines = Files.lines(file.toPath())) {
-            return lines.map(s -> path + getFileName(s))
-                        .collect(toList());
+        return readLines().stream()
+                          .map(s -> path + getFileName(s))
+                          .collect(toList());
+    }
+
+    /**
+     * Will return the ignores for the provided path compiled in to a matcher
+     *
+     * @param path to a directory where the ignores should be applied
+     * @return a matcher for the paths that will be ignored
+     */
+    public IgnoreMatcher getIgnoreMatcher(Path path) {
+        return IgnoreMatcher.compile(getIgnores(path));
+    }
 
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    private List<String> readLines() {
+        if (lines == null) {
+            try (Stream<String> stream = Files.lines(file.toPath())) {
+                lines = stream.toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
+        return lines;
     }
 
     private String getFileName(String fileName) {
@@ -1,7 +1,5 @@
 package se.attini.deployment.file.ignore;
 
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -26,13 +24,11 @@ public class FilePatterns {
                                                                 "**/.vscode/**",
                                                                 "**/.vscode");
 
+    /**
+     * Compiles the patterns for a single match. Use {@link IgnoreMatcher} when matching many paths.
+     */
     public static boolean patternMatchPath(List<String> patterns, Path path) {
-        FileSystem fileSystem = FileSystems.getDefault();
-        long count = patterns.stream()
-                             .map(s -> fileSystem.getPathMatcher("glob:" + s))
-                             .filter(pathMatcher -> pathMatcher.matches(path))
-                             .count();
-        return count > 0;
+        return IgnoreMatcher.compile(patterns).matches(path);
     }
 
 
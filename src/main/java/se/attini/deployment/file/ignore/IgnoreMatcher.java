@@ -0,0 +1,211 @@
+package se.attini.deployment.file.ignore;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A set of glob patterns compiled once so that they can be matched against a large number of paths. The patterns
+ * follow the same syntax and semantics as {@link java.nio.file.FileSystem#getPathMatcher(String)} with the "glob"
+ * syntax.
+ * <p>
+ * Patterns ending with "/**" also match every path below a directory that matches the rest of the pattern, so
+ * {@link #isSubtreeIgnored(Path)} can be used to skip such directories without listing their content.
+ * <p>
+ * The compiled matchers are reused between queries, so an instance should not be shared between threads.
+ */
+public final class IgnoreMatcher {
+
+    private static final String REGEX_META_CHARS = ".^$+{[]|()";
+    private static final String GLOB_META_CHARS = "\\*?[{";
+    private static final char EOL = 0;
+    private static final boolean IS_DOS = File.separatorChar == '\\';
+    private static final int FLAGS = IS_DOS ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+
+    private final Matcher[] matchers;
+    private final Matcher[] subtreeMatchers;
+
+    private IgnoreMatcher(Matcher[] matchers, Matcher[] subtreeMatchers) {
+        this.matchers = matchers;
+        this.subtreeMatchers = subtreeMatchers;
+    }
+
+    public static IgnoreMatcher compile(List<String> patterns) {
+        List<Matcher> matchers = new ArrayList<>(patterns.size());
+        List<Matcher> subtreeMatchers = new ArrayList<>();
+        for (String pattern : patterns) {
+            matchers.add(toMatcher(pattern));
+            if (pattern.endsWith("/**") && !pattern.endsWith("\\/**")) {
+                subtreeMatchers.add(toMatcher(pattern.substring(0, pattern.length() - 3)));
+            }
+        }
+        return new IgnoreMatcher(matchers.toArray(Matcher[]::new), subtreeMatchers.toArray(Matcher[]::new));
+    }
+
+    public static IgnoreMatcher none() {
+        return new IgnoreMatcher(new Matcher[0], new Matcher[0]);
+    }
+
+    /**
+     * @return true if the path matches any of the patterns
+     */
+    public boolean matches(Path path) {
+        return matchesAny(matchers, path.toString());
+    }
+
+    /**
+     * @return true if every path below the given directory matches one of the patterns, meaning that the content of
+     * the directory does not need to be visited
+     */
+    public boolean isSubtreeIgnored(Path directory) {
+        return matchesAny(subtreeMatchers, directory.toString());
+    }
+
+    private static boolean matchesAny(Matcher[] matchers, String path) {
+        for (Matcher matcher : matchers) {
+            if (matcher.reset(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Matcher toMatcher(String glob) {
+        return Pattern.compile(toRegex(glob), FLAGS).matcher("");
+    }
+
+    /**
+     * Translates a glob to a regex the same way the default file system does.
+     */
+    private static String toRegex(String glob) {
+        boolean inGroup = false;
+        StringBuilder regex = new StringBuilder("^");
+
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i++);
+            switch (c) {
+                case '\\' -> {
+                    if (i == glob.length()) {
+                        throw new PatternSyntaxException("No character to escape", glob, i - 1);
+                    }
+                    char next = glob.charAt(i);
+                    if (isGlobMeta(next) || isRegexMeta(next)) {
+                        regex.append('\\');
+                    }
+                    regex.append(next);
+                    i++;
+                }
+                case '/' -> regex.append(IS_DOS ? "\\\\" : "/");
+                case '[' -> i = appendCharacterClass(glob, i, regex);
+                case '{' -> {
+                    if (inGroup) {
+                        throw new PatternSyntaxException("Cannot nest groups", glob, i - 1);
+                    }
+                    regex.append("(?:(?:");
+                    inGroup = true;
+                }
+                case '}' -> {
+                    if (inGroup) {
+                        regex.append("))");
+                        inGroup = false;
+                    } else {
+                        regex.append('}');
+                    }
+                }
+                case ',' -> regex.append(inGroup ? ")|(?:" : ",");
+                case '*' -> {
+                    if (next(glob, i) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append(IS_DOS ? "[^\\\\]*" : "[^/]*");
+                    }
+                }
+                case '?' -> regex.append(IS_DOS ? "[^\\\\]" : "[^/]");
+                default -> {
+                    if (isRegexMeta(c)) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                }
+            }
+        }
+        if (inGroup) {
+            throw new PatternSyntaxException("Missing '}", glob, i - 1);
+        }
+        return regex.append('$').toString();
+    }
+
+    private static int appendCharacterClass(String glob, int start, StringBuilder regex) {
+        int i = start;
+        regex.append(IS_DOS ? "[[^\\\\]&&[" : "[[^/]&&[");
+        if (next(glob, i) == '^') {
+            regex.append("\\^");
+            i++;
+        } else {
+            if (next(glob, i) == '!') {
+                regex.append('^');
+                i++;
+            }
+            if (next(glob, i) == '-') {
+                regex.append('-');
+                i++;
+            }
+        }
+        boolean hasRangeStart = false;
+        char last = 0;
+        char c = 0;
+        while (i < glob.length()) {
+            c = glob.charAt(i++);
+            if (c == ']') {
+                break;
+            }
+            if (c == '/' || (IS_DOS && c == '\\')) {
+                throw new PatternSyntaxException("Explicit 'name separator' in class", glob, i - 1);
+            }
+            if (c == '\\' || c == '[' || c == '&' && next(glob, i) == '&') {
+                regex.append('\\');
+            }
+            regex.append(c);
+
+            if (c == '-') {
+                if (!hasRangeStart) {
+                    throw new PatternSyntaxException("Invalid range", glob, i - 1);
+                }
+                if ((c = next(glob, i++)) == EOL || c == ']') {
+                    break;
+                }
+                if (c < last) {
+                    throw new PatternSyntaxException("Invalid range", glob, i - 3);
+                }
+                regex.append(c);
+                hasRangeStart = false;
+            } else {
+                hasRangeStart = true;
+                last = c;
+            }
+        }
+        if (c != ']') {
+            throw new PatternSyntaxException("Missing ']", glob, i - 1);
+        }
+        regex.append("]]");
+        return i;
+    }
+
+    private static char next(String glob, int i) {
+        return i < glob.length() ? glob.charAt(i) : EOL;
+    }
+
+    private static boolean isRegexMeta(char c) {
+        return REGEX_META_CHARS.indexOf(c) != -1;
+    }
+
+    private static boolean isGlobMeta(char c) {
+        return GLOB_META_CHARS.indexOf(c) != -1;
+    }
+}
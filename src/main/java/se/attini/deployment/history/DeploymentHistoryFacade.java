@@ -5,9 +5,16 @@ import static java.util.Objects.requireNonNull;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import se.attini.client.AwsClientFactory;
 import se.attini.deployment.GetDeploymentHistoryRequest;
@@ -64,6 +71,16 @@ public class DeploymentHistoryFacade {
     public static final String VERSION = "version";
 
 
+    private static final List<String> HISTORY_FIELDS = List.of(DISTRIBUTION_NAME_FIELD,
+                                                               DISTRIBUTION_ID_FIELD,
+                                                               ENVIRONMENT_FIELD,
+                                                               DEPLOY_TIME_FIELD,
+                                                               ERROR_CODE_FIELD,
+                                                               ERROR_MESSAGE_FIELD,
+                                                               DEPLOYMENT_PLAN_STATUS,
+                                                               DISTRIBUTION_TAGS,
+                                                               VERSION);
+
     private final AwsClientFactory awsClientFactory;
     private final EnvironmentUserInput environmentUserInput;
 
@@ -73,93 +90,114 @@ public class DeploymentHistoryFacade {
         this.environmentUserInput = requireNonNull(environmentUserInput, "environmentUserInput");
     }
 
-    public List<Deployment> getDeploymentHistory(GetDeploymentHistoryRequest request) {
-        return listDeploymentHistory(request.getDistributionName(), environmentUserInput.getEnvironment(request));
+    /**
+     * Lists deployments newest first. Pages are queried lazily as the stream is consumed, so only as many items as
+     * are actually used, or the limit of the request, are read from the table. Only the fields that are shown in a
+     * deployment listing are read.
+     */
+    public Stream<Deployment> getDeploymentHistory(GetDeploymentHistoryRequest request) {
+        return listDeploymentHistory(request, environmentUserInput.getEnvironment(request));
     }
 
 
     public Deployment getDeployment(GetDeploymentRequest request) {
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            QueryRequest queryRequest = QueryRequest.builder()
-                                                    .indexName("objectIdentifier")
-                                                    .tableName(TABLE_NAME)
-                                                    .keyConditionExpression(
-                                                            "objectIdentifier=:v_objectIdentifier and deploymentName=:v_deployName")
-                                                    .expressionAttributeValues(Map.of(":v_objectIdentifier",
-                                                                                      AttributeValue.builder()
-                                                                                                    .s(request.getObjectIdentifier()
-                                                                                                              .getValue())
-                                                                                                    .build(),
-                                                                                      ":v_deployName",
-                                                                                      AttributeValue.builder()
-                                                                                                    .s(getDeploymentName(
-                                                                                                            request.getDistributionName(),
-                                                                                                            request.getEnvironment()))
-                                                                                                    .build()))
-                                                    .build();
-
-            return dynamoDbClient.query(queryRequest)
-                                 .items()
-                                 .stream()
-                                 .filter(valueMap -> !valueMap.get("deploymentTime").n().equals("0"))
-                                 .map(DeploymentHistoryFacade::toDeployment)
-                                 .findAny()
-                                 .orElseThrow(NoDistributionFoundException::new);
-        }
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        QueryRequest queryRequest = QueryRequest.builder()
+                                                .indexName("objectIdentifier")
+                                                .tableName(TABLE_NAME)
+                                                .keyConditionExpression(
+                                                        "objectIdentifier=:v_objectIdentifier and deploymentName=:v_deployName")
+                                                .expressionAttributeValues(Map.of(":v_objectIdentifier",
+                                                                                  AttributeValue.builder()
+                                                                                                .s(request.getObjectIdentifier()
+                                                                                                          .getValue())
+                                                                                                .build(),
+                                                                                  ":v_deployName",
+                                                                                  AttributeValue.builder()
+                                                                                                .s(getDeploymentName(
+                                                                                                        request.getDistributionName(),
+                                                                                                        request.getEnvironment()))
+                                                                                                .build()))
+                                                .build();
+
+        return dynamoDbClient.query(queryRequest)
+                             .items()
+                             .stream()
+                             .filter(valueMap -> !valueMap.get("deploymentTime").n().equals("0"))
+                             .map(DeploymentHistoryFacade::toDeployment)
+                             .findAny()
+                             .orElseThrow(NoDistributionFoundException::new);
 
     }
 
     public Deployment getLatestDeployment(DistributionName distributionName,
                                           Environment environment) {
-        try (DynamoDbClient client = awsClientFactory.dynamoClient()) {
-            Map<String, AttributeValue> item = client
-                    .getItem(GetItemRequest.builder()
-                                           .tableName(TABLE_NAME)
-                                           .key(Map.of("deploymentName",
-                                                       AttributeValue.builder()
-                                                                     .s(getDeploymentName(
-                                                                             distributionName,
-                                                                             environment))
-                                                                     .build(),
-                                                       "deploymentTime",
-                                                       AttributeValue.builder()
-                                                                     .n("0")
-                                                                     .build()))
-                                           .build()).item();
-            return toDeployment(item);
-        }
+        DynamoDbClient client = awsClientFactory.dynamoClient();
+        Map<String, AttributeValue> item = client
+                .getItem(GetItemRequest.builder()
+                                       .tableName(TABLE_NAME)
+                                       .key(Map.of("deploymentName",
+                                                   AttributeValue.builder()
+                                                                 .s(getDeploymentName(
+                                                                         distributionName,
+                                                                         environment))
+                                                                 .build(),
+                                                   "deploymentTime",
+                                                   AttributeValue.builder()
+                                                                 .n("0")
+                                                                 .build()))
+                                       .build()).item();
+        return toDeployment(item);
     }
 
 
-    private List<Deployment> listDeploymentHistory(DistributionName distributionName,
-                                                   Environment environment) {
-
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            HashMap<String, String> nameMap = new HashMap<>();
-            nameMap.put("#name", PARTITION_KEY_NAME);
-
-            HashMap<String, AttributeValue> valueMap = new HashMap<>();
-
-            AttributeValue attributeValue = AttributeValue.builder()
-                                                          .s(getDeploymentName(distributionName, environment))
-                                                          .build();
-            valueMap.put(":value", attributeValue);
-
-            QueryRequest queryRequest = QueryRequest.builder()
-                                                    .tableName(TABLE_NAME)
-                                                    .keyConditionExpression("#name = :value")
-                                                    .expressionAttributeNames(nameMap)
-                                                    .expressionAttributeValues(valueMap)
-                                                    .build();
-            QueryResponse response = dynamoDbClient.query(queryRequest);
+    private Stream<Deployment> listDeploymentHistory(GetDeploymentHistoryRequest request,
+                                                     Environment environment) {
+        if (request.getLimit().filter(limit -> limit < 1).isPresent()) {
+            throw new IllegalArgumentException("The number of deployments to list must be a positive number");
+        }
 
+        Map<String, String> nameMap = new HashMap<>();
+        nameMap.put("#name", PARTITION_KEY_NAME);
+        nameMap.put("#time", DEPLOY_TIME_FIELD);
+        for (int i = 0; i < HISTORY_FIELDS.size(); i++) {
+            nameMap.put("#f" + i, HISTORY_FIELDS.get(i));
+        }
 
-            return response.items()
-                           .stream()
-                           .filter(map -> !map.get("deploymentTime").n().equals("0"))
-                           .map(DeploymentHistoryFacade::toDeployment)
-                           .collect(Collectors.toList());
+        // the item with deployment time 0 points to the latest deployment and is not part of the history
+        long from = request.getSince().map(Instant::toEpochMilli).map(since -> Math.max(since, 1)).orElse(1L);
+        long to = request.getBefore().map(before -> before.toEpochMilli() - 1).orElse(Long.MAX_VALUE);
+        if (from > to) {
+            return Stream.empty();
         }
+
+        Map<String, AttributeValue> valueMap = new HashMap<>();
+        valueMap.put(":value", AttributeValue.builder()
+                                             .s(getDeploymentName(request.getDistributionName(), environment))
+                                             .build());
+        valueMap.put(":from", AttributeValue.builder().n(String.valueOf(from)).build());
+        valueMap.put(":to", AttributeValue.builder().n(String.valueOf(to)).build());
+
+        QueryRequest queryRequest = QueryRequest.builder()
+                                                .tableName(TABLE_NAME)
+                                                .keyConditionExpression("#name = :value and #time between :from and :to")
+                                                .projectionExpression(IntStream.range(0, HISTORY_FIELDS.size())
+                                                                               .mapToObj(i -> "#f" + i)
+                                                                               .collect(Collectors.joining(",")))
+                                                .expressionAttributeNames(nameMap)
+                                                .expressionAttributeValues(valueMap)
+                                                .scanIndexForward(false)
+                                                .limit(request.getLimit().orElse(null))
+                                                .build();
+
+        Stream<Deployment> deployments = StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                                                                      new QueryPages(awsClientFactory.dynamoClient(), queryRequest),
+                                                                      Spliterator.ORDERED | Spliterator.NONNULL),
+                                                              false)
+                                                      .flatMap(response -> response.items().stream())
+                                                      .map(DeploymentHistoryFacade::toDeployment);
+
+        return request.getLimit().map(deployments::limit).orElse(deployments);
     }
 
     private String getDeploymentName(DistributionName distributionName, Environment environment) {
@@ -283,4 +321,33 @@ public class DeploymentHistoryFacade {
         return builder.build();
     }
 
+    /**
+     * Iterates over the pages of a query, the next page is not requested until the previous one has been consumed.
+     */
+    private static class QueryPages implements Iterator<QueryResponse> {
+        private final DynamoDbClient dynamoDbClient;
+        private QueryRequest nextRequest;
+
+        private QueryPages(DynamoDbClient dynamoDbClient, QueryRequest firstRequest) {
+            this.dynamoDbClient = dynamoDbClient;
+            this.nextRequest = firstRequest;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextRequest != null;
+        }
+
+        @Override
+        public QueryResponse next() {
+            if (nextRequest == null) {
+                throw new NoSuchElementException();
+            }
+            QueryResponse response = dynamoDbClient.query(nextRequest);
+            nextRequest = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                          ? nextRequest.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build()
+                          : null;
+            return response;
+        }
+    }
 }
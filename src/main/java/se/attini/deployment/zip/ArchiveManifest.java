@@ -0,0 +1,152 @@
+package se.attini.deployment.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Describes where the compressed data of each file in an archive is located, together with the size, last modified
+ * time, CRC and SHA-256 of the file it was created from. Used to copy the data of unchanged files from the previous
+ * archive instead of compressing them again.
+ */
+public final class ArchiveManifest {
+
+    private static final String ARCHIVE_SIZE = "archive.size";
+    private static final String ARCHIVE_LAST_MODIFIED = "archive.lastModified";
+    private static final String ARCHIVE_POLICY = "archive.policy";
+    private static final String ENTRY = "entry.";
+
+    // files modified this close to when the archive was written may have changed without a new last modified time
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    private final Map<String, Entry> entries;
+    private final String policy;
+    private final long writtenAt;
+
+    /**
+     * @param policy the fingerprint of the compression policy the archive was written with
+     */
+    ArchiveManifest(Map<String, Entry> entries, String policy) {
+        this(entries, policy, Long.MAX_VALUE);
+    }
+
+    private ArchiveManifest(Map<String, Entry> entries, String policy, long writtenAt) {
+        this.entries = requireNonNull(entries, "entries");
+        this.policy = requireNonNull(policy, "policy");
+        this.writtenAt = writtenAt;
+    }
+
+    /**
+     * @return the manifest of the archive, or empty if there is none or if the archive has changed since the manifest
+     * was written
+     */
+    public static Optional<ArchiveManifest> read(Path manifestFile, Path archive) {
+        if (!Files.isRegularFile(manifestFile) || !Files.isRegularFile(archive)) {
+            return Optional.empty();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            long lastModified = Files.getLastModifiedTime(archive).toMillis();
+            if (!String.valueOf(Files.size(archive)).equals(properties.getProperty(ARCHIVE_SIZE))
+                || !String.valueOf(lastModified).equals(properties.getProperty(ARCHIVE_LAST_MODIFIED))
+                || properties.getProperty(ARCHIVE_POLICY) == null) {
+                return Optional.empty();
+            }
+            Map<String, Entry> entries = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(ENTRY)) {
+                    entries.put(key.substring(ENTRY.length()), Entry.parse(properties.getProperty(key)));
+                }
+            }
+            return Optional.of(new ArchiveManifest(entries, properties.getProperty(ARCHIVE_POLICY), lastModified));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the manifest. The archive should be in its final location, since the manifest is only valid as long as
+     * the size and last modified time of the archive are unchanged. Failing to write the manifest only means that the
+     * next archive is compressed from scratch.
+     */
+    public void write(Path manifestFile, Path archive) {
+        try {
+            Properties properties = new Properties();
+            properties.setProperty(ARCHIVE_SIZE, String.valueOf(Files.size(archive)));
+            properties.setProperty(ARCHIVE_LAST_MODIFIED, String.valueOf(Files.getLastModifiedTime(archive).toMillis()));
+            properties.setProperty(ARCHIVE_POLICY, policy);
+            entries.forEach((name, entry) -> properties.setProperty(ENTRY + name, entry.format()));
+
+            Files.createDirectories(manifestFile.getParent());
+            Path tempFile = Files.createTempFile(manifestFile.getParent(), manifestFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the manifest is only an optimization
+        }
+    }
+
+    String getPolicy() {
+        return policy;
+    }
+
+    Optional<Entry> getEntry(String name) {
+        return Optional.ofNullable(entries.get(name));
+    }
+
+    /**
+     * @return true if the last modified time of a file can be trusted to tell if it has changed since the archive
+     * was written
+     */
+    boolean isReliableTimestamp(long lastModified) {
+        return lastModified < writtenAt - TIMESTAMP_GRANULARITY_MILLIS;
+    }
+
+    /**
+     * @param crc    the CRC written to the zip headers of the entry
+     * @param sha256 the hash used to tell if a file with a new last modified time still has the same content
+     */
+    record Entry(long size,
+                 long lastModified,
+                 long crc,
+                 String sha256,
+                 long compressedSize,
+                 int method,
+                 long dataOffset) {
+
+        Entry {
+            requireNonNull(sha256, "sha256");
+        }
+
+        private String format() {
+            return size + "|" + lastModified + "|" + crc + "|" + sha256 + "|" + compressedSize + "|" + method + "|" + dataOffset;
+        }
+
+        private static Entry parse(String value) {
+            String[] parts = value.split("\\|");
+            if (parts.length != 7) {
+                throw new IllegalArgumentException("Invalid manifest entry: " + value);
+            }
+            return new Entry(Long.parseLong(parts[0]),
+                             Long.parseLong(parts[1]),
+                             Long.parseLong(parts[2]),
+                             parts[3],
+                             Long.parseLong(parts[4]),
+                             Integer.parseInt(parts[5]),
+                             Long.parseLong(parts[6]));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package se.attini.deployment.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+
+/**
+ * Decides how each file is written to an archive. Files that are already compressed, known by their extension or by
+ * a trial compression of their first bytes that saves too little, are stored as they are. Everything else is deflated
+ * at the configured level.
+ */
+public final class CompressionPolicy {
+
+    public static final List<String> DEFAULT_STORED_EXTENSIONS = List.of("zip", "jar", "war", "ear", "whl", "nupkg",
+                                                                         "gz", "tgz", "bz2", "xz", "zst", "7z", "rar",
+                                                                         "png", "jpg", "jpeg", "gif", "webp", "ico",
+                                                                         "mp3", "mp4", "woff", "woff2");
+    public static final double DEFAULT_MINIMUM_SAVINGS = 0.05;
+
+    static final int TRIAL_SIZE = 64 * 1024;
+
+    private final int level;
+    private final Set<String> storedExtensions;
+    private final double minimumSavings;
+
+    private CompressionPolicy(int level, Set<String> storedExtensions, double minimumSavings) {
+        this.level = level;
+        this.storedExtensions = requireNonNull(storedExtensions, "storedExtensions");
+        this.minimumSavings = minimumSavings;
+    }
+
+    /**
+     * @param level            the deflate level from 0 to 9, where 0 stores every file, or -1 for the default level
+     * @param storedExtensions extensions of files that are stored without trying to compress them, in addition to the
+     *                         default ones
+     * @param minimumSavings   the share of the size, from 0 to 1, that a trial compression has to save for a file to
+     *                         be deflated
+     */
+    public static CompressionPolicy create(int level, List<String> storedExtensions, double minimumSavings) {
+        if (level < -1 || level > 9) {
+            throw new IllegalArgumentException("Invalid compression level " + level + ". The level should be between 0 and 9.");
+        }
+        if (minimumSavings < 0 || minimumSavings > 1) {
+            throw new IllegalArgumentException("Invalid minimum savings " + minimumSavings + ". The savings should be between 0 and 1.");
+        }
+        Set<String> extensions = new HashSet<>(DEFAULT_STORED_EXTENSIONS);
+        storedExtensions.stream()
+                        .map(extension -> extension.startsWith(".") ? extension.substring(1) : extension)
+                        .map(extension -> extension.toLowerCase(Locale.ROOT))
+                        .forEach(extensions::add);
+        return new CompressionPolicy(level, extensions, minimumSavings);
+    }
+
+    public static CompressionPolicy defaultPolicy() {
+        return create(Deflater.DEFAULT_COMPRESSION, List.of(), DEFAULT_MINIMUM_SAVINGS);
+    }
+
+    /**
+     * @return a string that is equal for policies that write the same files in the same way
+     */
+    String fingerprint() {
+        return level + "|" + minimumSavings + "|" + String.join(",", new TreeSet<>(storedExtensions));
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return true if the file should be stored without trying to compress it
+     */
+    boolean isStored(String name) {
+        if (level == Deflater.NO_COMPRESSION) {
+            return true;
+        }
+        int extensionStart = name.lastIndexOf('.');
+        return extensionStart > name.lastIndexOf('/')
+               && storedExtensions.contains(name.substring(extensionStart + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return true if deflating the data to the given size saves too little to be worth it
+     */
+    boolean isPoorlyCompressed(long size, long compressedSize) {
+        return compressedSize > size * (1 - minimumSavings);
+    }
+
+    /**
+     * Compresses a sample of a file to tell if the whole file is worth compressing.
+     */
+    boolean isWorthCompressing(byte[] sample, int length) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[length + 64];
+            int compressedSize = 0;
+            while (!deflater.finished()) {
+                compressedSize += deflater.deflate(buffer);
+            }
+            return !isPoorlyCompressed(length, compressedSize);
+        } finally {
+            deflater.end();
+        }
+    }
+}
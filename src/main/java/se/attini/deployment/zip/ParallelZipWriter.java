@@ -0,0 +1,617 @@
+package se.attini.deployment.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a zip archive where the entries are deflated on a pool of worker threads. Files larger than the chunk size
+ * are split in to chunks that are deflated independently, primed with the last 32KB of the previous chunk as
+ * dictionary and terminated with a sync flush so that the chunks concatenate to a single deflate stream. The CRC of
+ * each chunk is combined in to the CRC of the entry.
+ * <p>
+ * Entries are written in the order they are given and only a bounded number of compressed chunks are kept in memory.
+ * Local headers are written with the final CRC and sizes, the header of an entry spanning several chunks is updated
+ * once its last chunk has been written.
+ * <p>
+ * Each file is stored or deflated according to the {@link CompressionPolicy}. Files that are not decided by name are
+ * sampled before they are split in to chunks, except for small files that are stored if deflating them turns out to
+ * save too little.
+ * <p>
+ * Given the previous archive and its {@link ArchiveManifest}, the compressed data of files that are unchanged is
+ * copied from the previous archive as it is. A file with a new last modified time is only considered unchanged if its
+ * SHA-256 matches the manifest, the CRC is only used for the zip headers.
+ */
+final class ParallelZipWriter {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int UNDECIDED = -1;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP32_MAX = 0xFFFFFFFFL;
+    private static final int ZIP32_MAX_ENTRIES = 0xFFFF;
+
+    // deflate can expand incompressible data slightly, leave room for it when deciding if zip64 is needed up front
+    private static final long ZIP64_LOCAL_THRESHOLD = 0xF0000000L;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final int threads;
+    private final CompressionPolicy policy;
+    private final int dosTime;
+    private final int dosDate;
+
+    ParallelZipWriter(int threads, CompressionPolicy policy) {
+        this.threads = threads;
+        this.policy = requireNonNull(policy, "policy");
+        LocalDateTime time = ZipUtil.ENTRY_TIME;
+        this.dosTime = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+        this.dosDate = ((time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+    }
+
+    /**
+     * Writes the archive, copying the compressed data of files that are unchanged since the previous archive was
+     * written.
+     *
+     * @param result counts the entries by how they were written
+     * @return the manifest of the written archive
+     */
+    ArchiveManifest write(List<ZipSource> sources,
+                          Path destination,
+                          Path previousArchive,
+                          ArchiveManifest previousManifest,
+                          ZipResult result) throws IOException {
+        // entries written with another compression policy are compressed again, so that a new policy takes effect
+        ArchiveManifest previous = previousArchive == null
+                                   || previousManifest == null
+                                   || !policy.fingerprint().equals(previousManifest.getPolicy())
+                                   ? null
+                                   : previousManifest;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "attini-zip-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(destination,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE);
+             FileChannel previousChannel = previous == null ? null : FileChannel.open(previousArchive,
+                                                                                      StandardOpenOption.READ)) {
+            ArchiveWriter archiveWriter = new ArchiveWriter(channel, previousChannel, result);
+            Deque<PendingChunk> pending = new ArrayDeque<>();
+            int maxPending = threads * CHUNKS_PER_THREAD;
+            for (ZipSource source : sources) {
+                Entry entry = new Entry(source);
+                if (source.isDirectory()) {
+                    pending.add(new PendingChunk(entry, true, true, CompletableFuture.completedFuture(null)));
+                } else if ((entry.reused = findReusable(source, previous)) != null) {
+                    pending.add(new PendingChunk(entry, true, true, CompletableFuture.completedFuture(null)));
+                } else {
+                    int method = chooseMethod(source);
+                    if (source.size() > CHUNK_SIZE) {
+                        // the hash of a file in a single chunk is computed while the chunk is compressed
+                        entry.digest = executor.submit(() -> sha256(source.path()));
+                    }
+                    long offset = 0;
+                    do {
+                        int length = (int) Math.min(CHUNK_SIZE, source.size() - offset);
+                        long chunkOffset = offset;
+                        boolean last = offset + length >= source.size();
+                        pending.add(new PendingChunk(entry,
+                                                     offset == 0,
+                                                     last,
+                                                     executor.submit(() -> compress(source, chunkOffset, length, last, method))));
+                        offset += length;
+                        while (pending.size() > maxPending) {
+                            archiveWriter.write(pending.poll());
+                        }
+                    } while (offset < source.size());
+                }
+                while (pending.size() > maxPending) {
+                    archiveWriter.write(pending.poll());
+                }
+            }
+            while (!pending.isEmpty()) {
+                archiveWriter.write(pending.poll());
+            }
+            archiveWriter.finish();
+            return archiveWriter.manifest();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ArchiveManifest.Entry findReusable(ZipSource source, ArchiveManifest previous) throws IOException {
+        if (previous == null) {
+            return null;
+        }
+        ArchiveManifest.Entry entry = previous.getEntry(source.name()).orElse(null);
+        if (entry == null || entry.size() != source.size()) {
+            return null;
+        }
+        if (entry.lastModified() == source.lastModified() && previous.isReliableTimestamp(source.lastModified())) {
+            return entry;
+        }
+        // e.g. a file that is generated again on every build with the same content
+        return sha256(source.path()).equals(entry.sha256()) ? entry : null;
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+            while (channel.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the method of the entry, or UNDECIDED if the file is small enough to be compressed in a single chunk
+     * and stored if compressing it saves too little
+     */
+    private int chooseMethod(ZipSource source) throws IOException {
+        if (policy.isStored(source.name())) {
+            return STORED;
+        }
+        if (source.size() <= CompressionPolicy.TRIAL_SIZE) {
+            return UNDECIDED;
+        }
+        byte[] sample = new byte[CompressionPolicy.TRIAL_SIZE];
+        read(source, ByteBuffer.wrap(sample), 0);
+        return policy.isWorthCompressing(sample, sample.length) ? DEFLATED : STORED;
+    }
+
+    private CompressedChunk compress(ZipSource source,
+                                     long offset,
+                                     int length,
+                                     boolean last,
+                                     int method) throws IOException {
+        int dictionaryLength = method == STORED ? 0 : (int) Math.min(DICTIONARY_SIZE, offset);
+        byte[] data = new byte[dictionaryLength + length];
+        read(source, ByteBuffer.wrap(data), offset - dictionaryLength);
+
+        CRC32 crc = new CRC32();
+        crc.update(data, dictionaryLength, length);
+        String sha256 = null;
+        if (offset == 0 && last) {
+            MessageDigest digest = sha256();
+            digest.update(data, 0, length);
+            sha256 = HexFormat.of().formatHex(digest.digest());
+        }
+        if (method == STORED) {
+            return new CompressedChunk(data, crc.getValue(), sha256, length, STORED);
+        }
+
+        Deflater deflater = new Deflater(policy.getLevel(), true);
+        try {
+            if (dictionaryLength > 0) {
+                deflater.setDictionary(data, 0, dictionaryLength);
+            }
+            deflater.setInput(data, dictionaryLength, length);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int deflated = deflater.deflate(buffer);
+                    outputStream.write(buffer, 0, deflated);
+                }
+            } else {
+                int deflated;
+                do {
+                    deflated = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    outputStream.write(buffer, 0, deflated);
+                } while (deflated == buffer.length);
+            }
+            if (method == UNDECIDED && policy.isPoorlyCompressed(length, outputStream.size())) {
+                return new CompressedChunk(data, crc.getValue(), sha256, length, STORED);
+            }
+            return new CompressedChunk(outputStream.toByteArray(), crc.getValue(), sha256, length, DEFLATED);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void read(ZipSource source, ByteBuffer buffer, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(source.path(), StandardOpenOption.READ)) {
+            long readPosition = position;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, readPosition);
+                if (read < 0) {
+                    throw new EOFException("File changed while being zipped: " + source.path());
+                }
+                readPosition += read;
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while zipping");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private class ArchiveWriter {
+        private final FileChannel channel;
+        private final FileChannel previousChannel;
+        private final ZipResult result;
+        private final List<Entry> entries = new ArrayList<>();
+        private long position;
+
+        private ArchiveWriter(FileChannel channel, FileChannel previousChannel, ZipResult result) {
+            this.channel = channel;
+            this.previousChannel = previousChannel;
+            this.result = result;
+        }
+
+        private void write(PendingChunk pendingChunk) throws IOException {
+            Entry entry = pendingChunk.entry();
+            if (entry.reused != null) {
+                writeReused(entry);
+                return;
+            }
+            CompressedChunk chunk = await(pendingChunk.chunk());
+            if (chunk != null) {
+                entry.method = chunk.method();
+                entry.crc = pendingChunk.first() ? chunk.crc() : crc32Combine(entry.crc, chunk.crc(), chunk.size());
+                entry.compressedSize += chunk.data().length;
+                entry.size += chunk.size();
+                if (chunk.sha256() != null) {
+                    entry.sha256 = chunk.sha256();
+                }
+            }
+            if (pendingChunk.first()) {
+                entry.offset = position;
+                entry.zip64 = !pendingChunk.last() && entry.source.size() > ZIP64_LOCAL_THRESHOLD;
+                writeFully(localHeader(entry), position);
+                entry.dataOffset = position;
+            }
+            if (chunk != null) {
+                writeFully(ByteBuffer.wrap(chunk.data()), position);
+            }
+            if (pendingChunk.last()) {
+                if (!pendingChunk.first()) {
+                    updateLocalHeader(entry);
+                }
+                if (entry.digest != null) {
+                    entry.sha256 = await(entry.digest);
+                }
+                if (!entry.source.isDirectory()) {
+                    if (entry.method() == STORED) {
+                        result.stored++;
+                    } else {
+                        result.deflated++;
+                    }
+                }
+                entries.add(entry);
+            }
+        }
+
+        private void writeReused(Entry entry) throws IOException {
+            ArchiveManifest.Entry reused = entry.reused;
+            entry.method = reused.method();
+            entry.crc = reused.crc();
+            entry.sha256 = reused.sha256();
+            entry.size = reused.size();
+            entry.compressedSize = reused.compressedSize();
+            entry.offset = position;
+            entry.zip64 = entry.size >= ZIP32_MAX || entry.compressedSize >= ZIP32_MAX;
+            writeFully(localHeader(entry), position);
+            entry.dataOffset = position;
+            long transferred = 0;
+            while (transferred < entry.compressedSize) {
+                long count = channel.transferFrom(previousChannel.position(reused.dataOffset() + transferred),
+                                                  position + transferred,
+                                                  entry.compressedSize - transferred);
+                if (count <= 0) {
+                    throw new EOFException("Previous archive changed while being read: " + entry.source.name());
+                }
+                transferred += count;
+            }
+            position += transferred;
+            result.reused++;
+            entries.add(entry);
+        }
+
+        private ArchiveManifest manifest() {
+            Map<String, ArchiveManifest.Entry> manifestEntries = new HashMap<>();
+            for (Entry entry : entries) {
+                if (!entry.source.isDirectory()) {
+                    manifestEntries.put(entry.source.name(), new ArchiveManifest.Entry(entry.size,
+                                                                                       entry.source.lastModified(),
+                                                                                       entry.crc,
+                                                                                       entry.sha256,
+                                                                                       entry.compressedSize,
+                                                                                       entry.method(),
+                                                                                       entry.dataOffset));
+                }
+            }
+            return new ArchiveManifest(manifestEntries, policy.fingerprint());
+        }
+
+        private void updateLocalHeader(Entry entry) throws IOException {
+            if (!entry.zip64 && (entry.compressedSize >= ZIP32_MAX || entry.size >= ZIP32_MAX)) {
+                throw new IOException("Entry grew past the zip64 threshold while being zipped: " + entry.source.name());
+            }
+            writeFully(localHeader(entry), entry.offset);
+        }
+
+        private ByteBuffer localHeader(Entry entry) {
+            ByteBuffer buffer = buffer(LOCAL_HEADER_SIZE + entry.name.length + (entry.zip64 ? 20 : 0));
+            buffer.putInt(LOCAL_HEADER_SIGNATURE);
+            buffer.putShort((short) entry.version());
+            buffer.putShort((short) UTF8_FLAG);
+            buffer.putShort((short) entry.method());
+            buffer.putShort((short) dosTime);
+            buffer.putShort((short) dosDate);
+            buffer.putInt((int) entry.crc);
+            buffer.putInt((int) (entry.zip64 ? ZIP32_MAX : entry.compressedSize));
+            buffer.putInt((int) (entry.zip64 ? ZIP32_MAX : entry.size));
+            buffer.putShort((short) entry.name.length);
+            buffer.putShort((short) (entry.zip64 ? 20 : 0));
+            buffer.put(entry.name);
+            if (entry.zip64) {
+                buffer.putShort(ZIP64_EXTRA_ID);
+                buffer.putShort((short) 16);
+                buffer.putLong(entry.size);
+                buffer.putLong(entry.compressedSize);
+            }
+            return buffer.flip();
+        }
+
+        private void finish() throws IOException {
+            long centralDirectoryOffset = position;
+            ByteBuffer buffer = buffer(256 * 1024);
+            for (Entry entry : entries) {
+                boolean sizeOverflow = entry.size >= ZIP32_MAX;
+                boolean compressedSizeOverflow = entry.compressedSize >= ZIP32_MAX;
+                boolean offsetOverflow = entry.offset >= ZIP32_MAX;
+                int extraLength = (sizeOverflow ? 8 : 0) + (compressedSizeOverflow ? 8 : 0) + (offsetOverflow ? 8 : 0);
+                int headerLength = 46 + entry.name.length + (extraLength > 0 ? extraLength + 4 : 0);
+                if (buffer.remaining() < headerLength) {
+                    writeFully(buffer.flip(), position);
+                    buffer = buffer(Math.max(256 * 1024, headerLength));
+                }
+                int version = extraLength > 0 ? VERSION_ZIP64 : entry.version();
+                buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+                buffer.putShort((short) version);
+                buffer.putShort((short) version);
+                buffer.putShort((short) UTF8_FLAG);
+                buffer.putShort((short) entry.method());
+                buffer.putShort((short) dosTime);
+                buffer.putShort((short) dosDate);
+                buffer.putInt((int) entry.crc);
+                buffer.putInt((int) (compressedSizeOverflow ? ZIP32_MAX : entry.compressedSize));
+                buffer.putInt((int) (sizeOverflow ? ZIP32_MAX : entry.size));
+                buffer.putShort((short) entry.name.length);
+                buffer.putShort((short) (extraLength > 0 ? extraLength + 4 : 0));
+                buffer.putShort((short) 0);
+                buffer.putShort((short) 0);
+                buffer.putShort((short) 0);
+                buffer.putInt(0);
+                buffer.putInt((int) (offsetOverflow ? ZIP32_MAX : entry.offset));
+                buffer.put(entry.name);
+                if (extraLength > 0) {
+                    buffer.putShort(ZIP64_EXTRA_ID);
+                    buffer.putShort((short) extraLength);
+                    if (sizeOverflow) {
+                        buffer.putLong(entry.size);
+                    }
+                    if (compressedSizeOverflow) {
+                        buffer.putLong(entry.compressedSize);
+                    }
+                    if (offsetOverflow) {
+                        buffer.putLong(entry.offset);
+                    }
+                }
+            }
+            writeFully(buffer.flip(), position);
+
+            long centralDirectorySize = position - centralDirectoryOffset;
+            boolean zip64 = entries.size() >= ZIP32_MAX_ENTRIES
+                            || centralDirectoryOffset >= ZIP32_MAX
+                            || centralDirectorySize >= ZIP32_MAX;
+            ByteBuffer end = buffer(98);
+            if (zip64) {
+                long zip64EndOffset = position;
+                end.putInt(ZIP64_END_SIGNATURE);
+                end.putLong(44);
+                end.putShort((short) VERSION_ZIP64);
+                end.putShort((short) VERSION_ZIP64);
+                end.putInt(0);
+                end.putInt(0);
+                end.putLong(entries.size());
+                end.putLong(entries.size());
+                end.putLong(centralDirectorySize);
+                end.putLong(centralDirectoryOffset);
+                end.putInt(ZIP64_LOCATOR_SIGNATURE);
+                end.putInt(0);
+                end.putLong(zip64EndOffset);
+                end.putInt(1);
+            }
+            end.putInt(END_SIGNATURE);
+            end.putShort((short) 0);
+            end.putShort((short) 0);
+            end.putShort((short) (zip64 ? ZIP32_MAX_ENTRIES : entries.size()));
+            end.putShort((short) (zip64 ? ZIP32_MAX_ENTRIES : entries.size()));
+            end.putInt((int) (zip64 ? ZIP32_MAX : centralDirectorySize));
+            end.putInt((int) (zip64 ? ZIP32_MAX : centralDirectoryOffset));
+            end.putShort((short) 0);
+            writeFully(end.flip(), position);
+        }
+
+        private void writeFully(ByteBuffer buffer, long at) throws IOException {
+            long writePosition = at;
+            while (buffer.hasRemaining()) {
+                writePosition += channel.write(buffer, writePosition);
+            }
+            position = Math.max(position, writePosition);
+        }
+
+        private ByteBuffer buffer(int size) {
+            return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Combines the CRC of two consecutive blocks of data, ported from crc32_combine in zlib.
+     */
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        long length = length2;
+        long crc = crc1;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            length >>= 1;
+        } while (length != 0);
+        return crc ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        long remaining = vector;
+        while (remaining != 0) {
+            if ((remaining & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            remaining >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    private record PendingChunk(Entry entry, boolean first, boolean last, Future<CompressedChunk> chunk) {
+    }
+
+    private record CompressedChunk(byte[] data, long crc, String sha256, int size, int method) {
+    }
+
+    private static class Entry {
+        private final ZipSource source;
+        private final byte[] name;
+        private long offset;
+        private long dataOffset;
+        private ArchiveManifest.Entry reused;
+        private long crc;
+        private String sha256;
+        private Future<String> digest;
+        private long compressedSize;
+        private long size;
+        private boolean zip64;
+        private int method;
+
+        private Entry(ZipSource source) {
+            this.source = source;
+            this.name = source.name().getBytes(StandardCharsets.UTF_8);
+            this.method = source.isDirectory() ? STORED : DEFLATED;
+        }
+
+        private int method() {
+            return method;
+        }
+
+        private int version() {
+            if (zip64) {
+                return VERSION_ZIP64;
+            }
+            return method() == STORED ? VERSION_STORED : VERSION_DEFLATED;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package se.attini.deployment.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads single entries from a zip archive that is only reachable through ranged reads, for example an object in S3.
+ * Only the end of the archive, the central directory and the requested entry are read, so the amount of data
+ * transferred does not depend on the size of the other entries.
+ */
+public final class RangedZipReader {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int TAIL_SIZE = 128 * 1024;
+    private static final int LOCAL_EXTRA_MARGIN = 256;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP32_MAX = 0xFFFFFFFFL;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final long size;
+    private final RangeReader rangeReader;
+
+    /**
+     * Reads a range of bytes from the archive, both ends are inclusive.
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        byte[] read(long from, long to);
+    }
+
+    public RangedZipReader(long size, RangeReader rangeReader) {
+        this.size = size;
+        this.rangeReader = requireNonNull(rangeReader, "rangeReader");
+    }
+
+    /**
+     * @param entryName predicate for the name of the entry to read
+     * @return the uncompressed content of the first entry matching the predicate
+     */
+    public Optional<byte[]> readEntry(Predicate<String> entryName) {
+        if (size < END_SIZE) {
+            throw new ZipException("Archive is too small to be a zip archive");
+        }
+        long tailStart = Math.max(0, size - TAIL_SIZE);
+        byte[] tail = rangeReader.read(tailStart, size - 1);
+        ByteBuffer tailBuffer = littleEndian(tail);
+
+        int end = findEnd(tailBuffer);
+        long entries = unsignedShort(tailBuffer, end + 10);
+        long centralDirectorySize = unsignedInt(tailBuffer, end + 12);
+        long centralDirectoryOffset = unsignedInt(tailBuffer, end + 16);
+
+        int locator = end - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0 && tailBuffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            long zip64EndOffset = tailBuffer.getLong(locator + 8);
+            ByteBuffer zip64End = littleEndian(read(tail, tailStart, zip64EndOffset, ZIP64_END_SIZE));
+            if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("Invalid zip64 end of central directory record");
+            }
+            entries = zip64End.getLong(32);
+            centralDirectorySize = zip64End.getLong(40);
+            centralDirectoryOffset = zip64End.getLong(48);
+        }
+
+        ByteBuffer centralDirectory = littleEndian(read(tail,
+                                                        tailStart,
+                                                        centralDirectoryOffset,
+                                                        Math.toIntExact(centralDirectorySize)));
+        int position = 0;
+        for (long i = 0; i < entries; i++) {
+            if (centralDirectory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header");
+            }
+            int nameLength = unsignedShort(centralDirectory, position + 28);
+            int extraLength = unsignedShort(centralDirectory, position + 30);
+            int commentLength = unsignedShort(centralDirectory, position + 32);
+            String name = new String(centralDirectory.array(),
+                                     position + CENTRAL_HEADER_SIZE,
+                                     nameLength,
+                                     StandardCharsets.UTF_8);
+            if (entryName.test(name)) {
+                return Optional.of(readEntry(tail, tailStart, centralDirectory, position));
+            }
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return Optional.empty();
+    }
+
+    private byte[] readEntry(byte[] tail, long tailStart, ByteBuffer centralDirectory, int header) {
+        int flags = unsignedShort(centralDirectory, header + 8);
+        int method = unsignedShort(centralDirectory, header + 10);
+        long compressedSize = unsignedInt(centralDirectory, header + 20);
+        long uncompressedSize = unsignedInt(centralDirectory, header + 24);
+        int nameLength = unsignedShort(centralDirectory, header + 28);
+        int extraLength = unsignedShort(centralDirectory, header + 30);
+        long localHeaderOffset = unsignedInt(centralDirectory, header + 42);
+
+        if ((flags & 1) != 0) {
+            throw new ZipException("Encrypted zip entries are not supported");
+        }
+
+        // sizes and offset that do not fit in 32 bits are found, in this order, in the zip64 extra field
+        int extra = header + CENTRAL_HEADER_SIZE + nameLength;
+        int extraEnd = extra + extraLength;
+        while (extra + 4 <= extraEnd) {
+            short id = centralDirectory.getShort(extra);
+            int length = unsignedShort(centralDirectory, extra + 2);
+            if (id == ZIP64_EXTRA_ID) {
+                int field = extra + 4;
+                if (uncompressedSize == ZIP32_MAX) {
+                    uncompressedSize = centralDirectory.getLong(field);
+                    field += 8;
+                }
+                if (compressedSize == ZIP32_MAX) {
+                    compressedSize = centralDirectory.getLong(field);
+                    field += 8;
+                }
+                if (localHeaderOffset == ZIP32_MAX) {
+                    localHeaderOffset = centralDirectory.getLong(field);
+                }
+            }
+            extra += 4 + length;
+        }
+
+        int dataLength = Math.toIntExact(compressedSize);
+        int guess = (int) Math.min(LOCAL_HEADER_SIZE + nameLength + extraLength + LOCAL_EXTRA_MARGIN + (long) dataLength,
+                                   size - localHeaderOffset);
+        ByteBuffer local = littleEndian(read(tail, tailStart, localHeaderOffset, guess));
+        if (local.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local file header");
+        }
+        int dataStart = LOCAL_HEADER_SIZE + unsignedShort(local, 26) + unsignedShort(local, 28);
+        byte[] data = dataStart + dataLength <= local.capacity()
+                      ? Arrays.copyOfRange(local.array(), dataStart, dataStart + dataLength)
+                      : read(tail, tailStart, localHeaderOffset + dataStart, dataLength);
+
+        return switch (method) {
+            case STORED -> data;
+            case DEFLATED -> inflate(data, Math.toIntExact(uncompressedSize));
+            default -> throw new ZipException("Unsupported compression method " + method);
+        };
+    }
+
+    private byte[] read(byte[] tail, long tailStart, long offset, int length) {
+        if (offset < 0 || offset + length > size) {
+            throw new ZipException("Zip structure points outside of the archive");
+        }
+        if (offset >= tailStart) {
+            int from = (int) (offset - tailStart);
+            return Arrays.copyOfRange(tail, from, from + length);
+        }
+        if (length == 0) {
+            return new byte[0];
+        }
+        return rangeReader.read(offset, offset + length - 1);
+    }
+
+    private static int findEnd(ByteBuffer tail) {
+        int lowest = Math.max(0, tail.capacity() - END_SIZE - MAX_COMMENT_SIZE);
+        for (int i = tail.capacity() - END_SIZE; i >= lowest; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                return i;
+            }
+        }
+        throw new ZipException("No end of central directory record found, not a zip archive");
+    }
+
+    private static byte[] inflate(byte[] data, int uncompressedSize) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[uncompressedSize];
+            int inflated = 0;
+            while (inflated < uncompressedSize && !inflater.finished()) {
+                int count = inflater.inflate(result, inflated, uncompressedSize - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != uncompressedSize) {
+                throw new ZipException("Zip entry is truncated");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new ZipException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int index) {
+        return Short.toUnsignedInt(buffer.getShort(index));
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int index) {
+        return Integer.toUnsignedLong(buffer.getInt(index));
+    }
+}
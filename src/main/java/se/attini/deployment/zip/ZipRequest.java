@@ -0,0 +1,133 @@
+package se.attini.deployment.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import se.attini.deployment.file.ignore.IgnoreMatcher;
+
+public class ZipRequest {
+
+    private final Path path;
+    private final Path destination;
+    private final IgnoreMatcher ignores;
+    private final int threads;
+    private final CompressionPolicy policy;
+    private final Consumer<Path> validator;
+    private final Path previousArchive;
+    private final ArchiveManifest previousManifest;
+
+    private ZipRequest(Builder builder) {
+        this.path = requireNonNull(builder.path, "path");
+        this.destination = requireNonNull(builder.destination, "destination");
+        this.ignores = requireNonNull(builder.ignores, "ignores");
+        if (builder.threads < 1) {
+            throw new IllegalArgumentException("Invalid number of compression threads. At least one thread is required.");
+        }
+        this.threads = builder.threads;
+        this.policy = requireNonNull(builder.policy, "policy");
+        this.validator = requireNonNull(builder.validator, "validator");
+        this.previousArchive = builder.previousArchive;
+        this.previousManifest = builder.previousManifest;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Path getDestination() {
+        return destination;
+    }
+
+    public IgnoreMatcher getIgnores() {
+        return ignores;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public CompressionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return a check of every file and directory that is added to the archive, run while the directory is listed
+     */
+    public Consumer<Path> getValidator() {
+        return validator;
+    }
+
+    public Optional<Path> getPreviousArchive() {
+        return Optional.ofNullable(previousArchive);
+    }
+
+    public Optional<ArchiveManifest> getPreviousManifest() {
+        return Optional.ofNullable(previousManifest);
+    }
+
+    public static class Builder {
+        private Path path;
+        private Path destination;
+        private IgnoreMatcher ignores = IgnoreMatcher.none();
+        private int threads = 1;
+        private CompressionPolicy policy = CompressionPolicy.defaultPolicy();
+        private Consumer<Path> validator = path -> {
+        };
+        private Path previousArchive;
+        private ArchiveManifest previousManifest;
+
+        private Builder() {
+        }
+
+        public Builder setPath(Path path) {
+            this.path = path;
+            return this;
+        }
+
+        public Builder setDestination(Path destination) {
+            this.destination = destination;
+            return this;
+        }
+
+        public Builder setIgnores(IgnoreMatcher ignores) {
+            this.ignores = ignores;
+            return this;
+        }
+
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder setPolicy(CompressionPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        public Builder setValidator(Consumer<Path> validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        /**
+         * @param previousArchive  the archive described by the previous manifest, or null if there is none
+         * @param previousManifest the manifest of the previous archive, or null if there is none
+         */
+        public Builder setPrevious(Path previousArchive, ArchiveManifest previousManifest) {
+            this.previousArchive = previousArchive;
+            this.previousManifest = previousManifest;
+            return this;
+        }
+
+        public ZipRequest build() {
+            return new ZipRequest(this);
+        }
+    }
+}
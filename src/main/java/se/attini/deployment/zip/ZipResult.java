@@ -0,0 +1,70 @@
+package se.attini.deployment.zip;
+
+import java.time.Duration;
+
+/**
+ * What went into an archive and how long each phase of writing it took.
+ */
+public final class ZipResult {
+
+    ArchiveManifest manifest;
+    int files;
+    int directories;
+    int ignored;
+    int deflated;
+    int stored;
+    int reused;
+    Duration walkTime = Duration.ZERO;
+    Duration compressionTime = Duration.ZERO;
+
+    ZipResult() {
+    }
+
+    public ArchiveManifest getManifest() {
+        return manifest;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public int getDirectories() {
+        return directories;
+    }
+
+    /**
+     * @return the number of ignored files and directories, not counting what is below an ignored directory
+     */
+    public int getIgnored() {
+        return ignored;
+    }
+
+    public int getDeflated() {
+        return deflated;
+    }
+
+    public int getStored() {
+        return stored;
+    }
+
+    /**
+     * @return the number of files whose compressed data was copied from the previous archive
+     */
+    public int getReused() {
+        return reused;
+    }
+
+    /**
+     * @return the time spent listing, validating and filtering the files
+     */
+    public Duration getWalkTime() {
+        return walkTime;
+    }
+
+    /**
+     * @return the time spent compressing the files and writing the archive
+     */
+    public Duration getCompressionTime() {
+        return compressionTime;
+    }
+}
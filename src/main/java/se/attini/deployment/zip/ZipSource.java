@@ -0,0 +1,21 @@
+package se.attini.deployment.zip;
+
+import java.nio.file.Path;
+
+/**
+ * A file or directory that should be written to an archive. Directory names end with a "/" and have no path.
+ */
+record ZipSource(String name, Path path, long size, long lastModified) {
+
+    static ZipSource directory(String name) {
+        return new ZipSource(name, null, 0, 0);
+    }
+
+    static ZipSource file(String name, Path path, long size, long lastModified) {
+        return new ZipSource(name, path, size, lastModified);
+    }
+
+    boolean isDirectory() {
+        return path == null;
+    }
+}
@@ -1,73 +1,128 @@
 package se.attini.deployment.zip;
 
-import static java.util.Objects.requireNonNull;
-
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.function.Consumer;
 
-import se.attini.deployment.file.ignore.FilePatterns;
+import se.attini.deployment.file.ignore.IgnoreMatcher;
 
 public final class ZipUtil {
 
-    public static byte[] zipDirectory(Path path, List<String> ignores) {
+    /**
+     * Every entry gets the same modification time, so that zipping the same files twice gives identical archives.
+     */
+    static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+
+    /**
+     * Zips the content of a directory straight to a file. Memory usage is constant regardless of the size of the
+     * archive. If the destination is located inside the directory it will not be included in the archive. Every file
+     * and directory that is added to the archive is checked by the validator of the request while the directory is
+     * listed.
+     * <p>
+     * Entries are deflated concurrently, large files in chunks, but written in name order and with a fixed
+     * modification time, so zipping the same files with the same compression policy always gives the same archive
+     * regardless of the number of threads. The compressed data of files that are unchanged since the previous archive
+     * was written is copied instead of compressed again.
+     */
+    public static ZipResult zipDirectory(ZipRequest request) {
+        ZipResult result = new ZipResult();
+        long start = System.nanoTime();
+        List<ZipSource> sources = listSources(request.getPath(),
+                                              request.getIgnores(),
+                                              request.getDestination().toAbsolutePath().normalize(),
+                                              request.getValidator(),
+                                              result);
+        long listed = System.nanoTime();
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ZipOutputStream zipOut = new ZipOutputStream(baos);
+            result.manifest = new ParallelZipWriter(request.getThreads(), request.getPolicy())
+                    .write(sources,
+                           request.getDestination(),
+                           request.getPreviousArchive().orElse(null),
+                           request.getPreviousManifest().orElse(null),
+                           result);
+        } catch (IOException e) {
+            throw new ZipException(e);
+        }
+        result.walkTime = Duration.ofNanos(listed - start);
+        result.compressionTime = Duration.ofNanos(System.nanoTime() - listed);
+        return result;
+    }
 
-            File[] fileArray = path.toFile().listFiles();
-            if (fileArray == null){
-                throw new ZipException("no files in directory " + path);
-            }
+    /**
+     * Lists the files to zip in a single walk of the directory, using the attributes read by the walk instead of
+     * looking up the size and last modified time of each file separately.
+     */
+    private static List<ZipSource> listSources(Path path,
+                                               IgnoreMatcher ignores,
+                                               Path destination,
+                                               Consumer<Path> validator,
+                                               ZipResult result) {
+        if (!Files.isDirectory(path)) {
+            throw new ZipException("no files in directory " + path);
+        }
+        List<ZipSource> sources = new ArrayList<>();
+        try {
+            Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
 
-            for (File file : fileArray) {
-                zipFile(file, file.getName(), zipOut, ignores);
-            }
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(path)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (ignores.matches(dir)) {
+                        result.ignored++;
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    validator.accept(dir);
+                    sources.add(ZipSource.directory(entryName(path, dir) + "/"));
+                    result.directories++;
+                    return ignores.isSubtreeIgnored(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
 
-            zipOut.close();
-            baos.close();
-            return baos.toByteArray();
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile()) {
+                        // e.g. a broken symbolic link
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (ignores.matches(file)) {
+                        result.ignored++;
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (destination.equals(file.toAbsolutePath().normalize())) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    validator.accept(file);
+                    sources.add(ZipSource.file(entryName(path, file),
+                                               file,
+                                               attrs.size(),
+                                               attrs.lastModifiedTime().toMillis()));
+                    result.files++;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
         } catch (IOException e) {
             throw new ZipException(e);
         }
-
+        // the order files are listed in depends on the file system
+        sources.sort(Comparator.comparing(ZipSource::name));
+        return sources;
     }
 
-    private static void zipFile(File fileToZip,
-                                String fileName,
-                                ZipOutputStream zipOut,
-                                List<String> ignores) throws IOException {
-
-        if (FilePatterns.patternMatchPath(ignores, fileToZip.toPath())) {
-            return;
-        }
-        if (fileToZip.isDirectory()) {
-            if (fileName.endsWith("/")) {
-                zipOut.putNextEntry(new ZipEntry(fileName));
-            } else {
-                zipOut.putNextEntry(new ZipEntry(fileName + "/"));
-            }
-            zipOut.closeEntry();
-            File[] children = requireNonNull(fileToZip.listFiles());
-            for (File childFile : children) {
-                zipFile(childFile, fileName + "/" + childFile.getName(), zipOut, ignores);
-            }
-            return;
-        }
-        FileInputStream fis = new FileInputStream(fileToZip);
-        ZipEntry zipEntry = new ZipEntry(fileName);
-        zipOut.putNextEntry(zipEntry);
-        byte[] bytes = new byte[1024];
-        int length;
-        while ((length = fis.read(bytes)) >= 0) {
-            zipOut.write(bytes, 0, length);
-        }
-        fis.close();
+    private static String entryName(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
     }
 
 }
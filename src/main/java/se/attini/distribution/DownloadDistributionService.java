@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import java.io.File;
 import java.util.Map;
 
+import se.attini.AwsAccountFacade;
 import se.attini.client.AwsClientFactory;
 import se.attini.domain.DistributionId;
 import se.attini.domain.DistributionName;
@@ -19,7 +20,6 @@ import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
-import software.amazon.awssdk.services.sts.StsClient;
 
 
 public class DownloadDistributionService {
@@ -28,12 +28,15 @@ public class DownloadDistributionService {
     private final static String BUCKET = "attini-artifact-store-%s-%s";
 
     private final AwsClientFactory awsClientFactory;
+    private final AwsAccountFacade awsAccountFacade;
     private final ProfileFacade profileFacade;
     private final EnvironmentUserInput environmentUserInput;
 
     public DownloadDistributionService(AwsClientFactory awsClientFactory,
+                                       AwsAccountFacade awsAccountFacade,
                                        ProfileFacade profileFacade, EnvironmentUserInput environmentUserInput) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
+        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
         this.profileFacade = requireNonNull(profileFacade, "profileFacade");
         this.environmentUserInput = requireNonNull(environmentUserInput, "environmentUserInput");
     }
@@ -51,8 +54,9 @@ public class DownloadDistributionService {
                                    distId,
                                    request.getDistributionName().getName());
 
-        try (S3Client s3Client = awsClientFactory.s3Client(); StsClient stsClient = awsClientFactory.stsClient()) {
-            String account = stsClient.getCallerIdentity().account();
+        S3Client s3Client = awsClientFactory.s3Client();
+        try {
+            String account = awsAccountFacade.getAccount();
             String bucket = String.format(BUCKET, givenRegion.getName(), account);
 
             File file = createFile(request.getDistributionName());
@@ -84,31 +88,30 @@ public class DownloadDistributionService {
     }
 
     private String getDistId(DownloadDistributionRequest request, Environment environment) {
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            AttributeValue attributeValue = dynamoDbClient
-                    .getItem(GetItemRequest.builder()
-                                           .tableName("AttiniResourceStatesV1")
-                                           .key(Map.of("resourceType",
-                                                       AttributeValue.builder()
-                                                                     .s("Distribution")
-                                                                     .build(),
-                                                       "name",
-                                                       AttributeValue.builder()
-                                                                     .s(environment.getName()
-                                                                                   .getName() + "-" + request.getDistributionName()
-                                                                                                             .getName())
-                                                                     .build()))
-                                           .build())
-                    .item()
-                    .get("distributionId");
-
-            if (attributeValue == null) {
-                throw new IllegalArgumentException("Distribution " + request.getDistributionName()
-                                                                            .getName() + " not found");
-            }
-
-            return attributeValue.s();
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        AttributeValue attributeValue = dynamoDbClient
+                .getItem(GetItemRequest.builder()
+                                       .tableName("AttiniResourceStatesV1")
+                                       .key(Map.of("resourceType",
+                                                   AttributeValue.builder()
+                                                                 .s("Distribution")
+                                                                 .build(),
+                                                   "name",
+                                                   AttributeValue.builder()
+                                                                 .s(environment.getName()
+                                                                               .getName() + "-" + request.getDistributionName()
+                                                                                                         .getName())
+                                                                 .build()))
+                                       .build())
+                .item()
+                .get("distributionId");
+
+        if (attributeValue == null) {
+            throw new IllegalArgumentException("Distribution " + request.getDistributionName()
+                                                                        .getName() + " not found");
         }
+
+        return attributeValue.s();
     }
 
 }
@@ -0,0 +1,49 @@
+package se.attini.domain;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Objects;
+
+public class CallerIdentity {
+
+    private final String account;
+    private final String arn;
+
+    private CallerIdentity(String account, String arn) {
+        this.account = requireNonNull(account, "account");
+        this.arn = requireNonNull(arn, "arn");
+    }
+
+    public static CallerIdentity create(String account, String arn) {
+        return new CallerIdentity(account, arn);
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getArn() {
+        return arn;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CallerIdentity that = (CallerIdentity) o;
+        return Objects.equals(account, that.account) && Objects.equals(arn, that.arn);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(account, arn);
+    }
+
+    @Override
+    public String toString() {
+        return "CallerIdentity{" +
+               "account='" + account + '\'' +
+               ", arn='" + arn + '\'' +
+               '}';
+    }
+}
@@ -0,0 +1,131 @@
+package se.attini.environment;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import se.attini.domain.Environment;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.EnvironmentType;
+
+/**
+ * Keeps the environments of each account and region on disk for a short time, so that shell completion and scripts
+ * that run many commands in a row do not have to read them every time.
+ */
+class EnvironmentCatalogueCache {
+
+    private static final String EXPIRES_AT = ".expiresAt";
+    private static final String ENVIRONMENT = ".environment.";
+
+    private final Path cacheFile;
+    private final Duration ttl;
+    private final LongSupplier clock;
+
+    EnvironmentCatalogueCache(Path cacheFile, Duration ttl) {
+        this(cacheFile, ttl, System::currentTimeMillis);
+    }
+
+    EnvironmentCatalogueCache(Path cacheFile, Duration ttl, LongSupplier clock) {
+        this.cacheFile = requireNonNull(cacheFile, "cacheFile");
+        this.ttl = requireNonNull(ttl, "ttl");
+        this.clock = requireNonNull(clock, "clock");
+    }
+
+    Optional<List<Environment>> get(String scope) {
+        Properties cache = read();
+        if (isExpired(cache, scope)) {
+            return Optional.empty();
+        }
+        String prefix = scope + ENVIRONMENT;
+        try {
+            return Optional.of(cache.stringPropertyNames()
+                                    .stream()
+                                    .filter(key -> key.startsWith(prefix))
+                                    .sorted()
+                                    .map(key -> Environment.create(EnvironmentName.create(key.substring(prefix.length())),
+                                                                   EnvironmentType.fromString(cache.getProperty(key))))
+                                    .collect(Collectors.toList()));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    void put(String scope, List<Environment> environments) {
+        Properties cache = read();
+        removeScope(cache, scope);
+        cache.stringPropertyNames()
+             .stream()
+             .filter(key -> key.endsWith(EXPIRES_AT))
+             .map(key -> key.substring(0, key.length() - EXPIRES_AT.length()))
+             .filter(otherScope -> isExpired(cache, otherScope))
+             .forEach(otherScope -> removeScope(cache, otherScope));
+        cache.setProperty(scope + EXPIRES_AT, String.valueOf(clock.getAsLong() + ttl.toMillis()));
+        environments.stream()
+                    .sorted(Comparator.comparing(environment -> environment.getName().getName()))
+                    .forEach(environment -> cache.setProperty(scope + ENVIRONMENT + environment.getName().getName(),
+                                                              environment.getType().getValue()));
+        write(cache);
+    }
+
+    void invalidate(String scope) {
+        Properties cache = read();
+        if (cache.containsKey(scope + EXPIRES_AT)) {
+            removeScope(cache, scope);
+            write(cache);
+        }
+    }
+
+    private boolean isExpired(Properties cache, String scope) {
+        try {
+            return Long.parseLong(cache.getProperty(scope + EXPIRES_AT, "0")) <= clock.getAsLong();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static void removeScope(Properties cache, String scope) {
+        cache.remove(scope + EXPIRES_AT);
+        cache.stringPropertyNames()
+             .stream()
+             .filter(key -> key.startsWith(scope + ENVIRONMENT))
+             .forEach(cache::remove);
+    }
+
+    private Properties read() {
+        Properties cache = new Properties();
+        if (Files.isRegularFile(cacheFile)) {
+            try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                cache.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                return new Properties();
+            }
+        }
+        return cache;
+    }
+
+    private void write(Properties cache) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                cache.store(writer, null);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization
+        }
+    }
+}
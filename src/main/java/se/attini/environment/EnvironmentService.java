@@ -2,54 +2,104 @@ package se.attini.environment;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import se.attini.AttiniNotInstalledException;
+import se.attini.AwsAccountFacade;
+import se.attini.EnvironmentVariables;
 import se.attini.InvalidCredentialsException;
 import se.attini.client.AwsClientFactory;
 import se.attini.domain.Environment;
 import se.attini.domain.EnvironmentName;
 import se.attini.domain.EnvironmentType;
+import se.attini.profile.ProfileFacade;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 
+/**
+ * Reads and writes the environments of the current account and region. The environments are only read once per
+ * command, and optionally kept on disk for a short time, unless an environment is created or removed.
+ */
 public class EnvironmentService {
 
     private static final String ATTINI_RESOURCE_STATES_TABLE_NAME = "AttiniResourceStatesV1";
     private final AwsClientFactory awsClientFactory;
+    private final ProfileFacade profileFacade;
+    private final AwsAccountFacade awsAccountFacade;
+    private final EnvironmentCatalogueCache catalogueCache;
+    private List<Environment> environments;
 
-    public EnvironmentService(AwsClientFactory awsClientFactory) {
+    public EnvironmentService(AwsClientFactory awsClientFactory,
+                              ProfileFacade profileFacade,
+                              AwsAccountFacade awsAccountFacade,
+                              EnvironmentVariables environmentVariables) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
+        this.profileFacade = requireNonNull(profileFacade, "profileFacade");
+        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
+        int ttlSeconds = environmentVariables.getEnvironmentCacheTtlSeconds().orElse(0);
+        this.catalogueCache = ttlSeconds > 0
+                              ? new EnvironmentCatalogueCache(environmentVariables.getCacheDirectory()
+                                                                                  .resolve("environments.properties"),
+                                                              Duration.ofSeconds(ttlSeconds))
+                              : null;
     }
 
 
-    public List<Environment> getEnvironments() {
-
-        try (DynamoDbClient client =  awsClientFactory.dynamoClient()){
-            return client.query(QueryRequest.builder().tableName(
-                                                              ATTINI_RESOURCE_STATES_TABLE_NAME)
-                                                      .keyConditionExpression(
-                                                              "resourceType=:v_resourceType")
-                                                      .expressionAttributeValues(
-                                                              Map.of(
-                                                                      ":v_resourceType",
-                                                                      AttributeValue.builder()
-                                                                                    .s("Environment")
-                                                                                    .build()))
-                                                      .build())
-                                   .items()
-                                   .stream()
-                                   .map(map -> Environment.create(EnvironmentName.create(map.get("name").s()),
-                                                                  EnvironmentType.fromString(map.get("environmentType")
-                                                                                                .s())))
-                                   .collect(Collectors.toList());
+    public synchronized List<Environment> getEnvironments() {
+        if (environments == null) {
+            if (catalogueCache == null) {
+                environments = queryEnvironments();
+            } else {
+                String scope = getCacheScope();
+                environments = catalogueCache.get(scope).orElseGet(() -> {
+                    List<Environment> result = queryEnvironments();
+                    catalogueCache.put(scope, result);
+                    return result;
+                });
+            }
+        }
+        return environments;
+    }
+
+    private List<Environment> queryEnvironments() {
+
+        DynamoDbClient client = awsClientFactory.dynamoClient();
+        try {
+            List<Environment> result = new ArrayList<>();
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            do {
+                QueryResponse response = client.query(QueryRequest.builder()
+                                                                  .tableName(ATTINI_RESOURCE_STATES_TABLE_NAME)
+                                                                  .keyConditionExpression("resourceType=:v_resourceType")
+                                                                  .expressionAttributeValues(
+                                                                          Map.of(":v_resourceType",
+                                                                                 AttributeValue.builder()
+                                                                                               .s("Environment")
+                                                                                               .build()))
+                                                                  .projectionExpression("#name, environmentType")
+                                                                  .expressionAttributeNames(Map.of("#name", "name"))
+                                                                  .exclusiveStartKey(exclusiveStartKey)
+                                                                  .build());
+                response.items()
+                        .stream()
+                        .map(map -> Environment.create(EnvironmentName.create(map.get("name").s()),
+                                                       EnvironmentType.fromString(map.get("environmentType").s())))
+                        .forEach(result::add);
+                exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                                    ? response.lastEvaluatedKey()
+                                    : null;
+            } while (exclusiveStartKey != null);
+            return Collections.unmodifiableList(result);
         } catch (ResourceNotFoundException e) {
            throw new AttiniNotInstalledException(e);
         }catch (DynamoDbException e){
@@ -60,26 +110,39 @@ public class EnvironmentService {
         }
     }
 
+    private synchronized void invalidate() {
+        environments = null;
+        if (catalogueCache != null) {
+            catalogueCache.invalidate(getCacheScope());
+        }
+    }
+
+    private String getCacheScope() {
+        return awsAccountFacade.getAccount() + "." + profileFacade.getRegion().getName();
+    }
+
 
     public void removeEnvironment(RemoveEnvironmentRequest request) {
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
-            dynamoDbClient
-                    .deleteItem(DeleteItemRequest.builder()
-                                                 .tableName(ATTINI_RESOURCE_STATES_TABLE_NAME)
-                                                 .key(Map.of("resourceType",
-                                                             AttributeValue.builder().s("Environment").build(),
-                                                             "name",
-                                                             AttributeValue.builder()
-                                                                           .s(request.environment()
-                                                                                     .getName())
-                                                                           .build()))
-                                                 .build());
-        }
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        dynamoDbClient
+                .deleteItem(DeleteItemRequest.builder()
+                                             .tableName(ATTINI_RESOURCE_STATES_TABLE_NAME)
+                                             .key(Map.of("resourceType",
+                                                         AttributeValue.builder().s("Environment").build(),
+                                                         "name",
+                                                         AttributeValue.builder()
+                                                                       .s(request.environment()
+                                                                                 .getName())
+                                                                       .build()))
+                                             .build());
+        // after the write, so that a lookup running at the same time can not cache the old environments again
+        invalidate();
     }
 
     public void createEnvironment(CreateEnvironmentRequest request) {
 
-        try (DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()) {
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        try {
             dynamoDbClient.putItem(PutItemRequest.builder()
                                                  .tableName(ATTINI_RESOURCE_STATES_TABLE_NAME)
                                                  .item(Map.of("resourceType",
@@ -93,6 +156,7 @@ public class EnvironmentService {
                                                                             .s(request.type().getValue())
                                                                             .build()))
                                                  .build());
+            invalidate();
         }catch (ResourceNotFoundException e){
             throw new AttiniNotInstalledException();
         } catch (DynamoDbException e){
@@ -6,6 +6,8 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import se.attini.ClientWithEnvironmentRequest;
+import se.attini.Preflight;
+import se.attini.Preflight.Lookup;
 import se.attini.cli.UserInputReader;
 import se.attini.cli.global.GlobalConfig;
 import se.attini.domain.Environment;
@@ -13,21 +15,21 @@ import se.attini.domain.EnvironmentName;
 
 public class EnvironmentUserInput {
 
-    private final EnvironmentService environmentService;
+    private final Preflight preflight;
     private final UserInputReader userInputReader;
     private final GlobalConfig globalConfig;
 
-    public EnvironmentUserInput(EnvironmentService environmentService,
+    public EnvironmentUserInput(Preflight preflight,
                                 UserInputReader userInputReader, GlobalConfig globalConfig) {
-        this.environmentService = requireNonNull(environmentService, "environmentService");
+        this.preflight = requireNonNull(preflight, "preflight");
         this.userInputReader = requireNonNull(userInputReader, "userInputReader");
         this.globalConfig = requireNonNull(globalConfig, "globalConfig");
     }
 
     public Environment getEnvironment(ClientWithEnvironmentRequest request) {
 
-        List<Environment> environments =
-                environmentService.getEnvironments();
+        preflight.start(Lookup.ENVIRONMENTS, Lookup.REGION, Lookup.ACCOUNT);
+        List<Environment> environments = preflight.getEnvironments();
 
         if (request.getEnvironment().isEmpty() && environments.size() == 1) {
             return environments.get(0);
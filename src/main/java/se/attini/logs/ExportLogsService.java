@@ -13,6 +13,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import se.attini.AwsAccountFacade;
 import se.attini.cli.ConsolePrinter;
 import se.attini.cli.PrintItem;
 import se.attini.client.AwsClientFactory;
@@ -22,11 +23,11 @@ import software.amazon.awssdk.services.cloudwatchlogs.model.CreateExportTaskRequ
 import software.amazon.awssdk.services.cloudwatchlogs.model.CreateExportTaskResponse;
 import software.amazon.awssdk.services.cloudwatchlogs.model.DescribeExportTasksRequest;
 import software.amazon.awssdk.services.cloudwatchlogs.model.ExportTaskStatusCode;
-import software.amazon.awssdk.services.sts.StsClient;
 
 public class ExportLogsService {
 
     private final AwsClientFactory awsClientFactory;
+    private final AwsAccountFacade awsAccountFacade;
     private final ProfileFacade profileFacade;
     private final ConsolePrinter consolePrinter;
 
@@ -40,27 +41,27 @@ public class ExportLogsService {
                                                                                      FAILED);
 
     public ExportLogsService(AwsClientFactory awsClientFactory,
+                             AwsAccountFacade awsAccountFacade,
                              ProfileFacade profileFacade,
                              ConsolePrinter consolePrinter) {
         this.awsClientFactory = requireNonNull(awsClientFactory, "awsClientFactory");
+        this.awsAccountFacade = requireNonNull(awsAccountFacade, "awsAccountFacade");
         this.profileFacade = requireNonNull(profileFacade, "profileFacade");
         this.consolePrinter = requireNonNull(consolePrinter, "consolePrinter");
     }
 
     public void exportLogs(ExportLogsRequest request) {
-            try(CloudWatchLogsClient cloudWatchClient = awsClientFactory.cloudWatchClient();
-                StsClient stsClient = awsClientFactory.stsClient()){
-                String accountId = stsClient.getCallerIdentity().account();
-                String region = profileFacade.getRegion().getName();
-                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-
-                for (String lambda : LAMBDAS){
-                    exportLogAndWait(request, cloudWatchClient, accountId, region, lambda, timestamp);
-
-                }
-                consolePrinter.print(newLine());
-                consolePrinter.print(PrintItem.successMessage("Exported all logs in timespan"));
+            CloudWatchLogsClient cloudWatchClient = awsClientFactory.cloudWatchClient();
+            String accountId = awsAccountFacade.getAccount();
+            String region = profileFacade.getRegion().getName();
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+            for (String lambda : LAMBDAS){
+                exportLogAndWait(request, cloudWatchClient, accountId, region, lambda, timestamp);
+
             }
+            consolePrinter.print(newLine());
+            consolePrinter.print(PrintItem.successMessage("Exported all logs in timespan"));
 
     }
 
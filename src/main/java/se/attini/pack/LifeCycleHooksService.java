@@ -9,6 +9,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +20,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import se.attini.EnvironmentVariables;
 import se.attini.cli.deployment.DataEmitter;
 import se.attini.cli.global.GlobalConfig;
+import se.attini.deployment.file.config.AttiniConfigFileException;
 import se.attini.deployment.file.config.AttiniConfigFiles;
 
 public class LifeCycleHooksService {
@@ -47,6 +49,44 @@ public class LifeCycleHooksService {
         runCommandsForPhase(path, "postPackage", envConfigPath);
     }
 
+    /**
+     * @return true if the attini-config file in the given directory has any prePackage or postPackage commands
+     */
+    public boolean hasPackageCommands(Path path) {
+        JsonNode attiniConfig = attiniConfigFiles.getAttiniConfigFile(path).getAsJson();
+        return getCommandsForPhase(attiniConfig, "prePackage").isPresent()
+               || getCommandsForPhase(attiniConfig, "postPackage").isPresent();
+    }
+
+    /**
+     * The files a phase writes to are declared as paths, relative to the distribution root, in the "writes" list of
+     * the phase. A directory covers every file below it.
+     *
+     * @return the paths that the prePackage and postPackage commands write to, or empty if a phase with commands does
+     * not declare what it writes
+     */
+    public Optional<List<String>> getDeclaredWrites(Path path) {
+        JsonNode attiniConfig = attiniConfigFiles.getAttiniConfigFile(path).getAsJson();
+        List<String> writes = new ArrayList<>();
+        for (String phase : List.of("prePackage", "postPackage")) {
+            if (getCommandsForPhase(attiniConfig, phase).isEmpty()) {
+                continue;
+            }
+            JsonNode phaseWrites = attiniConfig.path("package").path(phase).path("writes");
+            if (!phaseWrites.isArray()) {
+                return Optional.empty();
+            }
+            for (JsonNode write : phaseWrites) {
+                Path writtenPath = Path.of(write.asText()).normalize();
+                if (writtenPath.isAbsolute() || writtenPath.startsWith("..")) {
+                    throw new AttiniConfigFileException("package." + phase + ".writes should only contain paths in the distribution, found: " + write.asText());
+                }
+                writes.add(writtenPath.toString());
+            }
+        }
+        return Optional.of(writes);
+    }
+
     public void runCommandsForPhase(Path path, String phase, Path envConfigPath) {
         final String marker = "#######";
 
@@ -10,14 +10,26 @@ import static se.attini.util.PathUtil.transformPathToRelative;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.Deflater;
 
 import org.apache.commons.io.FileUtils;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import se.attini.EnvironmentVariables;
 import se.attini.cli.PrintUtil;
 import se.attini.cli.deployment.DataEmitter;
@@ -25,13 +37,21 @@ import se.attini.cli.global.GlobalConfig;
 import se.attini.deployment.file.FileUtil;
 import se.attini.deployment.file.config.AttiniConfigFileException;
 import se.attini.deployment.file.config.AttiniConfigFiles;
-import se.attini.deployment.file.ignore.AttiniIgnoreFile;
 import se.attini.deployment.file.ignore.AttiniIgnoreFiles;
-import se.attini.deployment.file.ignore.FilePatterns;
+import se.attini.deployment.file.ignore.IgnoreMatcher;
+import se.attini.deployment.zip.ArchiveManifest;
+import se.attini.deployment.zip.CompressionPolicy;
+import se.attini.deployment.zip.ZipException;
+import se.attini.deployment.zip.ZipRequest;
+import se.attini.deployment.zip.ZipResult;
 import se.attini.domain.DistributionId;
+import se.attini.pack.Metadata.SamProject;
 
 public class PackageDistributionService {
 
+    // the previous archive is kept in the project directory while packaging, so it is never staged
+    private static final String PREVIOUS_ARCHIVE_PREFIX = ".attini-previous";
+
     private final LifeCycleHooksService lifeCycleHooksService;
     private final AttiniIgnoreFiles attiniIgnoreFiles;
     private final AttiniConfigFiles attiniConfigFiles;
@@ -66,8 +86,17 @@ public class PackageDistributionService {
                                     boolean runLoginCommands,
                                     DistributionId distributionId,
                                     boolean skipCommands,
-                                    String version) {
+                                    String version,
+                                    Integer compressionThreads) {
+
 
+        boolean incremental = !containerBuild && !environmentVariables.isDisableIncrementalPackaging();
+        Path manifestFile = getManifestFile(destPath);
+        Optional<ArchiveManifest> previousManifest = incremental
+                                                     ? ArchiveManifest.read(manifestFile, destPath)
+                                                     : Optional.empty();
+        // the previous archive is usually located in the dist folder, so it is moved out of the way before it is deleted
+        Path previousArchive = previousManifest.isPresent() ? moveToTempFile(path, destPath) : null;
 
         File distFolder = new File(path + "/attini_dist");
         if (distFolder.exists() && distFolder.isDirectory()) {
@@ -88,8 +117,10 @@ public class PackageDistributionService {
 
             String debugCommand = globalConfig.isDebug() ? " --debug " : "";
 
+            String compressionThreadsFlag = compressionThreads == null ? "" : " --compression-threads " + compressionThreads;
+
             String command = loginCommandsString + "docker run -v " + path.toAbsolutePath() + ":/mnt/attini " + getDockerOptions(
-                    path) + "-w /mnt/attini " + attiniConfigFiles.getImageURI(path) + " /bin/bash -c \"attini distribution package ." + envConfigPathFlag + distIdFlag + skippCommands + debugCommand + "\"";
+                    path) + "-w /mnt/attini " + attiniConfigFiles.getImageURI(path) + " /bin/bash -c \"attini distribution package ." + envConfigPathFlag + distIdFlag + skippCommands + debugCommand + compressionThreadsFlag + "\"";
 
             dataEmitter.emitKeyValue("Package command", command);
             int exitCode = runCommand(command);
@@ -100,6 +131,8 @@ public class PackageDistributionService {
 
         } else {
 
+            int threads = getCompressionThreads(compressionThreads);
+
             dataEmitter.emitKeyValue("Packaging distribution",
                                      attiniConfigFiles.getDistributionName(path).getName(),
                                      BLUE);
@@ -110,11 +143,12 @@ public class PackageDistributionService {
             }
             dataEmitter.emitString("Creating temp directory");
 
-            Path tempDirectory = createTempDirectory();
+            StagingPlan stagingPlan = getStagingPlan(path, skipCommands, envConfigPath);
+            Path tempDirectory = createTempDirectory(path, stagingPlan.linkFiles());
 
 
             addCleanupHook(tempDirectory);
-            copyDirectory(path, tempDirectory);
+            stageDirectory(path, tempDirectory, stagingPlan);
 
             if (version != null) {
                 validateVersion(version);
@@ -152,19 +186,32 @@ public class PackageDistributionService {
                              .ifPresent(initTemplatePath -> prepareDistributionService.prepareDistribution(
                                      initTemplatePath, tempDirectory));
 
-            AttiniIgnoreFile attiniIgnoreFile = attiniIgnoreFiles.getAttiniIgnoreFile(tempDirectory);
-            FileUtil.validateDirectory(tempDirectory, attiniIgnoreFile.getIgnores(tempDirectory));
-
-            byte[] bytes = zipDirectory(tempDirectory, attiniIgnoreFile.getIgnores(tempDirectory));
-
-            File zip = createZip(bytes, destPath.getFileName().toString(), tempDirectory);
+            IgnoreMatcher ignores = attiniIgnoreFiles.getAttiniIgnoreFile(tempDirectory)
+                                                     .getIgnoreMatcher(tempDirectory);
+
+            Path zip = Path.of(tempDirectory.toString(), destPath.getFileName().toString());
+            ZipResult zipResult = createZip(ZipRequest.builder()
+                                                      .setPath(tempDirectory)
+                                                      .setDestination(zip)
+                                                      .setIgnores(ignores)
+                                                      .setThreads(threads)
+                                                      .setPolicy(getCompressionPolicy(tempDirectory))
+                                                      .setValidator(FileUtil.fileNameValidator())
+                                                      .setPrevious(previousArchive, previousManifest.orElse(null))
+                                                      .build());
+            if (previousArchive != null) {
+                FileUtils.deleteQuietly(previousArchive.toFile());
+            }
 
 
             if (!skipCommands) {
                 lifeCycleHooksService.runPostBuildCommands(tempDirectory, envConfigPath);
             }
 
-            moveFile(destFile, zip);
+            moveFile(destFile, zip.toFile());
+            if (incremental) {
+                zipResult.getManifest().write(manifestFile, destPath);
+            }
             dataEmitter.emitString("Distribution created: " + PrintUtil.toGreen(destFile.toPath().toString()));
 
         }
@@ -199,6 +246,16 @@ public class PackageDistributionService {
         }
     }
 
+    private static int getCompressionThreads(Integer compressionThreads) {
+        if (compressionThreads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        if (compressionThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of compression threads. At least one thread is required.");
+        }
+        return compressionThreads;
+    }
+
     private int runCommand(String command) {
         try {
 
@@ -237,34 +294,183 @@ public class PackageDistributionService {
         return String.join(" ", options) + " ";
     }
 
-    private File createZip(byte[] bytes, String fileName, Path path) {
+    private ZipResult createZip(ZipRequest request) {
+        ZipResult result;
         try {
-            return Files.write(Path.of(path.toString() + "/" + fileName), bytes).toFile();
-        } catch (IOException e) {
+            result = zipDirectory(request);
+        } catch (ZipException e) {
             throw new AttiniFileSystemException("Could not create final package", e);
         }
+        if (globalConfig.isDebug()) {
+            dataEmitter.emitString("Listed files in " + result.getWalkTime().toMillis() + " ms"
+                                   + ", files: " + result.getFiles()
+                                   + ", directories: " + result.getDirectories()
+                                   + ", ignored: " + result.getIgnored());
+            dataEmitter.emitString("Zipped files in " + result.getCompressionTime().toMillis() + " ms"
+                                   + ", deflated: " + result.getDeflated()
+                                   + ", stored: " + result.getStored()
+                                   + ", reused: " + result.getReused());
+        }
+        return result;
+    }
+
+    private CompressionPolicy getCompressionPolicy(Path path) {
+        JsonNode compression = attiniConfigFiles.getAttiniConfigFile(path)
+                                                .getAsJson()
+                                                .path("package")
+                                                .path("compression");
+        if (compression.isMissingNode()) {
+            return CompressionPolicy.defaultPolicy();
+        }
+        JsonNode level = compression.path("level");
+        if (!level.isMissingNode() && !level.isInt()) {
+            throw new AttiniConfigFileException("package.compression.level should be an integer between 0 and 9");
+        }
+        JsonNode storedExtensions = compression.path("storedExtensions");
+        if (!storedExtensions.isMissingNode() && !storedExtensions.isArray()) {
+            throw new AttiniConfigFileException("package.compression.storedExtensions should be a list of file extensions");
+        }
+        JsonNode minimumSavings = compression.path("minimumSavings");
+        if (!minimumSavings.isMissingNode() && !minimumSavings.isNumber()) {
+            throw new AttiniConfigFileException("package.compression.minimumSavings should be a number between 0 and 1");
+        }
+        List<String> extensions = new ArrayList<>();
+        storedExtensions.forEach(extension -> extensions.add(extension.asText()));
+        try {
+            return CompressionPolicy.create(level.asInt(Deflater.DEFAULT_COMPRESSION),
+                                            extensions,
+                                            minimumSavings.asDouble(CompressionPolicy.DEFAULT_MINIMUM_SAVINGS));
+        } catch (IllegalArgumentException e) {
+            throw new AttiniConfigFileException("Invalid package.compression in attini-config file. " + e.getMessage());
+        }
+    }
+
+    private Path getManifestFile(Path destPath) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                                       .digest(destPath.toAbsolutePath()
+                                                       .normalize()
+                                                       .toString()
+                                                       .getBytes(StandardCharsets.UTF_8));
+            return environmentVariables.getCacheDirectory()
+                                       .resolve("packages")
+                                       .resolve(HexFormat.of().formatHex(hash, 0, 16) + ".properties");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    private Path createTempDirectory() {
+    /**
+     * Moves the file to a temp file in the given directory. Unlike the default temp directory it is usually on the
+     * same file system as the file, so the move is a rename and not a copy.
+     */
+    private static Path moveToTempFile(Path directory, Path file) {
         try {
-            return Files.createTempDirectory("attini-temp");
+            Path tempFile = Files.createTempFile(directory, PREVIOUS_ARCHIVE_PREFIX, ".zip");
+            Files.move(file, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            tempFile.toFile().deleteOnExit();
+            return tempFile;
         } catch (IOException e) {
-            throw new AttiniFileSystemException("Could not create temp directory", e);
+            // the distribution will be compressed from scratch
+            return null;
         }
     }
 
-    private void copyDirectory(Path path, Path tempDirectory) {
+    private Path createTempDirectory(Path path, boolean linkFiles) {
+        Path tempDirectory;
+        try {
+            tempDirectory = Files.createTempDirectory("attini-temp");
+        } catch (IOException e) {
+            throw new AttiniFileSystemException("Could not create temp directory", e);
+        }
         try {
-            FileUtils.copyDirectory(path.toFile(),
-                                    tempDirectory.toFile(),
-                                    pathname -> !FilePatterns.patternMatchPath(TEMP_DIR_IGNORES,
-                                                                               pathname.toPath()) && !Files.isSymbolicLink(
-                                            pathname.toPath()),
-                                    true,
-                                    StandardCopyOption.REPLACE_EXISTING);
+            if (linkFiles && !Files.getFileStore(tempDirectory).equals(Files.getFileStore(path))) {
+                // files can only be linked within the same file system
+                Path linkableDirectory = Files.createTempDirectory(Files.createDirectories(path.resolve("attini_dist")),
+                                                                   "attini-temp");
+                Files.delete(tempDirectory);
+                return linkableDirectory;
+            }
         } catch (IOException e) {
-            throw new AttiniFileSystemException("Could not copy files", e);
+            // the files will be copied instead
+        }
+        return tempDirectory;
+    }
+
+    /**
+     * Files are linked into the staging area as long as every file that is written while packaging is known, that is
+     * the attini-config file, the init template, attini_data, the AttiniSam projects and what the package commands
+     * declare that they write. Otherwise every file is copied.
+     * <p>
+     * Ignored files are only left out if no package commands or SAM builds run, since they might read them.
+     */
+    private StagingPlan getStagingPlan(Path path, boolean skipCommands, Path envConfigPath) {
+        List<String> writtenPaths = new ArrayList<>();
+        boolean runsCommands = !skipCommands && lifeCycleHooksService.hasPackageCommands(path);
+        if (runsCommands) {
+            Optional<List<String>> declaredWrites = lifeCycleHooksService.getDeclaredWrites(path);
+            if (declaredWrites.isEmpty()) {
+                return new StagingPlan(false, false, List.of());
+            }
+            writtenPaths.addAll(declaredWrites.get());
+            if (envConfigPath != null && !envConfigPath.isAbsolute()) {
+                // made executable before the commands run
+                writtenPaths.add(envConfigPath.toString());
+            }
+        }
+        List<SamProject> samProjects;
+        try {
+            samProjects = attiniConfigFiles.getInitTemplatePath(path)
+                                           .map(prepareDistributionService::getSamProjects)
+                                           .orElse(List.of());
+        } catch (RuntimeException e) {
+            // reported when the distribution is prepared
+            return new StagingPlan(false, false, List.of());
+        }
+        samProjects.forEach(samProject -> writtenPaths.add(samProject.path()));
+        return new StagingPlan(true, !runsCommands && samProjects.isEmpty(), writtenPaths);
+    }
+
+    private void stageDirectory(Path path, Path tempDirectory, StagingPlan stagingPlan) {
+        Path source = path.toAbsolutePath().normalize();
+        List<String> ignores = new ArrayList<>(TEMP_DIR_IGNORES);
+        ignores.add("**/" + PREVIOUS_ARCHIVE_PREFIX + "*.zip");
+        Set<Path> required = new HashSet<>();
+        if (stagingPlan.applyIgnores()) {
+            ignores.addAll(attiniIgnoreFiles.getAttiniIgnoreFile(source).getIgnores(source));
+            required.add(source.resolve(".attini-ignore"));
+            attiniConfigFiles.getRawAttiniConfigFile(source).ifPresent(file -> required.add(file.toPath()));
+            attiniConfigFiles.getInitTemplatePath(source).ifPresent(file -> required.add(file.normalize()));
+        }
+        long start = System.nanoTime();
+        Path target = tempDirectory.toAbsolutePath().normalize();
+        StagingArea.Result result = new StagingArea(IgnoreMatcher.compile(ignores), required, stagingPlan.linkFiles())
+                .stage(source, target);
+        if (result.getLinked() > 0) {
+            // edited while packaging
+            attiniConfigFiles.getRawAttiniConfigFile(tempDirectory).ifPresent(file -> StagingArea.detach(file.toPath()));
+            attiniConfigFiles.getInitTemplatePath(tempDirectory).ifPresent(StagingArea::detach);
+            StagingArea.detach(tempDirectory.resolve("attini_data"));
+            for (String writtenPath : stagingPlan.writtenPaths()) {
+                Path staged = Path.of(target.toString(), writtenPath).normalize();
+                // files outside the distribution are not staged
+                if (staged.startsWith(target)) {
+                    StagingArea.detach(staged);
+                }
+            }
         }
+        if (globalConfig.isDebug()) {
+            dataEmitter.emitString("Staged files in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms"
+                                   + ", linked: " + result.getLinked()
+                                   + ", copied: " + result.getCopied()
+                                   + ", ignored: " + result.getIgnored());
+        }
+    }
+
+    /**
+     * @param writtenPaths paths relative to the distribution root that are written to while packaging
+     */
+    private record StagingPlan(boolean linkFiles, boolean applyIgnores, List<String> writtenPaths) {
     }
 
     private void addCleanupHook(Path tempDirectory) {
@@ -8,8 +8,9 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -17,9 +18,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import se.attini.EnvironmentVariables;
-import se.attini.deployment.zip.ZipException;
-import se.attini.deployment.zip.ZipUtil;
+import se.attini.cli.deployment.DataEmitter;
 import se.attini.inittemplate.InitTemplateReader;
+import se.attini.inittemplate.Step;
 import se.attini.inittemplate.Steps;
 import se.attini.pack.Metadata.SamProject;
 import se.attini.util.ObjectMapperFactory;
@@ -30,14 +31,17 @@ public class PrepareDistributionService {
     private final ObjectMapperFactory objectMapperFactory;
     private final EnvironmentVariables environmentVariables;
     private final TransformSimpleSyntax transformSimpleSyntax;
+    private final DataEmitter dataEmitter;
 
 
     public PrepareDistributionService(ObjectMapperFactory objectMapperFactory,
                                       EnvironmentVariables environmentVariables,
-                                      TransformSimpleSyntax transformSimpleSyntax) {
+                                      TransformSimpleSyntax transformSimpleSyntax,
+                                      DataEmitter dataEmitter) {
         this.objectMapperFactory = requireNonNull(objectMapperFactory, "objectMapperFactory");
         this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
         this.transformSimpleSyntax = requireNonNull(transformSimpleSyntax, "transformSimpleSyntax");
+        this.dataEmitter = requireNonNull(dataEmitter, "dataEmitter");
     }
 
 
@@ -46,25 +50,10 @@ public class PrepareDistributionService {
 
             InitTemplateReader initTemplateReader = InitTemplateReader.create(initTemplatePath.toFile(), objectMapperFactory.getYamlMapper());
 
-            initTemplateReader.getDeploymentPlan()
-                              .filter(deploymentPlanEntry -> deploymentPlanEntry.deploymentPlanFormat() == SIMPLE)
-                              .ifPresent(deploymentPlanEntry -> {
-                                  try {
-                                      JsonNode deploymentPlan = deploymentPlanEntry.deploymentPlan()
-                                                                         .get("Properties")
-                                                                         .path("DeploymentPlan");
-                                      JsonNode transformedSteps = transformSimpleSyntax.transform(deploymentPlan);
-                                      JsonNode initTemplate = initTemplateReader.getInitTemplate();
-                                      ObjectNode properties = (ObjectNode) deploymentPlanEntry.deploymentPlan()
-                                                                                              .get("Properties");
-                                      properties.set("DeploymentPlan", transformedSteps);
-                                      objectMapperFactory.getJsonMapper()
-                                                         .writeValue(initTemplatePath.toFile(), initTemplate);
-
-                                  } catch (IOException e) {
-                                      throw new UncheckedIOException(e);
-                                  }
-                              });
+            if (transformSimpleSyntax(initTemplateReader)) {
+                objectMapperFactory.getJsonMapper()
+                                   .writeValue(initTemplatePath.toFile(), initTemplateReader.getInitTemplate());
+            }
 
 
             Steps stepsByType = initTemplateReader.getStepsByType(Set.of("AttiniCfn",
@@ -80,25 +69,7 @@ public class PrepareDistributionService {
                                              .map(JsonNode::asText)
                                              .collect(Collectors.toSet());
 
-            List<SamProject> samProjects = stepsByType.get("AttiniSam")
-                                                      .stream()
-                                                      .map(step -> {
-                                                          JsonNode node = step.definition().path("Properties")
-                                                                              .path("Project");
-                                                          if (node.isMissingNode() && !node.isObject()) {
-                                                              throw new IllegalArgumentException(
-                                                                      "Missing Properties.Project in Sam step: " + step.name());
-                                                          }
-
-                                                          if (!node.isObject()) {
-                                                              throw new IllegalArgumentException(
-                                                                      " Illegal format for Properties.Project in Sam step: " + step.name() + ". Project should be an object");
-                                                          }
-                                                          return new SamProject(node.path("Path").textValue(),
-                                                                                node.path("BuildDir").textValue(),
-                                                                                node.path("Template").textValue(),
-                                                                                step.name());
-                                                      }).toList();
+            List<SamProject> samProjects = toSamProjects(stepsByType.get("AttiniSam"));
 
             Path attiniDataFolder = Files.createDirectories(Path.of(root.toString(), "attini_data"));
 
@@ -107,18 +78,20 @@ public class PrepareDistributionService {
                 Files.writeString(samBuildFile, SamPackageCommand.PACKAGE_COMMANDS);
             }
 
+            Map<Path, SamProject> samProjectsByPath = new LinkedHashMap<>();
             samProjects.forEach(samProject -> {
                 Path projectPath = Path.of(root.toString(), samProject.path());
-                Path buildDir = Path.of(projectPath.toString(), samProject.buildDir());
-
                 validateSamTemplate(samProject, projectPath);
-
-                if (!buildDir.toFile().exists()) {
-                    buildSamProject(samProject, projectPath);
-                }
-                zipSamProject(projectPath);
-
+                samProjectsByPath.put(projectPath, samProject);
             });
+            new SamProjectBuilder(dataEmitter,
+                                  environmentVariables.getSamBuildParallelism()
+                                                      .orElse(Runtime.getRuntime().availableProcessors()),
+                                  this::samBuildCommand,
+                                  environmentVariables.isDisableSamBuildCache()
+                                  ? null
+                                  : new SamBuildCache(environmentVariables.getSamBuildCacheDirectory(),
+                                                      this::getSamVersion)).buildAll(samProjectsByPath);
 
             validateRunners(initTemplateReader, runners);
 
@@ -133,6 +106,58 @@ public class PrepareDistributionService {
 
     }
 
+    /**
+     * @return the projects of the AttiniSam steps in the init template, read without changing the template
+     */
+    public List<SamProject> getSamProjects(Path initTemplatePath) {
+        InitTemplateReader initTemplateReader = InitTemplateReader.create(initTemplatePath.toFile(),
+                                                                          objectMapperFactory.getYamlMapper());
+        transformSimpleSyntax(initTemplateReader);
+        return toSamProjects(initTemplateReader.getStepsByType(Set.of("AttiniSam")).get("AttiniSam"));
+    }
+
+    /**
+     * Transforms a deployment plan in the simple syntax to the state language, in the template of the reader.
+     *
+     * @return true if the deployment plan was transformed
+     */
+    private boolean transformSimpleSyntax(InitTemplateReader initTemplateReader) {
+        return initTemplateReader.getDeploymentPlan()
+                                 .filter(deploymentPlanEntry -> deploymentPlanEntry.deploymentPlanFormat() == SIMPLE)
+                                 .map(deploymentPlanEntry -> {
+                                     JsonNode deploymentPlan = deploymentPlanEntry.deploymentPlan()
+                                                                                  .get("Properties")
+                                                                                  .path("DeploymentPlan");
+                                     JsonNode transformedSteps = transformSimpleSyntax.transform(deploymentPlan);
+                                     ObjectNode properties = (ObjectNode) deploymentPlanEntry.deploymentPlan()
+                                                                                             .get("Properties");
+                                     properties.set("DeploymentPlan", transformedSteps);
+                                     return true;
+                                 })
+                                 .orElse(false);
+    }
+
+    private static List<SamProject> toSamProjects(List<Step> steps) {
+        return steps.stream()
+                    .map(step -> {
+                        JsonNode node = step.definition().path("Properties")
+                                            .path("Project");
+                        if (node.isMissingNode() && !node.isObject()) {
+                            throw new IllegalArgumentException(
+                                    "Missing Properties.Project in Sam step: " + step.name());
+                        }
+
+                        if (!node.isObject()) {
+                            throw new IllegalArgumentException(
+                                    " Illegal format for Properties.Project in Sam step: " + step.name() + ". Project should be an object");
+                        }
+                        return new SamProject(node.path("Path").textValue(),
+                                              node.path("BuildDir").textValue(),
+                                              node.path("Template").textValue(),
+                                              step.name());
+                    }).toList();
+    }
+
     private void validateSamTemplate(SamProject samProject, Path projectPath) {
         Path template = Path.of(projectPath.toString(), samProject.template());
         if (!template.toFile().exists()) {
@@ -162,37 +187,29 @@ public class PrepareDistributionService {
         }
     }
 
-    private void buildSamProject(SamProject samProject, Path projectPath) {
+    private String getSamVersion() {
         try {
-            String buildDirOption = "--build-dir %s".formatted(samProject.buildDir());
-            String templateOption = "--template %s".formatted(samProject.template());
-            int exitCode = new ProcessBuilder()
-                    .redirectErrorStream(true)
-                    .inheritIO()
-                    .command(List.of(environmentVariables.getShell(),
-                                     "-c",
-                                     "cd " + projectPath + "; sam build %s %s".formatted(buildDirOption,
-                                                                                         templateOption)))
-                    .start()
-                    .waitFor();
-
-            if (exitCode != 0) {
-                throw new RuntimeException("Could not package sam, exit code: " + exitCode);
-            }
-        } catch (InterruptedException | IOException e) {
-            throw new RuntimeException(e);
+            Process process = new ProcessBuilder().redirectErrorStream(true)
+                                                  .command(List.of(environmentVariables.getShell(),
+                                                                   "-c",
+                                                                   "sam --version"))
+                                                  .start();
+            String version = new String(process.getInputStream().readAllBytes()).trim();
+            return process.waitFor() == 0 ? version : "unknown";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptExecutionException("Interrupted while reading the sam version", e);
         }
     }
 
-    private static void zipSamProject(Path path1) {
-        try {
-            byte[] bytes = ZipUtil.zipDirectory(path1, Collections.emptyList());
-            Files.write(Path.of(path1.toString(), "attiniSamProject.zip"), bytes);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (ZipException e) {
-            throw new RuntimeException("Could not zip sam project: " + e.getMessage(), e);
-        }
+    private List<String> samBuildCommand(SamProject samProject, Path projectPath) {
+        String buildDirOption = "--build-dir %s".formatted(samProject.buildDir());
+        String templateOption = "--template %s".formatted(samProject.template());
+        return List.of(environmentVariables.getShell(),
+                       "-c",
+                       "cd " + projectPath + "; sam build %s %s".formatted(buildDirOption, templateOption));
     }
 
     private void validateRunners(InitTemplateReader initTemplateReader, Set<String> runners) {
@@ -0,0 +1,219 @@
+package se.attini.pack;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.attini.inittemplate.InitTemplateReader;
+import se.attini.pack.Metadata.SamProject;
+
+/**
+ * Caches the build output and zip of SAM projects by a hash of the project sources, the template, the build directory
+ * and the version of the SAM CLI. The cache directory can be shared between machines, entries are written to a
+ * temporary directory first and then moved into place, so a reader never sees a half written entry.
+ * <p>
+ * Local code and content locations in the template that are outside the project, like a shared library in a sibling
+ * directory, are hashed as well. Projects with locations that can not be resolved without deploying the template, for
+ * example built with intrinsic functions, are not cached.
+ */
+class SamBuildCache {
+
+    static final String ZIP_FILE_NAME = "attiniSamProject.zip";
+    private static final String BUILD_DIR = "build";
+    private static final String SAM_WORK_DIR = ".aws-sam";
+    private static final List<String> LOCATION_PROPERTIES = List.of("CodeUri", "ContentUri", "DefinitionUri");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path directory;
+    private final Supplier<String> samVersionSupplier;
+    private String samVersion;
+
+    SamBuildCache(Path directory, Supplier<String> samVersion) {
+        this.directory = requireNonNull(directory, "directory");
+        this.samVersionSupplier = requireNonNull(samVersion, "samVersion");
+    }
+
+    /**
+     * @return the key of the project, or null if the project should not be cached
+     */
+    String getKey(SamProject samProject, Path projectPath) {
+        Path projectDir = projectPath.normalize();
+        Optional<List<Path>> externalLocations = getExternalLocations(samProject, projectDir);
+        if (externalLocations.isEmpty()) {
+            return null;
+        }
+        MessageDigest digest = sha256();
+        update(digest, getSamVersion());
+        update(digest, samProject.template());
+        update(digest, samProject.buildDir());
+        Path buildDir = projectDir.resolve(samProject.buildDir()).normalize();
+        try {
+            updateWithFiles(digest,
+                            projectDir,
+                            file -> !file.startsWith(buildDir)
+                                    && !file.startsWith(projectDir.resolve(SAM_WORK_DIR))
+                                    && !file.equals(projectDir.resolve(ZIP_FILE_NAME)));
+            for (Path location : externalLocations.get()) {
+                update(digest, projectDir.relativize(location).toString().replace('\\', '/'));
+                if (Files.exists(location)) {
+                    updateWithFiles(digest, location, file -> true);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not hash sam project " + samProject.path(), e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return the local locations in the template that are outside the project, or empty if a location can not be
+     * resolved
+     */
+    private static Optional<List<Path>> getExternalLocations(SamProject samProject, Path projectDir) {
+        Path template = projectDir.resolve(samProject.template()).normalize();
+        JsonNode templateNode;
+        try {
+            templateNode = InitTemplateReader.create(template.toFile(), OBJECT_MAPPER).getInitTemplate();
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+        List<JsonNode> locations = new ArrayList<>();
+        templateNode.path("Globals").forEach(section -> LOCATION_PROPERTIES.forEach(property -> locations.add(section.path(property))));
+        templateNode.path("Resources").forEach(resource -> {
+            LOCATION_PROPERTIES.forEach(property -> locations.add(resource.path("Properties").path(property)));
+            if (resource.path("Type").asText().equals("AWS::Serverless::Application")) {
+                locations.add(resource.path("Properties").path("Location"));
+            }
+            locations.add(resource.path("Metadata").path("DockerContext"));
+        });
+
+        List<Path> external = new ArrayList<>();
+        for (JsonNode location : locations) {
+            if (location.isMissingNode() || location.isNull() || location.has("Bucket") || location.has("ApplicationId")) {
+                continue;
+            }
+            if (!location.isTextual()) {
+                return Optional.empty();
+            }
+            String value = location.asText();
+            if (value.startsWith("s3://") || value.startsWith("https://")) {
+                continue;
+            }
+            Path path = template.getParent().resolve(value).normalize();
+            if (!path.startsWith(projectDir)) {
+                external.add(path);
+            }
+        }
+        return Optional.of(external.stream().distinct().sorted().toList());
+    }
+
+    private static void updateWithFiles(MessageDigest digest, Path root, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(filter)
+                                  .filter(file -> Files.isRegularFile(file) || Files.isSymbolicLink(file))
+                                  .sorted()
+                                  .toList()) {
+                update(digest, root.relativize(file).toString().replace('\\', '/'));
+                if (Files.isSymbolicLink(file)) {
+                    update(digest, Files.readSymbolicLink(file).toString());
+                } else {
+                    update(digest, String.valueOf(Files.size(file)));
+                    updateWithContent(digest, file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the cached build output and zip into the project.
+     *
+     * @return false if there is no entry for the key
+     */
+    boolean restore(String key, SamProject samProject, Path projectPath) {
+        Path entry = directory.resolve(key);
+        if (!Files.isRegularFile(entry.resolve(ZIP_FILE_NAME)) || !Files.isDirectory(entry.resolve(BUILD_DIR))) {
+            return false;
+        }
+        try {
+            FileUtils.copyDirectory(entry.resolve(BUILD_DIR).toFile(),
+                                    projectPath.resolve(samProject.buildDir()).toFile());
+            Files.copy(entry.resolve(ZIP_FILE_NAME),
+                       projectPath.resolve(ZIP_FILE_NAME),
+                       StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore sam build from " + entry, e);
+        }
+    }
+
+    /**
+     * Stores the build output and zip of the project. Failing to store an entry does not fail the build.
+     */
+    void store(String key, SamProject samProject, Path projectPath) {
+        Path entry = directory.resolve(key);
+        if (Files.isDirectory(entry)) {
+            return;
+        }
+        Path tempEntry = directory.resolve(key + "." + UUID.randomUUID() + ".tmp");
+        try {
+            FileUtils.copyDirectory(projectPath.resolve(samProject.buildDir()).toFile(),
+                                    tempEntry.resolve(BUILD_DIR).toFile());
+            Files.copy(projectPath.resolve(ZIP_FILE_NAME), tempEntry.resolve(ZIP_FILE_NAME));
+            Files.move(tempEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // another process may have stored the same entry, the cache is only an optimization either way
+            FileUtils.deleteQuietly(tempEntry.toFile());
+        }
+    }
+
+    private synchronized String getSamVersion() {
+        if (samVersion == null) {
+            samVersion = samVersionSupplier.get();
+        }
+        return samVersion;
+    }
+
+    private static void updateWithContent(MessageDigest digest, Path file) throws IOException {
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
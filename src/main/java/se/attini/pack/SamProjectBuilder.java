@@ -0,0 +1,174 @@
+package se.attini.pack;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import se.attini.cli.deployment.DataEmitter;
+import se.attini.deployment.zip.ZipException;
+import se.attini.deployment.zip.ZipRequest;
+import se.attini.deployment.zip.ZipUtil;
+import se.attini.pack.Metadata.SamProject;
+
+/**
+ * Builds and zips the projects of AttiniSam steps concurrently. The output of each build is emitted line by line,
+ * prefixed with the name of the step. The first build that fails cancels the others.
+ * <p>
+ * Projects that already contain their build directory are only zipped. Other projects are restored from the build
+ * cache if their sources have been built before.
+ */
+class SamProjectBuilder {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final DataEmitter dataEmitter;
+    private final int parallelism;
+    private final BiFunction<SamProject, Path, List<String>> buildCommand;
+    private final SamBuildCache buildCache;
+
+    /**
+     * @param buildCache the cache of earlier builds, or null to always build
+     */
+    SamProjectBuilder(DataEmitter dataEmitter,
+                      int parallelism,
+                      BiFunction<SamProject, Path, List<String>> buildCommand,
+                      SamBuildCache buildCache) {
+        this.dataEmitter = requireNonNull(dataEmitter, "dataEmitter");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid SAM build parallelism. At least one build has to run at a time.");
+        }
+        this.parallelism = parallelism;
+        this.buildCommand = requireNonNull(buildCommand, "buildCommand");
+        this.buildCache = buildCache;
+    }
+
+    /**
+     * @param projects the projects to build, keyed by the directory of the project
+     */
+    void buildAll(Map<Path, SamProject> projects) {
+        if (projects.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, projects.size()), runnable -> {
+            Thread thread = new Thread(runnable, "attini-sam-build-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutorCompletionService<SamProject> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<SamProject>, SamProject> builds = new HashMap<>();
+        Set<Process> processes = ConcurrentHashMap.newKeySet();
+        try {
+            projects.forEach((projectPath, samProject) -> builds.put(completionService.submit(() -> {
+                build(samProject, projectPath, processes);
+                return samProject;
+            }), samProject));
+
+            for (int i = 0; i < builds.size(); i++) {
+                Future<SamProject> completed = completionService.take();
+                try {
+                    completed.get();
+                } catch (ExecutionException e) {
+                    builds.keySet().forEach(future -> future.cancel(true));
+                    // reading the output of a build is not interruptible, so the running builds are stopped directly
+                    processes.forEach(SamProjectBuilder::stop);
+                    throw buildFailure(builds.get(completed), e.getCause(), builds);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptExecutionException("Interrupted while building SAM projects", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void build(SamProject samProject,
+                       Path projectPath,
+                       Set<Process> processes) throws IOException, InterruptedException {
+        if (Path.of(projectPath.toString(), samProject.buildDir()).toFile().exists()) {
+            zip(projectPath);
+            return;
+        }
+        String cacheKey = buildCache == null ? null : buildCache.getKey(samProject, projectPath);
+        if (cacheKey != null && buildCache.restore(cacheKey, samProject, projectPath)) {
+            dataEmitter.emitString("[" + samProject.stepName() + "] Restored build from cache");
+            return;
+        }
+        Process process = new ProcessBuilder().redirectErrorStream(true)
+                                              .directory(projectPath.toFile())
+                                              .command(buildCommand.apply(samProject, projectPath))
+                                              .start();
+        processes.add(process);
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("SAM build cancelled");
+            }
+            try (BufferedReader reader = process.inputReader()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    dataEmitter.emitString("[" + samProject.stepName() + "] " + line);
+                }
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new ScriptExecutionException("Could not package sam, exit code: " + exitCode);
+            }
+        } finally {
+            processes.remove(process);
+            stop(process);
+        }
+        zip(projectPath);
+        if (cacheKey != null) {
+            buildCache.store(cacheKey, samProject, projectPath);
+        }
+    }
+
+    private static void zip(Path projectPath) {
+        try {
+            ZipUtil.zipDirectory(ZipRequest.builder()
+                                           .setPath(projectPath)
+                                           .setDestination(Path.of(projectPath.toString(), SamBuildCache.ZIP_FILE_NAME))
+                                           .build());
+        } catch (ZipException e) {
+            throw new ScriptExecutionException("Could not zip sam project: " + e.getMessage(), e);
+        }
+    }
+
+    private static void stop(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private ScriptExecutionException buildFailure(SamProject failed,
+                                                  Throwable cause,
+                                                  Map<Future<SamProject>, SamProject> builds) {
+        List<String> cancelled = new ArrayList<>();
+        builds.forEach((future, samProject) -> {
+            if (future.isCancelled()) {
+                cancelled.add(samProject.stepName());
+            }
+        });
+        Collections.sort(cancelled);
+        String message = "SAM build failed for step " + failed.stepName() + ": " + cause.getMessage();
+        if (!cancelled.isEmpty()) {
+            message += ". Cancelled builds for steps: " + String.join(", ", cancelled);
+        }
+        return new ScriptExecutionException(message, cause);
+    }
+}
@@ -0,0 +1,138 @@
+package se.attini.pack;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import se.attini.deployment.file.ignore.IgnoreMatcher;
+
+/**
+ * Stages the files of a distribution in a separate directory so that the distribution can be edited and packaged
+ * without touching the original files.
+ * <p>
+ * Files are hard linked into the staging area when links are enabled and supported by the file system, otherwise
+ * they are copied. A linked file shares its content with the original, so a file has to be {@link #detach(Path)
+ * detached} before it is written to. Symbolic links are never staged, and neither is the staging area itself if it is
+ * located inside the source directory.
+ */
+class StagingArea {
+
+    private final IgnoreMatcher ignores;
+    private final Set<Path> required;
+    private final boolean linkFiles;
+
+    /**
+     * @param ignores the paths in the source directory that are not staged
+     * @param required the files in the source directory that are staged even if they are ignored
+     * @param linkFiles true if files should be hard linked instead of copied when possible
+     */
+    StagingArea(IgnoreMatcher ignores, Set<Path> required, boolean linkFiles) {
+        this.ignores = requireNonNull(ignores, "ignores");
+        this.required = requireNonNull(required, "required");
+        this.linkFiles = linkFiles;
+    }
+
+    Result stage(Path source, Path target) {
+        Result result = new Result();
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                private boolean link = linkFiles;
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (dir.equals(source)) {
+                        Files.createDirectories(target);
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (target.startsWith(dir)) {
+                        // the staging area is inside the source directory
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (ignores.matches(dir) || ignores.isSubtreeIgnored(dir)) {
+                        result.ignored++;
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Files.createDirectories(target.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isSymbolicLink() || !attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (ignores.matches(file) && !required.contains(file)) {
+                        result.ignored++;
+                        return FileVisitResult.CONTINUE;
+                    }
+                    Path stagedFile = target.resolve(source.relativize(file));
+                    if (link) {
+                        try {
+                            Files.createLink(stagedFile, file);
+                            result.linked++;
+                            return FileVisitResult.CONTINUE;
+                        } catch (IOException | UnsupportedOperationException e) {
+                            // e.g. different file systems, no point in trying again for the next file
+                            link = false;
+                        }
+                    }
+                    Files.copy(file, stagedFile, StandardCopyOption.COPY_ATTRIBUTES);
+                    result.copied++;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new AttiniFileSystemException("Could not copy files", e);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces a staged file, or every file below a staged directory, with a private copy so that writing to it does
+     * not change the original file.
+     */
+    static void detach(Path path) {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(Files::isRegularFile).forEach(StagingArea::detach);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (Files.isRegularFile(path)) {
+            Path copy = path.resolveSibling(path.getFileName() + ".detached");
+            try {
+                Files.copy(path, copy, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new AttiniFileSystemException("Could not copy file " + path, e);
+            }
+        }
+    }
+
+    static final class Result {
+        private int linked;
+        private int copied;
+        private int ignored;
+
+        int getLinked() {
+            return linked;
+        }
+
+        int getCopied() {
+            return copied;
+        }
+
+        int getIgnored() {
+            return ignored;
+        }
+    }
+}
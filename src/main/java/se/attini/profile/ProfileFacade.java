@@ -2,11 +2,9 @@ package se.attini.profile;
 
 import static java.util.Objects.requireNonNull;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -15,18 +13,28 @@ import se.attini.cli.global.GlobalConfig;
 import se.attini.domain.Profile;
 import se.attini.domain.Region;
 import software.amazon.awssdk.profiles.ProfileFile;
+import software.amazon.awssdk.profiles.ProfileFileLocation;
 
 
 public class ProfileFacade {
 
-    private final Map<Profile, Region> regionCache = new ConcurrentHashMap<>();
+    private static final String DEFAULT_PROFILE = "default";
+    private static final String REGION_CACHE_FILE = "profile-regions.properties";
+
+    private final Map<String, Region> regionCache = new ConcurrentHashMap<>();
     private final EnvironmentVariables environmentVariables;
     private final GlobalConfig globalConfig;
+    private final ProfileRegionResolver profileRegionResolver;
 
     public ProfileFacade(EnvironmentVariables environmentVariables,
                          GlobalConfig globalConfig) {
         this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
         this.globalConfig = requireNonNull(globalConfig, "globalConfig");
+        this.profileRegionResolver = new ProfileRegionResolver(environmentVariables.getCacheDirectory()
+                                                                                   .resolve(REGION_CACHE_FILE),
+                                                               List.of(ProfileFileLocation.configurationFilePath(),
+                                                                       ProfileFileLocation.credentialsFilePath()),
+                                                               ProfileFile::defaultProfileFile);
     }
 
     public List<Profile> loadProfiles() {
@@ -39,52 +47,28 @@ public class ProfileFacade {
     }
 
     private Region getProfileRegion(Profile profile) {
-        String awsRegion = environmentVariables.getAwsRegion();
-        if (awsRegion != null) {
-            return Region.create(awsRegion);
-        }
-        try {
-            Process process = new ProcessBuilder()
-                    .command(List.of(environmentVariables.getShell(),
-                                     "-c",
-                                     "export AWS_CLI_AUTO_PROMPT=off && aws configure get region --profile " + profile.getProfileName()))
-                    .start();
-            String region = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
-            if (region == null) {
-                throw new IllegalArgumentException("No region is configured for profile =" + profile.getProfileName());
-            }
-            return Region.create(region);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+        return getEnvironmentRegion()
+                .or(() -> profileRegionResolver.getRegion(profile.getProfileName()).map(Region::create))
+                .orElseThrow(() -> new IllegalArgumentException("No region is configured for profile =" + profile.getProfileName()));
     }
 
     private Region getProfileRegion() {
-        String awsRegion = environmentVariables.getAwsRegion();
-        if (awsRegion != null) {
-            return Region.create(awsRegion);
-        }
-        try {
-            Process process = new ProcessBuilder()
-                    .command(List.of(environmentVariables.getShell(),
-                                     "-c",
-                                     "export AWS_CLI_AUTO_PROMPT=off && aws configure get region"))
-                    .start();
-            String region = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
-            if (region == null) {
-                throw new IllegalArgumentException("No default region is configured");
-            }
-            return Region.create(region);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+        String profileName = Optional.ofNullable(environmentVariables.getAwsProfile()).orElse(DEFAULT_PROFILE);
+        return getEnvironmentRegion()
+                .or(() -> profileRegionResolver.getRegion(profileName).map(Region::create))
+                .orElseThrow(() -> new IllegalArgumentException("No default region is configured"));
+    }
+
+    private Optional<Region> getEnvironmentRegion() {
+        return Optional.ofNullable(environmentVariables.getAwsRegion())
+                       .or(() -> Optional.ofNullable(environmentVariables.getAwsDefaultRegion()))
+                       .filter(region -> !region.isBlank())
+                       .map(Region::create);
     }
 
     public Region getRegion() {
 
-        return regionCache.computeIfAbsent(globalConfig.getProfile().orElse(Profile.create("Default")), profile -> {
+        return regionCache.computeIfAbsent(globalConfig.getProfile().map(Profile::getProfileName).orElse(DEFAULT_PROFILE), profileName -> {
             if (globalConfig.getRegion().isPresent()) {
                 return globalConfig.getRegion().get();
             }
@@ -0,0 +1,125 @@
+package se.attini.profile;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.profiles.Profile;
+import software.amazon.awssdk.profiles.ProfileFile;
+
+/**
+ * Resolves the region of a profile from the shared AWS config and credentials files without starting the AWS CLI.
+ * <p>
+ * The region of the profile is used if set, otherwise the region of its sso-session section or of its source_profile
+ * chain. Resolved regions are cached on disk together with the modification times of the profile files, so the files
+ * are only parsed again after they have changed.
+ */
+class ProfileRegionResolver {
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String REGION_KEY_PREFIX = "region.";
+
+    private final Path cacheFile;
+    private final List<Path> profileFiles;
+    private final Supplier<ProfileFile> profileFileSupplier;
+
+    ProfileRegionResolver(Path cacheFile, List<Path> profileFiles, Supplier<ProfileFile> profileFileSupplier) {
+        this.cacheFile = requireNonNull(cacheFile, "cacheFile");
+        this.profileFiles = requireNonNull(profileFiles, "profileFiles");
+        this.profileFileSupplier = requireNonNull(profileFileSupplier, "profileFileSupplier");
+    }
+
+    Optional<String> getRegion(String profileName) {
+        String fingerprint = fingerprint();
+        Properties cache = readCache(fingerprint);
+        String cached = cache.getProperty(REGION_KEY_PREFIX + profileName);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<String> region = resolve(profileFileSupplier.get(), profileName);
+        region.ifPresent(value -> {
+            cache.setProperty(FINGERPRINT_KEY, fingerprint);
+            cache.setProperty(REGION_KEY_PREFIX + profileName, value);
+            writeCache(cache);
+        });
+        return region;
+    }
+
+    private static Optional<String> resolve(ProfileFile profileFile, String profileName) {
+        Set<String> visited = new HashSet<>();
+        Optional<Profile> profile = profileFile.profile(profileName);
+        while (profile.isPresent() && visited.add(profile.get().name())) {
+            Optional<String> region = profile.get()
+                                             .property("region")
+                                             .or(() -> getSsoSessionRegion(profileFile, profile.get()));
+            if (region.isPresent()) {
+                return region;
+            }
+            profile = profile.get().property("source_profile").flatMap(profileFile::profile);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> getSsoSessionRegion(ProfileFile profileFile, Profile profile) {
+        return profile.property("sso_session")
+                      .flatMap(session -> profileFile.getSection("sso-session", session))
+                      .flatMap(session -> session.property("region"));
+    }
+
+    private String fingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path file : profileFiles) {
+            fingerprint.append(file.toAbsolutePath()).append(':');
+            try {
+                fingerprint.append(Files.getLastModifiedTime(file).toMillis())
+                           .append(':')
+                           .append(Files.size(file));
+            } catch (IOException e) {
+                fingerprint.append("missing");
+            }
+            fingerprint.append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    private Properties readCache(String fingerprint) {
+        Properties cache = new Properties();
+        if (Files.isRegularFile(cacheFile)) {
+            try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                cache.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                return new Properties();
+            }
+        }
+        if (!fingerprint.equals(cache.getProperty(FINGERPRINT_KEY))) {
+            return new Properties();
+        }
+        return cache;
+    }
+
+    private void writeCache(Properties cache) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                cache.store(writer, null);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization
+        }
+    }
+}
@@ -85,55 +85,54 @@ public class SetupAttiniService {
                                        boolean follow) {
 
 
-            try(CloudFormationClient cloudFormationClient = awsClientFactory.cfnClient()) {
-                if (request.getUseExistingVersion().orElse(FALSE) && request.getVersion().isPresent()) {
-                    dataEmitter.emitString("Both --keep-version and --version has been specified. Select one and try again");
-                    return;
-                }
+            CloudFormationClient cloudFormationClient = awsClientFactory.cfnClient();
+            if (request.getUseExistingVersion().orElse(FALSE) && request.getVersion().isPresent()) {
+                dataEmitter.emitString("Both --keep-version and --version has been specified. Select one and try again");
+                return;
+            }
 
-                Map<String, Parameter> existingParams = getExistingParams(cloudFormationClient);
+            Map<String, Parameter> existingParams = getExistingParams(cloudFormationClient);
 
 
-                List<Parameter> parameters = request.isGuided() ? guidedSetup.getParametersGuided(existingParams) : allGivenParams(
-                        request);
+            List<Parameter> parameters = request.isGuided() ? guidedSetup.getParametersGuided(existingParams) : allGivenParams(
+                    request);
 
-                validateParameters(parameters);
+            validateParameters(parameters);
 
 
-                String url = createUrl(profileFacade.getRegion(), request.getVersion().orElse(
-                        "latest"));
-                Boolean acceptedInCommand = request.getAcceptLicenceAgreement()
-                                                   .orElse(FALSE);
+            String url = createUrl(profileFacade.getRegion(), request.getVersion().orElse(
+                    "latest"));
+            Boolean acceptedInCommand = request.getAcceptLicenceAgreement()
+                                               .orElse(FALSE);
 
 
-                if (acceptedInCommand) {
+            if (acceptedInCommand) {
+                parameters.add(toParameter(ACCEPT_LICENSE_AGREEMENT, true));
+            } else if (!hasAlreadyAcceptedLicenceAgreement(existingParams)) {
+                dataEmitter.emitString(
+                        "This is the first time you use Attini in this account and region. Therefore you need to accept the Attini licence agreement" +
+                        " Read more here: https://docs.attini.io/pricing-and-license/product-offering.html");
+                dataEmitter.emitString("Accept Attini licence agreement? (Y/N)");
+                String input = inputReader.getUserInput();
+                if (input.equalsIgnoreCase("y") || input.equalsIgnoreCase("Yes")) {
                     parameters.add(toParameter(ACCEPT_LICENSE_AGREEMENT, true));
-                } else if (!hasAlreadyAcceptedLicenceAgreement(existingParams)) {
-                    dataEmitter.emitString(
-                            "This is the first time you use Attini in this account and region. Therefore you need to accept the Attini licence agreement" +
-                            " Read more here: https://docs.attini.io/pricing-and-license/product-offering.html");
-                    dataEmitter.emitString("Accept Attini licence agreement? (Y/N)");
-                    String input = inputReader.getUserInput();
-                    if (input.equalsIgnoreCase("y") || input.equalsIgnoreCase("Yes")) {
-                        parameters.add(toParameter(ACCEPT_LICENSE_AGREEMENT, true));
-                    } else {
-                        dataEmitter.emitPrintItem(PrintItem.errorMessage("Aborted deployment"));
-                        return;
-                    }
-                }
-                if (existingParams.isEmpty()) {
-                    dataEmitter.emitString("Setting up Attini");
-                    cloudFormationClient.createStack(createStackRequest(url, parameters));
                 } else {
-                    dataEmitter.emitString("Updating Attini");
-                    updateStack(request, cloudFormationClient, parameters, url, existingParams);
+                    dataEmitter.emitPrintItem(PrintItem.errorMessage("Aborted deployment"));
+                    return;
                 }
+            }
+            if (existingParams.isEmpty()) {
+                dataEmitter.emitString("Setting up Attini");
+                cloudFormationClient.createStack(createStackRequest(url, parameters));
+            } else {
+                dataEmitter.emitString("Updating Attini");
+                updateStack(request, cloudFormationClient, parameters, url, existingParams);
+            }
 
-                if (follow) {
-                    pollDeploymentPlanCloudFormation(cloudFormationClient, dataEmitter);
-                } else {
-                    dataEmitter.emitPrintItem(PrintItem.successMessage("The Attini stack has been deployed!"));
-                }
+            if (follow) {
+                pollDeploymentPlanCloudFormation(cloudFormationClient, dataEmitter);
+            } else {
+                dataEmitter.emitPrintItem(PrintItem.successMessage("The Attini stack has been deployed!"));
             }
     }
 
@@ -24,20 +24,19 @@ public class SetupVersionsService {
 
     public List<String> getSetupVersions() {
 
-        try (S3Client s3Client = awsClientFactory.s3Client()) {
-            return s3Client.listObjectsV2(ListObjectsV2Request.builder()
-                                                              .bucket("attini-artifacts-" + profileFacade.getRegion().getName())
-                                                               .build())
-                           .contents()
-                           .stream()
-                           .map(S3Object::key)
-                           .map(s -> s.split("/")[1])
-                           .distinct()
-                           .filter(s -> !s.equals("latest"))
-                           .sorted(sortVersions())
-                           .limit(10)
-                           .collect(Collectors.toList());
-        }
+        S3Client s3Client = awsClientFactory.s3Client();
+        return s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                                                          .bucket("attini-artifacts-" + profileFacade.getRegion().getName())
+                                                           .build())
+                       .contents()
+                       .stream()
+                       .map(S3Object::key)
+                       .map(s -> s.split("/")[1])
+                       .distinct()
+                       .filter(s -> !s.equals("latest"))
+                       .sorted(sortVersions())
+                       .limit(10)
+                       .collect(Collectors.toList());
     }
 
     private Comparator<String> sortVersions() {
@@ -2,10 +2,15 @@ package se.attini.stackstatus;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import se.attini.AttiniNotInstalledException;
@@ -16,14 +21,24 @@ import se.attini.environment.EnvironmentUserInput;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.sfn.SfnClient;
 import software.amazon.awssdk.services.sfn.model.ExecutionListItem;
 import software.amazon.awssdk.services.sfn.model.ExecutionStatus;
 import software.amazon.awssdk.services.sfn.model.ListExecutionsRequest;
 
+/**
+ * Finds stacks that belong to a distribution but were not part of its latest deployment. All stacks of the
+ * environment are read once and indexed by distribution, and the latest executions of the deployment plans are
+ * checked concurrently.
+ */
 public class FindUnmanagedStackService {
 
+    private static final String TABLE_NAME = "AttiniResourceStatesV1";
+    private static final int CONCURRENCY = 8;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
     private final EnvironmentUserInput environmentUserInput;
     private final AwsClientFactory awsClientFactory;
     private final GlobalConfig globalConfig;
@@ -37,56 +52,124 @@ public class FindUnmanagedStackService {
     }
 
     public List<UnmanagedDistributionStacks> findUnmanagedStacks(FindUnmanagedStackRequest request) {
-        try (SfnClient sfnClient = awsClientFactory.sfnClient();
-             DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient()
-        ) {
-            return getInitDeployStacks(request, dynamoDbClient)
-                    .stream()
-                    .map(map -> findUnmanagedStacksFor(dynamoDbClient,
-                                                       sfnClient,
-                                                       map))
-                    .collect(Collectors.toList());
+        SfnClient sfnClient = awsClientFactory.sfnClient();
+        DynamoDbClient dynamoDbClient = awsClientFactory.dynamoClient();
+        Environment environment = environmentUserInput.getEnvironment(request);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY, runnable -> {
+            Thread thread = new Thread(runnable, "attini-unmanaged-stacks-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<Map<StackKey, List<Map<String, AttributeValue>>>> stackIndex =
+                    executor.submit(() -> indexStacks(dynamoDbClient, environment, request));
+
+            List<Map<String, AttributeValue>> initDeployStacks = getInitDeployStacks(request,
+                                                                                     environment,
+                                                                                     dynamoDbClient);
+
+            Map<String, Future<Boolean>> lastExecutionSucceeded = new HashMap<>();
+            initDeployStacks.stream()
+                            .filter(map -> map.containsKey("sfnArns"))
+                            .flatMap(map -> map.get("sfnArns").ss().stream())
+                            .forEach(sfnArn -> lastExecutionSucceeded.computeIfAbsent(
+                                    sfnArn,
+                                    arn -> executor.submit(() -> isLastExecutionSucceeded(sfnClient, arn))));
+
+            return initDeployStacks.stream()
+                                   .map(map -> findUnmanagedStacksFor(map,
+                                                                      lastExecutionSucceeded,
+                                                                      stackIndex))
+                                   .collect(Collectors.toList());
         } catch (ResourceNotFoundException e) {
             throw new AttiniNotInstalledException();
+        } finally {
+            executor.shutdownNow();
         }
 
 
     }
 
     private List<Map<String, AttributeValue>> getInitDeployStacks(FindUnmanagedStackRequest request,
+                                                                  Environment environment,
                                                                   DynamoDbClient dynamoDbClient) {
 
-        Environment environment = environmentUserInput.getEnvironment(request);
+        return query(dynamoDbClient, "InitDeployCloudformationStack", null)
+                .stream()
+                .filter(map -> map.get("environment").s().equals(environment.getName().getName()))
+                .filter(map -> {
+                    if (request.getDistributionName().isPresent()) {
+                        return request.getDistributionName()
+                                      .get()
+                                      .getName()
+                                      .equals(map.get("distributionName").s());
+                    }
+                    return true;
+                }).collect(Collectors.toList());
 
+    }
 
-        return dynamoDbClient.query(QueryRequest.builder().tableName(
-                                                        "AttiniResourceStatesV1")
-                                                .keyConditionExpression(
-                                                        "resourceType=:v_resourceType")
-                                                .expressionAttributeValues(
-                                                        Map.of(":v_resourceType",
-                                                               AttributeValue.builder()
-                                                                             .s("InitDeployCloudformationStack")
-                                                                             .build()))
-                                                .build())
-                             .items()
-                             .stream()
-                             .filter(map -> map.get("environment").s().equals(environment.getName().getName()))
-                             .filter(map -> {
-                                 if (request.getDistributionName().isPresent()) {
-                                     return request.getDistributionName()
-                                                   .get()
-                                                   .getName()
-                                                   .equals(map.get("distributionName").s());
-                                 }
-                                 return true;
-                             }).collect(Collectors.toList());
+    private static Map<StackKey, List<Map<String, AttributeValue>>> indexStacks(DynamoDbClient dynamoDbClient,
+                                                                               Environment environment,
+                                                                               FindUnmanagedStackRequest request) {
+        return query(dynamoDbClient,
+                     "CloudformationStack",
+                     "#name, distributionName, distributionId, environment")
+                .stream()
+                .filter(map -> map.containsKey("environment") && map.containsKey("distributionName"))
+                .filter(map -> map.get("environment").s().equals(environment.getName().getName()))
+                .filter(map -> request.getDistributionName()
+                                      .map(name -> name.getName().equals(map.get("distributionName").s()))
+                                      .orElse(true))
+                .collect(Collectors.groupingBy(map -> new StackKey(map.get("environment").s(),
+                                                                   map.get("distributionName").s())));
+    }
+
+    private static List<Map<String, AttributeValue>> query(DynamoDbClient dynamoDbClient,
+                                                           String resourceType,
+                                                           String projection) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryRequest.Builder builder = QueryRequest.builder()
+                                                       .tableName(TABLE_NAME)
+                                                       .keyConditionExpression("resourceType=:v_resourceType")
+                                                       .expressionAttributeValues(
+                                                               Map.of(":v_resourceType",
+                                                                      AttributeValue.builder()
+                                                                                    .s(resourceType)
+                                                                                    .build()))
+                                                       .exclusiveStartKey(exclusiveStartKey);
+            if (projection != null) {
+                builder.projectionExpression(projection)
+                       .expressionAttributeNames(Map.of("#name", "name"));
+            }
+            QueryResponse response = dynamoDbClient.query(builder.build());
+            items.addAll(response.items());
+            exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                                ? response.lastEvaluatedKey()
+                                : null;
+        } while (exclusiveStartKey != null);
+        return items;
+    }
 
+    private static boolean isLastExecutionSucceeded(SfnClient client, String sfnArn) {
+        // executions are listed newest first
+        return client.listExecutions(ListExecutionsRequest.builder()
+                                                          .stateMachineArn(sfnArn)
+                                                          .maxResults(1)
+                                                          .build())
+                     .executions()
+                     .stream()
+                     .findFirst()
+                     .map(ExecutionListItem::status)
+                     .map(ExecutionStatus.SUCCEEDED::equals)
+                     .orElse(true);
     }
 
-    private UnmanagedDistributionStacks findUnmanagedStacksFor(DynamoDbClient dynamoDbClient,
-                                                               SfnClient client,
-                                                               Map<String, AttributeValue> initStackData) {
+    private UnmanagedDistributionStacks findUnmanagedStacksFor(Map<String, AttributeValue> initStackData,
+                                                               Map<String, Future<Boolean>> lastExecutionSucceeded,
+                                                               Future<Map<StackKey, List<Map<String, AttributeValue>>>> stackIndex) {
         String distributionId = initStackData.get("distributionId").s();
         String distributionName = initStackData.get("distributionName").s();
         String environment = initStackData.get("environment").s();
@@ -97,21 +180,10 @@ public class FindUnmanagedStackService {
                                                    "No StepFunction arn found connected to the init deploy stack for distribution.");
         }
 
-        List<String> sfnArns = initStackData.get("sfnArns")
-                                            .ss();
-
-        boolean hasFailedStepFunction = sfnArns
-                .stream()
-                .map(s -> client.listExecutions(ListExecutionsRequest.builder()
-                                                                     .stateMachineArn(s)
-                                                                     .build())
-                                .executions()
-                                .stream()
-                                .max(Comparator.comparing(ExecutionListItem::startDate)))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .anyMatch(executionListItem -> !executionListItem.status()
-                                                                 .equals(ExecutionStatus.SUCCEEDED));
+        boolean hasFailedStepFunction = initStackData.get("sfnArns")
+                                                     .ss()
+                                                     .stream()
+                                                     .anyMatch(sfnArn -> !await(lastExecutionSucceeded.get(sfnArn)));
 
         if (hasFailedStepFunction) {
             return new UnmanagedDistributionStacks(distributionName,
@@ -119,52 +191,50 @@ public class FindUnmanagedStackService {
 
         }
 
-
-        List<Map<String, AttributeValue>> collect = dynamoDbClient.query(QueryRequest.builder().tableName(
-                                                                                             "AttiniResourceStatesV1")
-                                                                                     .keyConditionExpression(
-                                                                                             "resourceType=:v_resourceType")
-                                                                                     .expressionAttributeValues(
-                                                                                             Map.of(
-                                                                                                     ":v_resourceType",
-                                                                                                     AttributeValue.builder()
-                                                                                                                   .s("CloudformationStack")
-                                                                                                                   .build()))
-                                                                                     .build())
-                                                                  .items()
-                                                                  .stream()
-                                                                  .filter(map -> map.get("distributionName")
-                                                                                    .s()
-                                                                                    .equals(distributionName))
-                                                                  .filter(map -> !map.get("distributionId")
-                                                                                     .s()
-                                                                                     .equals(distributionId))
-                                                                  .filter(map -> map.get("environment")
-                                                                                    .s()
-                                                                                    .equals(environment)).toList();
-
-        List<UnmanagedStack> unmanagedStacks = collect.stream()
-                                                      .map(map -> map.get("name").s())
-                                                      .map(s -> {
-                                                          String[] split = s.split("-");
-
-                                                          String account = split[split.length - 1];
-                                                          String region = String.join("-",
-                                                                                      split[split.length - 4],
-                                                                                      split[split.length - 3],
-                                                                                      split[split.length - 2]);
-                                                          String stackName = s.substring(0,
-                                                                                         s.length() - account.length() - region.length() - 2);
-
-                                                          return createUnmanagedStack(stackName,
-                                                                                      region,
-                                                                                      account);
-                                                      }).collect(Collectors.toList());
+        List<UnmanagedStack> unmanagedStacks = await(stackIndex).getOrDefault(new StackKey(environment, distributionName),
+                                                                              List.of())
+                                                                .stream()
+                                                                .filter(map -> !map.get("distributionId")
+                                                                                   .s()
+                                                                                   .equals(distributionId))
+                                                                .map(map -> map.get("name").s())
+                                                                .map(s -> {
+                                                                    String[] split = s.split("-");
+
+                                                                    String account = split[split.length - 1];
+                                                                    String region = String.join("-",
+                                                                                                split[split.length - 4],
+                                                                                                split[split.length - 3],
+                                                                                                split[split.length - 2]);
+                                                                    String stackName = s.substring(0,
+                                                                                                   s.length() - account.length() - region.length() - 2);
+
+                                                                    return createUnmanagedStack(stackName,
+                                                                                                region,
+                                                                                                account);
+                                                                }).collect(Collectors.toList());
 
         return new UnmanagedDistributionStacks(distributionName, unmanagedStacks);
 
     }
 
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking for unmanaged stacks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record StackKey(String environment, String distributionName) {
+    }
+
     private UnmanagedStack createUnmanagedStack(String stackName,
                                                        String region,
                                                        String account) {
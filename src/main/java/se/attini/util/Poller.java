@@ -0,0 +1,152 @@
+package se.attini.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the sleeps of a polling loop. While nothing changes the interval grows exponentially, with jitter, from
+ * the min interval up to the max interval. As soon as a change is observed the interval snaps back to the min
+ * interval, so the loop stays responsive while things are happening without hammering the APIs during quiet periods.
+ */
+public final class Poller {
+
+    private static final double MULTIPLIER = 1.5;
+    private static final double JITTER = 0.2;
+
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Duration timeout;
+    private final Sleeper sleeper;
+    private final LongSupplier nanoClock;
+
+    public Poller(Duration minInterval, Duration maxInterval, Duration timeout) {
+        this(minInterval, maxInterval, timeout, TimeUnit.MILLISECONDS::sleep, System::nanoTime);
+    }
+
+    Poller(Duration minInterval, Duration maxInterval, Duration timeout, Sleeper sleeper, LongSupplier nanoClock) {
+        this.minIntervalMillis = requireNonNull(minInterval, "minInterval").toMillis();
+        this.maxIntervalMillis = requireNonNull(maxInterval, "maxInterval").toMillis();
+        if (minIntervalMillis < 1 || maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException("The min polling interval must be positive and not larger than the max polling interval");
+        }
+        this.timeout = timeout;
+        this.sleeper = requireNonNull(sleeper, "sleeper");
+        this.nanoClock = requireNonNull(nanoClock, "nanoClock");
+    }
+
+    /**
+     * @return a poller that gives up after the given timeout, or the timeout of this poller if that is shorter
+     */
+    public Poller withTimeout(Duration timeout) {
+        Duration effectiveTimeout = this.timeout == null || timeout.compareTo(this.timeout) < 0 ? timeout : this.timeout;
+        return new Poller(Duration.ofMillis(minIntervalMillis),
+                          Duration.ofMillis(maxIntervalMillis),
+                          effectiveTimeout,
+                          sleeper,
+                          nanoClock);
+    }
+
+    /**
+     * @return a poller with the same timeout but other intervals
+     */
+    public Poller withIntervals(Duration minInterval, Duration maxInterval) {
+        return new Poller(minInterval, maxInterval, timeout, sleeper, nanoClock);
+    }
+
+    public Session start(String description) {
+        return new Session(description);
+    }
+
+    /**
+     * Calls the supplier until the condition is met, backing off between the calls.
+     */
+    public <T> T pollUntil(String description, Supplier<T> supplier, Predicate<T> condition) {
+        Session session = start(description);
+        T value = supplier.get();
+        while (!condition.test(value)) {
+            session.sleep();
+            value = supplier.get();
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long milliseconds) throws InterruptedException;
+    }
+
+    /**
+     * The state of one polling loop.
+     */
+    public final class Session {
+        private final String description;
+        private final long startNanos;
+        private long intervalMillis;
+        private Object lastState;
+
+        private Session(String description) {
+            this.description = requireNonNull(description, "description");
+            this.startNanos = nanoClock.getAsLong();
+            this.intervalMillis = minIntervalMillis;
+        }
+
+        /**
+         * Sleeps for the current interval and then grows it.
+         *
+         * @throws IllegalStateException if the timeout has passed
+         */
+        public void sleep() {
+            long sleepMillis = intervalMillis;
+            if (intervalMillis > minIntervalMillis) {
+                double jitter = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+                sleepMillis = Math.max(minIntervalMillis, Math.min(maxIntervalMillis, (long) (intervalMillis * jitter)));
+            }
+            if (timeout != null) {
+                long remainingMillis = timeout.toMillis() - elapsedMillis();
+                if (remainingMillis <= 0) {
+                    throw new IllegalStateException("Timed out after " + timeout.toSeconds() + " seconds while " + description);
+                }
+                sleepMillis = Math.min(sleepMillis, remainingMillis);
+            }
+            try {
+                sleeper.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while " + description, e);
+            }
+            intervalMillis = Math.min(maxIntervalMillis, (long) Math.ceil(intervalMillis * MULTIPLIER));
+        }
+
+        /**
+         * Resets the interval to the min interval.
+         */
+        public void changed() {
+            intervalMillis = minIntervalMillis;
+        }
+
+        /**
+         * Resets the interval to the min interval if the state differs from the previously observed state.
+         */
+        public void observe(Object state) {
+            if (!Objects.equals(state, lastState)) {
+                changed();
+            }
+            lastState = state;
+        }
+
+        long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        private long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - startNanos);
+        }
+    }
+}
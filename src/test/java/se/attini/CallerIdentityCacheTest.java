@@ -0,0 +1,52 @@
+package se.attini;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import se.attini.domain.CallerIdentity;
+
+class CallerIdentityCacheTest {
+
+    private static final CallerIdentity IDENTITY = CallerIdentity.create("123456789012",
+                                                                         "arn:aws:iam::123456789012:user/test");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReturnIdentityForSameProfileAndCredentials() throws Exception {
+        Path cacheFile = directory.resolve("cache").resolve("caller-identities.properties");
+        AtomicLong clock = new AtomicLong(1000);
+        CallerIdentityCache cache = new CallerIdentityCache(cacheFile, Duration.ofMinutes(1), clock::get);
+
+        cache.put("default", "AKIAEXAMPLE", IDENTITY);
+
+        assertEquals(Optional.of(IDENTITY), new CallerIdentityCache(cacheFile, Duration.ofMinutes(1), clock::get)
+                .get("default", "AKIAEXAMPLE"));
+        assertTrue(cache.get("default", "AKIAOTHER").isEmpty());
+        assertTrue(cache.get("other", "AKIAEXAMPLE").isEmpty());
+        assertFalse(Files.readString(cacheFile).contains("AKIAEXAMPLE"));
+    }
+
+    @Test
+    void shouldExpireIdentity() {
+        Path cacheFile = directory.resolve("caller-identities.properties");
+        AtomicLong clock = new AtomicLong(1000);
+        CallerIdentityCache cache = new CallerIdentityCache(cacheFile, Duration.ofMinutes(1), clock::get);
+
+        cache.put("default", "AKIAEXAMPLE", IDENTITY);
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+
+        assertTrue(cache.get("default", "AKIAEXAMPLE").isEmpty());
+    }
+}
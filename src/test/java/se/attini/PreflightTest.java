@@ -0,0 +1,76 @@
+package se.attini;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import se.attini.Preflight.Lookup;
+import se.attini.client.AwsClientFactory;
+import se.attini.domain.Environment;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.EnvironmentType;
+import se.attini.domain.Region;
+import se.attini.environment.EnvironmentService;
+import se.attini.profile.ProfileFacade;
+
+@ExtendWith(MockitoExtension.class)
+class PreflightTest {
+
+    @Mock
+    ProfileFacade profileFacade;
+
+    @Mock
+    AwsAccountFacade awsAccountFacade;
+
+    @Mock
+    EnvironmentService environmentService;
+
+    @Mock
+    AwsClientFactory awsClientFactory;
+
+    @Test
+    void shouldRunEachLookupOnce() {
+        List<Environment> environments = List.of(Environment.create(EnvironmentName.create("dev"), EnvironmentType.TEST));
+        when(profileFacade.getRegion()).thenReturn(Region.create("eu-west-1"));
+        when(environmentService.getEnvironments()).thenReturn(environments);
+        Preflight preflight = new Preflight(profileFacade, awsAccountFacade, environmentService, awsClientFactory);
+
+        preflight.start(Lookup.REGION, Lookup.ENVIRONMENTS);
+
+        assertEquals(Region.create("eu-west-1"), preflight.getRegion());
+        assertEquals(environments, preflight.getEnvironments());
+        assertEquals(environments, preflight.getEnvironments());
+        verify(environmentService, times(1)).getEnvironments();
+    }
+
+    @Test
+    void shouldSurfaceErrorsInLookupOrder() {
+        CountDownLatch accountFailed = new CountDownLatch(1);
+        IllegalStateException regionError = new IllegalStateException("region");
+        when(awsAccountFacade.getAccount()).thenAnswer(invocation -> {
+            accountFailed.countDown();
+            throw new IllegalStateException("account");
+        });
+        when(profileFacade.getRegion()).thenAnswer(invocation -> {
+            accountFailed.await();
+            throw regionError;
+        });
+        Preflight preflight = new Preflight(profileFacade, awsAccountFacade, environmentService, awsClientFactory);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                                                   () -> preflight.verify(Lookup.ACCOUNT, Lookup.REGION));
+
+        assertSame(regionError, error);
+    }
+}
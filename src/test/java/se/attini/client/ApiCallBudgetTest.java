@@ -0,0 +1,80 @@
+package se.attini.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ApiCallBudgetTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldShareBudgetBetweenInstances() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        ApiCallBudget first = new ApiCallBudget(directory, clock::get);
+        ApiCallBudget second = new ApiCallBudget(directory, clock::get);
+
+        // CloudFormation allows 8 calls per second, the two budgets together use them all
+        for (int i = 0; i < 4; i++) {
+            first.acquire("CloudFormation");
+            second.acquire("CloudFormation");
+        }
+
+        long start = System.nanoTime();
+        Thread advanceClock = new Thread(() -> {
+            sleep(50);
+            clock.addAndGet(1000);
+        });
+        advanceClock.start();
+        first.acquire("CloudFormation");
+
+        assertTrue(System.nanoTime() - start >= 40_000_000L, "the call should have waited for a new token");
+    }
+
+    @Test
+    void shouldWaitAfterDrain() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        ApiCallBudget budget = new ApiCallBudget(directory, clock::get);
+        budget.acquire("Sfn");
+
+        new ApiCallBudget(directory, clock::get).drain("Sfn");
+
+        long start = System.nanoTime();
+        Thread advanceClock = new Thread(() -> {
+            sleep(50);
+            clock.addAndGet(1000);
+        });
+        advanceClock.start();
+        budget.acquire("Sfn");
+
+        assertTrue(System.nanoTime() - start >= 40_000_000L, "the call should have waited for a new token");
+    }
+
+    @Test
+    void shouldReserveCallsWithoutWaiting() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        ApiCallBudget budget = new ApiCallBudget(directory, clock::get);
+        budget.drain("CloudFormation");
+
+        // CloudFormation allows 8 calls per second, so each reservation is due 125 millis after the previous one
+        assertEquals(125, budget.reserve("CloudFormation"));
+        assertEquals(250, budget.reserve("CloudFormation"));
+
+        clock.addAndGet(1000);
+        assertEquals(0, budget.reserve("CloudFormation"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
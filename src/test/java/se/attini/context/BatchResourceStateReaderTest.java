@@ -0,0 +1,72 @@
+package se.attini.context;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+@ExtendWith(MockitoExtension.class)
+class BatchResourceStateReaderTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @Mock
+    DynamoDbClient dynamoDbClient;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldSplitKeysInBatchesAndRetryUnprocessedKeys() {
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> {
+            BatchGetItemRequest request = invocation.getArgument(0);
+            List<Map<String, AttributeValue>> keys = request.requestItems()
+                                                            .get(BatchResourceStateReader.TABLE_NAME)
+                                                            .keys();
+            // every batch of more than one key leaves its last key unprocessed the first time
+            List<Map<String, AttributeValue>> processed = keys.size() > 1 ? keys.subList(0, keys.size() - 1) : keys;
+            Map<String, KeysAndAttributes> unprocessed =
+                    keys.size() > 1 ? Map.of(BatchResourceStateReader.TABLE_NAME,
+                                             KeysAndAttributes.builder()
+                                                              .keys(keys.get(keys.size() - 1))
+                                                              .build())
+                                    : Map.of();
+            return BatchGetItemResponse.builder()
+                                       .responses(Map.of(BatchResourceStateReader.TABLE_NAME, processed))
+                                       .unprocessedKeys(unprocessed)
+                                       .build();
+        });
+
+        List<String> names = IntStream.range(0, 150).mapToObj(i -> "stack-" + i).collect(Collectors.toList());
+        names.add("stack-0");
+
+        Map<String, Map<String, AttributeValue>> items =
+                new BatchResourceStateReader(dynamoDbClient, executor).getItems("InitDeployCloudformationStack", names);
+
+        assertEquals(150, items.size());
+        // two batches of 100 and 50 keys, each followed by a retry of one key
+        verify(dynamoDbClient, times(4)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+}
@@ -0,0 +1,85 @@
+package se.attini.deployment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.attini.domain.DistributionId;
+import se.attini.domain.DistributionName;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.ExecutionArn;
+import se.attini.domain.Region;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+@ExtendWith(MockitoExtension.class)
+class AttiniRunnerLoggerTest {
+
+    private static final StepLoggerFactory.GetLoggerRequest GET_LOGGER_REQUEST =
+            new StepLoggerFactory.GetLoggerRequest(DistributionName.create("infra"),
+                                                   DistributionId.create("test-id"),
+                                                   EnvironmentName.create("dev"),
+                                                   ExecutionArn.create(
+                                                           "arn:aws:states:eu-west-1:855066048591:execution:AttiniDeploymentPlanSfnHelloWorldDeploymentPlan-4JAilOXIuONL:12ca1790"),
+                                                   "AttiniRunnerJob");
+
+    @Mock
+    S3Client s3Client;
+
+    @Test
+    void shouldOnlyReadNewBytesAndCarryPartialLines() {
+        String firstChunk = "{\"timestamp\":1,\"data\":\"first\"}\n{\"timestamp\":2,\"da";
+        String secondChunk = "ta\":\"second\"}\n";
+
+        when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(response(firstChunk, "etag-1"), response(secondChunk, "etag-2"))
+                .thenThrow(S3Exception.builder().statusCode(304).build());
+
+        AttiniRunnerLogger logger = new AttiniRunnerLogger(s3Client,
+                                                           GET_LOGGER_REQUEST,
+                                                           "Step1",
+                                                           "123456789012",
+                                                           Region.create("eu-west-1"),
+                                                           new ObjectMapper());
+
+        List<StepLogger.Line> first = logger.lines();
+        List<StepLogger.Line> second = logger.lines();
+        List<StepLogger.Line> third = logger.lines();
+
+        assertEquals(List.of("first"), first.stream().map(StepLogger.Line::data).toList());
+        assertEquals(List.of("second"), second.stream().map(StepLogger.Line::data).toList());
+        assertTrue(third.isEmpty());
+
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client, times(3)).getObject(captor.capture(), any(ResponseTransformer.class));
+        List<GetObjectRequest> requests = captor.getAllValues();
+        int firstLength = firstChunk.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals("bytes=0-", requests.get(0).range());
+        assertEquals("bytes=" + firstLength + "-", requests.get(1).range());
+        assertEquals("etag-1", requests.get(1).ifNoneMatch());
+        assertEquals("etag-2", requests.get(2).ifNoneMatch());
+    }
+
+    private static ResponseBytes<GetObjectResponse> response(String data, String eTag) {
+        return ResponseBytes.fromByteArray(GetObjectResponse.builder().eTag(eTag).build(),
+                                           data.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,16 +1,25 @@
 package se.attini.deployment;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -27,6 +36,11 @@ import se.attini.domain.FilePath;
 import se.attini.environment.EnvironmentUserInput;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
@@ -72,11 +86,11 @@ class DeployDistributionServiceTest {
                                                                   deploymentOrigin);
 
         when(awsClientFactory.s3Client()).thenReturn(s3Client);
-        when(attiniConfigFiles.getAttiniConfigFile(any(byte[].class))).thenReturn(attiniConfigFile);
+        when(attiniConfigFiles.getAttiniConfigFileFromArchive(any(Path.class))).thenReturn(attiniConfigFile);
         when(attiniConfigFile.getDistributionName()).thenReturn(DISTRIBUTION_NAME);
         when(deploymentOrigin.getDeploymentOriginBucketName()).thenReturn(BucketName.create("a-bucket"));
-        when(s3Client.putObject(any(PutObjectRequest.class),
-                                any(RequestBody.class))).thenReturn(PutObjectResponse.builder()
+        lenient().when(s3Client.putObject(any(PutObjectRequest.class),
+                                          any(RequestBody.class))).thenReturn(PutObjectResponse.builder()
                                                                                      .versionId(VERSION_ID)
                                                                                      .build());
         when(environmentUserInput.getEnvironment(any())).thenReturn(Environment.create(EnvironmentName.create("dev"),
@@ -93,6 +107,9 @@ class DeployDistributionServiceTest {
                                                                                        .build();
 
         String key = String.format("%s/%s/%s.zip", "dev", DISTRIBUTION_NAME.getName(), DISTRIBUTION_NAME.getName());
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder()
+                                                                                            .statusCode(404)
+                                                                                            .build());
 
         DeployDistributionResponse response = deployDistributionService.deployDistribution(request);
 
@@ -100,4 +117,62 @@ class DeployDistributionServiceTest {
         assertEquals(key + "#" + VERSION_ID, response.getObjectIdentifier().getValue());
 
     }
+
+    @Test
+    void deployUnchangedDistributionAgain() throws Exception {
+
+        CreateAndDeployDistributionRequest request = CreateAndDeployDistributionRequest.builder()
+                                                                                       .setEnvironment(EnvironmentName.create(
+                                                                                               "dev"))
+                                                                                       .setPath(FilePath.create(PATH.toString()))
+                                                                                       .build();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                                                              .digest(Files.readAllBytes(PATH)));
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder()
+                                                                                             .versionId("previous-version")
+                                                                                             .contentLength(Files.size(PATH))
+                                                                                             .contentType("application/zip")
+                                                                                             .metadata(Map.of("sha256",
+                                                                                                              sha256))
+                                                                                             .build());
+        when(s3Client.copyObject(any(CopyObjectRequest.class))).thenReturn(CopyObjectResponse.builder()
+                                                                                             .versionId(VERSION_ID)
+                                                                                             .build());
+
+        DeployDistributionResponse response = deployDistributionService.deployDistribution(request);
+
+        String key = String.format("%s/%s/%s.zip", "dev", DISTRIBUTION_NAME.getName(), DISTRIBUTION_NAME.getName());
+        assertFalse(response.isDeploymentSkipped());
+        assertEquals(key + "#" + VERSION_ID, response.getObjectIdentifier().getValue());
+        ArgumentCaptor<CopyObjectRequest> captor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3Client).copyObject(captor.capture());
+        assertEquals(key, captor.getValue().sourceKey());
+        assertEquals("previous-version", captor.getValue().sourceVersionId());
+        assertEquals(sha256, captor.getValue().metadata().get("sha256"));
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void skipUnchangedDistribution() throws Exception {
+
+        CreateAndDeployDistributionRequest request = CreateAndDeployDistributionRequest.builder()
+                                                                                       .setEnvironment(EnvironmentName.create(
+                                                                                               "dev"))
+                                                                                       .setPath(FilePath.create(PATH.toString()))
+                                                                                       .setSkipUnchanged(true)
+                                                                                       .build();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                                                              .digest(Files.readAllBytes(PATH)));
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder()
+                                                                                             .versionId(VERSION_ID)
+                                                                                             .metadata(Map.of("sha256",
+                                                                                                              sha256))
+                                                                                             .build());
+
+        DeployDistributionResponse response = deployDistributionService.deployDistribution(request);
+
+        assertTrue(response.isDeploymentSkipped());
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(confirmDeploymentUserInput, never()).confirmDeployment(any(), any(), any());
+    }
 }
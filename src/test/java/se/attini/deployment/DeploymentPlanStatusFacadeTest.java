@@ -0,0 +1,142 @@
+package se.attini.deployment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import se.attini.client.AwsClientFactory;
+import se.attini.domain.DeploymentPlanStatus;
+import se.attini.domain.DeploymentPlanStepStatus;
+import se.attini.domain.ExecutionArn;
+import software.amazon.awssdk.services.sfn.SfnClient;
+import software.amazon.awssdk.services.sfn.model.DescribeExecutionRequest;
+import software.amazon.awssdk.services.sfn.model.GetExecutionHistoryRequest;
+import software.amazon.awssdk.services.sfn.model.GetExecutionHistoryResponse;
+import software.amazon.awssdk.services.sfn.model.HistoryEvent;
+import software.amazon.awssdk.services.sfn.model.HistoryEventType;
+import software.amazon.awssdk.services.sfn.model.StateEnteredEventDetails;
+import software.amazon.awssdk.services.sfn.model.StateExitedEventDetails;
+
+@ExtendWith(MockitoExtension.class)
+class DeploymentPlanStatusFacadeTest {
+
+    private static final ExecutionArn EXECUTION_ARN = ExecutionArn.create(
+            "arn:aws:states:eu-west-1:855066048591:execution:AttiniDeploymentPlanSfnHelloWorldDeploymentPlan-4JAilOXIuONL:12ca1790-9395-4477-a0c7-9b8b11320e6b");
+
+    private static final Instant START = Instant.parse("2022-01-20T10:10:10Z");
+
+    @Mock
+    AwsClientFactory awsClientFactory;
+
+    @Mock
+    SfnClient sfnClient;
+
+    DeploymentPlanStatusFacade deploymentPlanStatusFacade;
+
+    @BeforeEach
+    void setUp() {
+        when(awsClientFactory.sfnClient()).thenReturn(sfnClient);
+        deploymentPlanStatusFacade = new DeploymentPlanStatusFacade(awsClientFactory);
+    }
+
+    @Test
+    void shouldOnlyFoldNewEvents() {
+        GetExecutionHistoryResponse firstPoll = historyResponse(stateEntered(2, 1, "Step1"),
+                                                                executionStarted());
+        GetExecutionHistoryResponse secondPoll = historyResponse(stateExited(3, 2, "Step1"),
+                                                                 stateEntered(2, 1, "Step1"),
+                                                                 executionStarted());
+        when(sfnClient.getExecutionHistory(any(GetExecutionHistoryRequest.class))).thenReturn(firstPoll, secondPoll);
+
+        DeploymentPlanStatus first = getStatus();
+        assertEquals("RUNNING", first.getDeploymentPlanStatus());
+        assertEquals(START, first.getStartTime());
+        assertEquals(List.of("Step1"), first.getStartedSteps().stream().map(DeploymentPlanStepStatus::getName).toList());
+        assertTrue(first.getCompletedSteps().isEmpty());
+
+        DeploymentPlanStatus second = getStatus();
+        assertEquals(1, second.getStartedSteps().size());
+        assertEquals(List.of("Step1"), second.getCompletedSteps().stream().map(DeploymentPlanStepStatus::getName).toList());
+
+        verify(sfnClient, never()).describeExecution(any(DescribeExecutionRequest.class));
+    }
+
+    @Test
+    void shouldStopPollingWhenExecutionHasEnded() {
+        HistoryEvent succeeded = HistoryEvent.builder()
+                                             .id(3L)
+                                             .previousEventId(2L)
+                                             .type(HistoryEventType.EXECUTION_SUCCEEDED)
+                                             .timestamp(START.plusSeconds(10))
+                                             .build();
+        when(sfnClient.getExecutionHistory(any(GetExecutionHistoryRequest.class))).thenReturn(historyResponse(
+                succeeded,
+                stateEntered(2, 1, "Step1"),
+                executionStarted()));
+
+        DeploymentPlanStatus first = getStatus();
+        DeploymentPlanStatus second = getStatus();
+
+        assertEquals("SUCCEEDED", first.getDeploymentPlanStatus());
+        assertEquals("SUCCEEDED", second.getDeploymentPlanStatus());
+        assertEquals(START.plusSeconds(10), second.getEndTime().orElseThrow());
+        verify(sfnClient, times(1)).getExecutionHistory(any(GetExecutionHistoryRequest.class));
+    }
+
+    private DeploymentPlanStatus getStatus() {
+        return deploymentPlanStatusFacade.getDeploymentPlanStatus(new GetDeploymentPlanExecutionRequest(EXECUTION_ARN));
+    }
+
+    private static GetExecutionHistoryResponse historyResponse(HistoryEvent... newestFirst) {
+        return GetExecutionHistoryResponse.builder()
+                                          .events(newestFirst)
+                                          .build();
+    }
+
+    private static HistoryEvent executionStarted() {
+        return HistoryEvent.builder()
+                           .id(1L)
+                           .previousEventId(0L)
+                           .type(HistoryEventType.EXECUTION_STARTED)
+                           .timestamp(START)
+                           .build();
+    }
+
+    private static HistoryEvent stateEntered(long id, long previousId, String name) {
+        return HistoryEvent.builder()
+                           .id(id)
+                           .previousEventId(previousId)
+                           .type(HistoryEventType.TASK_STATE_ENTERED)
+                           .timestamp(START.plusSeconds(id))
+                           .stateEnteredEventDetails(StateEnteredEventDetails.builder()
+                                                                             .name(name)
+                                                                             .build())
+                           .build();
+    }
+
+    private static HistoryEvent stateExited(long id, long previousId, String name) {
+        return HistoryEvent.builder()
+                           .id(id)
+                           .previousEventId(previousId)
+                           .type(HistoryEventType.TASK_STATE_EXITED)
+                           .timestamp(START.plusSeconds(id))
+                           .stateExitedEventDetails(StateExitedEventDetails.builder()
+                                                                           .name(name)
+                                                                           .output("{}")
+                                                                           .build())
+                           .build();
+    }
+}
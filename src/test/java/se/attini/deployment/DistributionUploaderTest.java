@@ -0,0 +1,197 @@
+package se.attini.deployment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import se.attini.domain.BucketName;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CopyPartResult;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.ObjectVersion;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+@ExtendWith(MockitoExtension.class)
+class DistributionUploaderTest {
+
+    private static final BucketName BUCKET = BucketName.create("a-bucket");
+    private static final String KEY = "dev/infra/infra.zip";
+    private static final int MB = 1024 * 1024;
+
+    @Mock
+    S3Client s3Client;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldUploadLargeFilesInParts() throws IOException {
+        Path file = directory.resolve("infra.zip");
+        Files.write(file, new byte[11 * MB]);
+
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenAnswer(invocation -> {
+                    UploadPartRequest request = invocation.getArgument(0);
+                    return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+                });
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompleteMultipartUploadResponse.builder().versionId("version-id").build());
+
+        String versionId = new DistributionUploader(s3Client, 5, 2).upload(BUCKET, KEY, file);
+
+        assertEquals("version-id", versionId);
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3Client, times(3)).uploadPart(parts.capture(), any(RequestBody.class));
+        assertEquals(List.of(5L * MB, 5L * MB, 1L * MB),
+                     parts.getAllValues().stream()
+                          .sorted((a, b) -> Integer.compare(a.partNumber(), b.partNumber()))
+                          .map(UploadPartRequest::contentLength)
+                          .toList());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(complete.capture());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"),
+                     complete.getValue().multipartUpload().parts().stream().map(CompletedPart::eTag).toList());
+    }
+
+    @Test
+    void shouldUploadSmallFilesInASingleRequest() throws IOException {
+        Path file = directory.resolve("infra.zip");
+        Files.write(file, new byte[MB]);
+
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().versionId("version-id").build());
+
+        String versionId = new DistributionUploader(s3Client, 5, 2).upload(BUCKET, KEY, file, Map.of("sha256", "abc"));
+
+        assertEquals("version-id", versionId);
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(captor.capture(), any(RequestBody.class));
+        // same content type as a multipart upload
+        assertEquals("application/zip", captor.getValue().contentType());
+        assertEquals(Map.of("sha256", "abc"), captor.getValue().metadata());
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void shouldAbortWhenAPartFails() throws IOException {
+        Path file = directory.resolve("infra.zip");
+        Files.write(file, new byte[6 * MB]);
+
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        DistributionUploader uploader = new DistributionUploader(s3Client, 5, 1);
+        assertThrows(SdkClientException.class, () -> uploader.upload(BUCKET, KEY, file));
+
+        // retries are left to the retry policy of the client
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3Client, atLeast(1)).uploadPart(parts.capture(), any(RequestBody.class));
+        assertEquals(1, parts.getAllValues().stream().filter(request -> request.partNumber() == 1).count());
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void shouldCopyObjectVersionServerSide() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder()
+                                              .contentType("application/zip")
+                                              .metadata(Map.of("sha256", "abc"))
+                                              .build());
+        when(s3Client.copyObject(any(CopyObjectRequest.class)))
+                .thenReturn(CopyObjectResponse.builder().versionId("new-version-id").build());
+
+        String versionId = new DistributionUploader(s3Client, 5, 1).copy(BUCKET,
+                                                                         KEY,
+                                                                         ObjectVersion.builder()
+                                                                                      .key(KEY)
+                                                                                      .versionId("old-version-id")
+                                                                                      .size(100L * MB)
+                                                                                      .build());
+
+        assertEquals("new-version-id", versionId);
+        ArgumentCaptor<CopyObjectRequest> captor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3Client).copyObject(captor.capture());
+        assertEquals("old-version-id", captor.getValue().sourceVersionId());
+        assertEquals(KEY, captor.getValue().destinationKey());
+        // copying the latest version onto itself is only allowed when the metadata is replaced
+        assertEquals(MetadataDirective.REPLACE, captor.getValue().metadataDirective());
+        assertEquals(Map.of("sha256", "abc"), captor.getValue().metadata());
+    }
+
+    @Test
+    void shouldKeepMetadataAndContentTypeWhenCopyingLargeObjectsInParts() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder()
+                                              .contentType("binary/octet-stream")
+                                              .metadata(Map.of("sha256", "abc"))
+                                              .build());
+        when(s3Client.getObjectTagging(any(GetObjectTaggingRequest.class)))
+                .thenReturn(GetObjectTaggingResponse.builder().tagSet(List.of()).build());
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+        when(s3Client.uploadPartCopy(any(UploadPartCopyRequest.class)))
+                .thenReturn(UploadPartCopyResponse.builder()
+                                                  .copyPartResult(CopyPartResult.builder().eTag("etag").build())
+                                                  .build());
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompleteMultipartUploadResponse.builder().versionId("new-version-id").build());
+
+        String versionId = new DistributionUploader(s3Client, 5, 4).copy(BUCKET,
+                                                                         KEY,
+                                                                         ObjectVersion.builder()
+                                                                                      .key(KEY)
+                                                                                      .versionId("old-version-id")
+                                                                                      .size(6L * 1024 * MB)
+                                                                                      .build());
+
+        assertEquals("new-version-id", versionId);
+        ArgumentCaptor<CreateMultipartUploadRequest> captor = ArgumentCaptor.forClass(CreateMultipartUploadRequest.class);
+        verify(s3Client).createMultipartUpload(captor.capture());
+        assertEquals(Map.of("sha256", "abc"), captor.getValue().metadata());
+        // same content type as a copy in a single request
+        assertEquals("binary/octet-stream", captor.getValue().contentType());
+    }
+}
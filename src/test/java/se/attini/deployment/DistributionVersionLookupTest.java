@@ -0,0 +1,155 @@
+package se.attini.deployment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.attini.client.AwsClientFactory;
+import se.attini.domain.BucketName;
+import se.attini.domain.DistributionId;
+import se.attini.domain.DistributionName;
+import se.attini.domain.Environment;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.EnvironmentType;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectVersion;
+import software.amazon.awssdk.services.s3.model.Tag;
+
+@ExtendWith(MockitoExtension.class)
+class DistributionVersionLookupTest {
+
+    private static final BucketName BUCKET = BucketName.create("a-bucket");
+    private static final Environment ENVIRONMENT = Environment.create(EnvironmentName.create("dev"),
+                                                                      EnvironmentType.TEST);
+    private static final DistributionName DISTRIBUTION_NAME = DistributionName.create("infra");
+    private static final String KEY = "dev/infra/infra.zip";
+
+    @Mock
+    AwsClientFactory awsClientFactory;
+
+    @Mock
+    DeploymentOrigin deploymentOrigin;
+
+    @Mock
+    S3Client s3Client;
+
+    @TempDir
+    Path cacheDirectory;
+
+    DistributionVersionLookup distributionVersionLookup;
+
+    @BeforeEach
+    void setUp() {
+        when(awsClientFactory.s3Client()).thenReturn(s3Client);
+        when(deploymentOrigin.getDeploymentOriginBucketName()).thenReturn(BUCKET);
+        distributionVersionLookup = new DistributionVersionLookup(awsClientFactory,
+                                                                  deploymentOrigin,
+                                                                  new DistributionVersionIndex(cacheDirectory,
+                                                                                               new ObjectMapper()));
+    }
+
+    @Test
+    void shouldPageThroughVersionsUntilDistributionIsFound() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                                                      .versions(version("v1"), version("v2"))
+                                                      .isTruncated(true)
+                                                      .nextKeyMarker(KEY)
+                                                      .nextVersionIdMarker("v2")
+                                                      .build())
+                .thenReturn(ListObjectVersionsResponse.builder()
+                                                      .versions(version("v3"))
+                                                      .isTruncated(false)
+                                                      .build());
+        stubTag("v1", "id-1");
+        stubTag("v2", "id-2");
+        stubTag("v3", "id-3");
+
+        Optional<ObjectVersion> result = distributionVersionLookup.findObjectVersion(ENVIRONMENT,
+                                                                                     DISTRIBUTION_NAME,
+                                                                                     DistributionId.create("id-3"));
+
+        assertEquals("v3", result.orElseThrow().versionId());
+        verify(s3Client).listObjectVersions(argThat((ListObjectVersionsRequest request) ->
+                                                            "v2".equals(request.versionIdMarker())
+                                                            && KEY.equals(request.keyMarker())));
+    }
+
+    @Test
+    void shouldUseIndexForPreviouslySeenDistributions() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                                                      .versions(version("v1"), version("v2"))
+                                                      .isTruncated(false)
+                                                      .build());
+        stubTag("v1", "id-1");
+        stubTag("v2", "id-2");
+
+        distributionVersionLookup.findObjectVersion(ENVIRONMENT, DISTRIBUTION_NAME, DistributionId.create("id-3"));
+        Optional<ObjectVersion> result = distributionVersionLookup.findObjectVersion(ENVIRONMENT,
+                                                                                     DISTRIBUTION_NAME,
+                                                                                     DistributionId.create("id-2"));
+
+        assertEquals("v2", result.orElseThrow().versionId());
+        verify(s3Client, times(1)).listObjectVersions(any(ListObjectVersionsRequest.class));
+    }
+
+    @Test
+    void shouldReturnEmptyIfNoVersionHasTheDistributionId() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                                                      .versions(version("v1"),
+                                                                ObjectVersion.builder()
+                                                                             .key("dev/infra/readme.txt")
+                                                                             .versionId("v2")
+                                                                             .build())
+                                                      .isTruncated(false)
+                                                      .build());
+        stubTag("v1", "id-1");
+
+        Optional<ObjectVersion> result = distributionVersionLookup.findObjectVersion(ENVIRONMENT,
+                                                                                     DISTRIBUTION_NAME,
+                                                                                     DistributionId.create("id-3"));
+
+        assertTrue(result.isEmpty());
+        verify(s3Client, never()).getObjectTagging(argThat((GetObjectTaggingRequest request) ->
+                                                                   "v2".equals(request.versionId())));
+    }
+
+    private static ObjectVersion version(String versionId) {
+        return ObjectVersion.builder().key(KEY).versionId(versionId).size(100L).build();
+    }
+
+    private void stubTag(String versionId, String distributionId) {
+        when(s3Client.getObjectTagging(argThat((GetObjectTaggingRequest request) ->
+                                                       request != null && versionId.equals(request.versionId()))))
+                .thenReturn(GetObjectTaggingResponse.builder()
+                                                    .versionId(versionId)
+                                                    .tagSet(Tag.builder()
+                                                               .key("distributionId")
+                                                               .value(distributionId)
+                                                               .build())
+                                                    .build());
+    }
+}
@@ -0,0 +1,67 @@
+package se.attini.deployment.file.ignore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class IgnoreMatcherTest {
+
+    private static final List<String> PATTERNS = List.of("/tmp/dist/templates/**",
+                                                         "/tmp/dist/*.md",
+                                                         "/tmp/dist/lambda/{build,dist}/**",
+                                                         "/tmp/dist/file?.txt",
+                                                         "/tmp/dist/[a-c]*.json",
+                                                         "/tmp/dist/[!x]/*");
+
+    private static final List<Path> PATHS = List.of(Path.of("/tmp/dist/templates"),
+                                                    Path.of("/tmp/dist/templates/vpc.yaml"),
+                                                    Path.of("/tmp/dist/README.md"),
+                                                    Path.of("/tmp/dist/docs/README.md"),
+                                                    Path.of("/tmp/dist/lambda/build/index.js"),
+                                                    Path.of("/tmp/dist/lambda/src/index.js"),
+                                                    Path.of("/tmp/dist/file1.txt"),
+                                                    Path.of("/tmp/dist/file10.txt"),
+                                                    Path.of("/tmp/dist/bar.json"),
+                                                    Path.of("/tmp/dist/x/a"),
+                                                    Path.of("/tmp/dist/y/a"),
+                                                    Path.of("/tmp/dist/.git/config"),
+                                                    Path.of("/tmp/dist/node_modules/lib/index.js"),
+                                                    Path.of("/tmp/dist/my file.txt"),
+                                                    Path.of("/tmp/dist/a[1].txt"),
+                                                    Path.of("/tmp/dist/a{1}.txt"));
+
+    @Test
+    void shouldMatchLikeTheDefaultFileSystem() {
+        List<List<String>> patternLists = List.of(PATTERNS,
+                                                  FilePatterns.DEFAULT_IGNORES,
+                                                  FilePatterns.TEMP_DIR_IGNORES,
+                                                  FilePatterns.ILLEGAL_PATTERNS);
+        for (List<String> patterns : patternLists) {
+            IgnoreMatcher ignoreMatcher = IgnoreMatcher.compile(patterns);
+            for (Path path : PATHS) {
+                boolean expected = patterns.stream()
+                                           .anyMatch(pattern -> FileSystems.getDefault()
+                                                                           .getPathMatcher("glob:" + pattern)
+                                                                           .matches(path));
+                assertEquals(expected, ignoreMatcher.matches(path), patterns + " " + path);
+            }
+        }
+    }
+
+    @Test
+    void shouldIgnoreSubtrees() {
+        IgnoreMatcher ignoreMatcher = IgnoreMatcher.compile(FilePatterns.DEFAULT_IGNORES);
+
+        assertTrue(ignoreMatcher.isSubtreeIgnored(Path.of("/tmp/dist/node_modules")));
+        assertTrue(ignoreMatcher.isSubtreeIgnored(Path.of("/tmp/dist/lambda/node_modules")));
+        assertFalse(ignoreMatcher.matches(Path.of("/tmp/dist/lambda/node_modules")));
+        assertFalse(ignoreMatcher.isSubtreeIgnored(Path.of("/tmp/dist/lambda")));
+        assertFalse(IgnoreMatcher.none().isSubtreeIgnored(Path.of("/tmp/dist/node_modules")));
+    }
+}
@@ -0,0 +1,103 @@
+package se.attini.deployment.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import se.attini.client.AwsClientFactory;
+import se.attini.deployment.GetDeploymentHistoryRequest;
+import se.attini.domain.Deployment;
+import se.attini.domain.DistributionName;
+import se.attini.domain.Environment;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.EnvironmentType;
+import se.attini.environment.EnvironmentUserInput;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+@ExtendWith(MockitoExtension.class)
+class DeploymentHistoryFacadeTest {
+
+    @Mock
+    AwsClientFactory awsClientFactory;
+
+    @Mock
+    EnvironmentUserInput environmentUserInput;
+
+    @Mock
+    DynamoDbClient dynamoDbClient;
+
+    DeploymentHistoryFacade deploymentHistoryFacade;
+
+    @BeforeEach
+    void setUp() {
+        when(awsClientFactory.dynamoClient()).thenReturn(dynamoDbClient);
+        when(environmentUserInput.getEnvironment(any())).thenReturn(Environment.create(EnvironmentName.create("dev"),
+                                                                                       EnvironmentType.TEST));
+        deploymentHistoryFacade = new DeploymentHistoryFacade(awsClientFactory, environmentUserInput);
+    }
+
+    @Test
+    void shouldQueryNewestFirstAndStopAtLimit() {
+        Map<String, AttributeValue> lastEvaluatedKey = Map.of("deploymentName", string("dev-infra"),
+                                                              "deploymentTime", number(4));
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder()
+                                         .items(item(5), item(4))
+                                         .lastEvaluatedKey(lastEvaluatedKey)
+                                         .build())
+                .thenReturn(QueryResponse.builder()
+                                         .items(item(3), item(2))
+                                         .lastEvaluatedKey(Map.of("deploymentName", string("dev-infra"),
+                                                                  "deploymentTime", number(2)))
+                                         .build());
+
+        List<Deployment> deployments = deploymentHistoryFacade.getDeploymentHistory(GetDeploymentHistoryRequest.builder()
+                                                                                                               .setDistributionName(DistributionName.create("infra"))
+                                                                                                               .setLimit(3)
+                                                                                                               .build())
+                                                              .collect(Collectors.toList());
+
+        assertEquals(List.of(5L, 4L, 3L),
+                     deployments.stream().map(deployment -> deployment.getDeployTime().toEpochMilli()).toList());
+
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(captor.capture());
+        QueryRequest first = captor.getAllValues().get(0);
+        assertFalse(first.scanIndexForward());
+        assertEquals(3, first.limit());
+        assertFalse(first.hasExclusiveStartKey());
+        assertEquals(lastEvaluatedKey, captor.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    private static Map<String, AttributeValue> item(long deploymentTime) {
+        return Map.of(DeploymentHistoryFacade.DISTRIBUTION_NAME_FIELD, string("infra"),
+                      DeploymentHistoryFacade.DISTRIBUTION_ID_FIELD, string("id-" + deploymentTime),
+                      DeploymentHistoryFacade.ENVIRONMENT_FIELD, string("dev"),
+                      DeploymentHistoryFacade.DEPLOY_TIME_FIELD, number(deploymentTime));
+    }
+
+    private static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue number(long value) {
+        return AttributeValue.builder().n(String.valueOf(value)).build();
+    }
+}
@@ -0,0 +1,50 @@
+package se.attini.deployment.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class RangedZipReaderTest {
+
+    @Test
+    void shouldOnlyReadTheRequestedEntry() throws IOException {
+        byte[] largeFile = new byte[4 * 1024 * 1024];
+        new Random(42).nextBytes(largeFile);
+        String config = "distributionName: infra\n".repeat(10);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry("lambda/"));
+            zipOutputStream.closeEntry();
+            zipOutputStream.putNextEntry(new ZipEntry("attini-config.yaml"));
+            zipOutputStream.write(config.getBytes());
+            zipOutputStream.closeEntry();
+            zipOutputStream.putNextEntry(new ZipEntry("lambda/large.bin"));
+            zipOutputStream.write(largeFile);
+            zipOutputStream.closeEntry();
+        }
+        byte[] archive = outputStream.toByteArray();
+
+        AtomicLong bytesRead = new AtomicLong();
+        RangedZipReader reader = new RangedZipReader(archive.length, (from, to) -> {
+            bytesRead.addAndGet(to - from + 1);
+            return Arrays.copyOfRange(archive, (int) from, (int) to + 1);
+        });
+
+        Optional<byte[]> entry = reader.readEntry("attini-config.yaml"::equals);
+
+        assertEquals(config, new String(entry.orElseThrow()));
+        assertTrue(bytesRead.get() < 256 * 1024, "read " + bytesRead.get() + " bytes");
+        assertTrue(reader.readEntry("missing.yaml"::equals).isEmpty());
+    }
+}
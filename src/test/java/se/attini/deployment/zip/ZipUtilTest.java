@@ -0,0 +1,346 @@
+package se.attini.deployment.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import se.attini.deployment.file.ignore.IgnoreMatcher;
+
+class ZipUtilTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldZipDirectoryToFile() throws IOException {
+        byte[] largeFile = new byte[1024 * 1024];
+        new Random(42).nextBytes(largeFile);
+        Files.createDirectories(directory.resolve("templates"));
+        Files.write(directory.resolve("templates/large.bin"), largeFile);
+        Files.writeString(directory.resolve("attini-config.yaml"), "distributionName: infra");
+
+        Path destination = directory.resolve("dist.zip");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(directory).setDestination(destination).build());
+
+        Map<String, byte[]> entries = readEntries(destination);
+        assertEquals(List.of("attini-config.yaml", "templates/", "templates/large.bin"),
+                     entries.keySet().stream().sorted().toList());
+        assertArrayEquals(largeFile, entries.get("templates/large.bin"));
+        assertEquals("distributionName: infra", new String(entries.get("attini-config.yaml")));
+    }
+
+    @Test
+    void shouldZipDirectoryInParallel() throws IOException {
+        byte[] randomFile = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(randomFile);
+        String compressibleFile = "Resources:\n  Bucket:\n    Type: AWS::S3::Bucket\n".repeat(100_000);
+        Path source = directory.resolve("source");
+        Files.createDirectories(source.resolve("templates/empty"));
+        Files.write(source.resolve("templates/random.bin"), randomFile);
+        Files.writeString(source.resolve("templates/template.yaml"), compressibleFile);
+        Files.createFile(source.resolve("templates/empty.txt"));
+        Files.writeString(source.resolve("attini-config.yaml"), "distributionName: infra");
+
+        Path singleThreaded = directory.resolve("single.zip");
+        Path parallel = directory.resolve("parallel.zip");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(source).setDestination(singleThreaded).build());
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(source).setDestination(parallel).setThreads(4).build());
+
+        Map<String, byte[]> entries = readEntries(parallel);
+        assertArrayEquals(Files.readAllBytes(singleThreaded), Files.readAllBytes(parallel));
+        assertArrayEquals(randomFile, entries.get("templates/random.bin"));
+        assertEquals(compressibleFile, new String(entries.get("templates/template.yaml")));
+        assertEquals(0, entries.get("templates/empty.txt").length);
+
+        try (ZipFile zipFile = new ZipFile(parallel.toFile())) {
+            assertEquals(entries.size(), zipFile.size());
+            assertArrayEquals(randomFile, zipFile.getInputStream(zipFile.getEntry("templates/random.bin")).readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldCreateIdenticalArchivesFromIdenticalFiles() throws IOException {
+        Path source = directory.resolve("source");
+        Files.createDirectories(source.resolve("templates"));
+        Files.writeString(source.resolve("templates/b.yaml"), "Resources: {}");
+        Files.writeString(source.resolve("templates/a.yaml"), "Resources: {}");
+        Files.writeString(source.resolve("attini-config.yaml"), "distributionName: infra");
+
+        Path first = directory.resolve("first.zip");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(source).setDestination(first).setThreads(4).build());
+        Files.setLastModifiedTime(source.resolve("templates/a.yaml"), FileTime.from(Instant.now().plusSeconds(60)));
+        Path second = directory.resolve("second.zip");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(source).setDestination(second).setThreads(4).build());
+
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        assertEquals(List.of("attini-config.yaml", "templates/", "templates/a.yaml", "templates/b.yaml"),
+                     readEntryNames(first));
+    }
+
+    @Test
+    void shouldCopyUnchangedEntriesFromPreviousArchive() throws IOException {
+        Path source = directory.resolve("source");
+        Files.createDirectories(source.resolve("templates"));
+        Files.writeString(source.resolve("templates/unchanged.yaml"), "Resources: {}\n".repeat(10_000));
+        Files.writeString(source.resolve("templates/changed.yaml"), "Resources: {}");
+        FileTime lastModified = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        Files.setLastModifiedTime(source.resolve("templates/unchanged.yaml"), lastModified);
+
+        Path previousArchive = directory.resolve("previous.zip");
+        Path manifestFile = directory.resolve("manifest.properties");
+        ZipUtil.zipDirectory(ZipRequest.builder()
+                                       .setPath(source)
+                                       .setDestination(previousArchive)
+                                       .setThreads(2)
+                                       .build())
+               .getManifest()
+               .write(manifestFile, previousArchive);
+
+        // same size and last modified time, so the entry is expected to be copied from the previous archive
+        Files.writeString(source.resolve("templates/unchanged.yaml"), "Resources: []\n".repeat(10_000));
+        Files.setLastModifiedTime(source.resolve("templates/unchanged.yaml"), lastModified);
+        Files.writeString(source.resolve("templates/changed.yaml"), "Resources:\n  Bucket: {}");
+
+        Path archive = directory.resolve("archive.zip");
+        ArchiveManifest previousManifest = ArchiveManifest.read(manifestFile, previousArchive).orElseThrow();
+        ZipResult result = ZipUtil.zipDirectory(ZipRequest.builder()
+                                                          .setPath(source)
+                                                          .setDestination(archive)
+                                                          .setThreads(2)
+                                                          .setPrevious(previousArchive, previousManifest)
+                                                          .build());
+
+        assertEquals(1, result.getReused());
+        Map<String, byte[]> entries = readEntries(archive);
+        assertEquals("Resources: {}\n".repeat(10_000), new String(entries.get("templates/unchanged.yaml")));
+        assertEquals("Resources:\n  Bucket: {}", new String(entries.get("templates/changed.yaml")));
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(3, zipFile.size());
+        }
+    }
+
+    @Test
+    void shouldOnlyReuseRewrittenFilesWithTheSameContent() throws IOException {
+        Path source = directory.resolve("source");
+        Files.createDirectories(source);
+        // the two strings have the same CRC32
+        Files.writeString(source.resolve("regenerated.txt"), "plumless");
+        Files.writeString(source.resolve("collision.txt"), "plumless");
+        FileTime lastModified = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        Files.setLastModifiedTime(source.resolve("regenerated.txt"), lastModified);
+        Files.setLastModifiedTime(source.resolve("collision.txt"), lastModified);
+
+        Path previousArchive = directory.resolve("previous.zip");
+        Path manifestFile = directory.resolve("manifest.properties");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(source).setDestination(previousArchive).build())
+               .getManifest()
+               .write(manifestFile, previousArchive);
+
+        Files.writeString(source.resolve("regenerated.txt"), "plumless");
+        Files.writeString(source.resolve("collision.txt"), "buckeroo");
+
+        Path archive = directory.resolve("archive.zip");
+        ZipResult result = ZipUtil.zipDirectory(ZipRequest.builder()
+                                                          .setPath(source)
+                                                          .setDestination(archive)
+                                                          .setPrevious(previousArchive,
+                                                                       ArchiveManifest.read(manifestFile, previousArchive)
+                                                                                      .orElseThrow())
+                                                          .build());
+
+        assertEquals(1, result.getReused());
+        Map<String, byte[]> entries = readEntries(archive);
+        assertEquals("plumless", new String(entries.get("regenerated.txt")));
+        assertEquals("buckeroo", new String(entries.get("collision.txt")));
+    }
+
+    @Test
+    void shouldCompressAgainWhenThePolicyChanges() throws IOException {
+        Path source = directory.resolve("source");
+        Files.createDirectories(source);
+        Files.writeString(source.resolve("template.yaml"), "Resources: {}\n".repeat(10_000));
+        Files.setLastModifiedTime(source.resolve("template.yaml"), FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+
+        Path previousArchive = directory.resolve("previous.zip");
+        Path manifestFile = directory.resolve("manifest.properties");
+        ZipUtil.zipDirectory(ZipRequest.builder()
+                                       .setPath(source)
+                                       .setDestination(previousArchive)
+                                       .setPolicy(CompressionPolicy.create(0, List.of(), 0.05))
+                                       .build())
+               .getManifest()
+               .write(manifestFile, previousArchive);
+
+        Path archive = directory.resolve("archive.zip");
+        ZipResult result = ZipUtil.zipDirectory(ZipRequest.builder()
+                                                          .setPath(source)
+                                                          .setDestination(archive)
+                                                          .setPrevious(previousArchive,
+                                                                       ArchiveManifest.read(manifestFile, previousArchive)
+                                                                                      .orElseThrow())
+                                                          .build());
+
+        assertEquals(0, result.getReused());
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("template.yaml").getMethod());
+        }
+    }
+
+    @Test
+    void shouldNotReadManifestOfChangedArchive() throws IOException {
+        Files.writeString(directory.resolve("attini-config.yaml"), "distributionName: infra");
+        Path archive = directory.resolve("archive.zip");
+        Path manifestFile = directory.resolve("manifest.properties");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(directory).setDestination(archive).build())
+               .getManifest()
+               .write(manifestFile, archive);
+
+        assertTrue(ArchiveManifest.read(manifestFile, archive).isPresent());
+
+        Files.writeString(archive, "not a zip");
+        assertTrue(ArchiveManifest.read(manifestFile, archive).isEmpty());
+    }
+
+    @Test
+    void shouldStoreIncompressibleFiles() throws IOException {
+        byte[] randomFile = new byte[2 * 1024 * 1024];
+        new Random(42).nextBytes(randomFile);
+        byte[] smallRandomFile = new byte[1024];
+        new Random(42).nextBytes(smallRandomFile);
+        Path source = directory.resolve("source");
+        Files.createDirectories(source);
+        Files.write(source.resolve("random.bin"), randomFile);
+        Files.write(source.resolve("small.bin"), smallRandomFile);
+        Files.writeString(source.resolve("project.JAR"), "Resources: {}\n".repeat(1000));
+        Files.writeString(source.resolve("template.yaml"), "Resources: {}\n".repeat(1000));
+
+        Path archive = directory.resolve("archive.zip");
+        ZipUtil.zipDirectory(ZipRequest.builder()
+                                       .setPath(source)
+                                       .setDestination(archive)
+                                       .setThreads(4)
+                                       .setPolicy(CompressionPolicy.create(9, List.of(".bin"), 0.05))
+                                       .build());
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("random.bin").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("small.bin").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("project.JAR").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("template.yaml").getMethod());
+            assertArrayEquals(randomFile, zipFile.getInputStream(zipFile.getEntry("random.bin")).readAllBytes());
+        }
+        Map<String, byte[]> entries = readEntries(archive);
+        assertEquals("Resources: {}\n".repeat(1000), new String(entries.get("project.JAR")));
+        assertArrayEquals(smallRandomFile, entries.get("small.bin"));
+    }
+
+    @Test
+    void shouldStoreFilesThatCompressPoorly() throws IOException {
+        byte[] randomFile = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(randomFile);
+        byte[] smallRandomFile = new byte[1024];
+        new Random(7).nextBytes(smallRandomFile);
+        Path source = directory.resolve("source");
+        Files.createDirectories(source);
+        Files.write(source.resolve("random.dat"), randomFile);
+        Files.write(source.resolve("small.dat"), smallRandomFile);
+
+        Path archive = directory.resolve("archive.zip");
+        ZipUtil.zipDirectory(ZipRequest.builder().setPath(source).setDestination(archive).setThreads(4).build());
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("random.dat").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("small.dat").getMethod());
+            assertArrayEquals(randomFile, zipFile.getInputStream(zipFile.getEntry("random.dat")).readAllBytes());
+            assertArrayEquals(smallRandomFile, zipFile.getInputStream(zipFile.getEntry("small.dat")).readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldValidateAndIgnoreFilesWhileListingThem() throws IOException {
+        Path source = directory.resolve("source");
+        Files.createDirectories(source.resolve("templates"));
+        Files.createDirectories(source.resolve("node_modules/package"));
+        Files.writeString(source.resolve("templates/template.yaml"), "Resources: {}");
+        Files.writeString(source.resolve("templates/ignored.yaml"), "Resources: {}");
+        Files.writeString(source.resolve("node_modules/package/index.js"), "");
+
+        List<Path> validated = new ArrayList<>();
+        Path archive = source.resolve("archive.zip");
+        ZipResult result = ZipUtil.zipDirectory(ZipRequest.builder()
+                                                          .setPath(source)
+                                                          .setDestination(archive)
+                                                          .setIgnores(IgnoreMatcher.compile(List.of("**/templates/ignored.yaml", "**/node_modules")))
+                                                          .setValidator(validated::add)
+                                                          .build());
+
+        assertEquals(List.of("templates/", "templates/template.yaml"), readEntryNames(archive));
+        assertEquals(List.of(source.resolve("templates"), source.resolve("templates/template.yaml")),
+                     validated.stream().sorted().toList());
+        assertEquals(1, result.getFiles());
+        assertEquals(1, result.getDirectories());
+        assertEquals(2, result.getIgnored());
+    }
+
+    @Test
+    void shouldNotWriteArchiveWhenValidationFails() throws IOException {
+        Path source = directory.resolve("source");
+        Files.createDirectories(source);
+        Files.writeString(source.resolve("invalid.yaml"), "");
+
+        Path archive = directory.resolve("archive.zip");
+        assertThrows(IllegalStateException.class,
+                     () -> ZipUtil.zipDirectory(ZipRequest.builder()
+                                                          .setPath(source)
+                                                          .setDestination(archive)
+                                                          .setValidator(path -> {
+                                                              throw new IllegalStateException(path.toString());
+                                                          })
+                                                          .build()));
+        assertTrue(Files.notExists(archive));
+    }
+
+    private static List<String> readEntryNames(Path zip) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(zip);
+             ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private static Map<String, byte[]> readEntries(Path zip) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (InputStream inputStream = Files.newInputStream(zip);
+             ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                entries.put(entry.getName(), zipInputStream.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
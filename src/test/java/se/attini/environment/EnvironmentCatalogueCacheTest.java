@@ -0,0 +1,54 @@
+package se.attini.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import se.attini.domain.Environment;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.EnvironmentType;
+
+class EnvironmentCatalogueCacheTest {
+
+    private static final List<Environment> ENVIRONMENTS =
+            List.of(Environment.create(EnvironmentName.create("dev"), EnvironmentType.TEST),
+                    Environment.create(EnvironmentName.create("prod"), EnvironmentType.PRODUCTION));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldKeepEnvironmentsPerScopeUntilExpired() {
+        AtomicLong clock = new AtomicLong(1000);
+        EnvironmentCatalogueCache cache = new EnvironmentCatalogueCache(directory.resolve("environments.properties"),
+                                                                        Duration.ofSeconds(30),
+                                                                        clock::get);
+
+        cache.put("123456789012.eu-west-1", ENVIRONMENTS);
+
+        assertEquals(Optional.of(ENVIRONMENTS), cache.get("123456789012.eu-west-1"));
+        assertTrue(cache.get("123456789012.eu-north-1").isEmpty());
+
+        clock.addAndGet(Duration.ofSeconds(30).toMillis());
+        assertTrue(cache.get("123456789012.eu-west-1").isEmpty());
+    }
+
+    @Test
+    void shouldForgetInvalidatedScope() {
+        EnvironmentCatalogueCache cache = new EnvironmentCatalogueCache(directory.resolve("environments.properties"),
+                                                                        Duration.ofSeconds(30));
+
+        cache.put("123456789012.eu-west-1", ENVIRONMENTS);
+        cache.invalidate("123456789012.eu-west-1");
+
+        assertTrue(cache.get("123456789012.eu-west-1").isEmpty());
+    }
+}
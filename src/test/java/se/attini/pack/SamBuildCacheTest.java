@@ -0,0 +1,107 @@
+package se.attini.pack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import se.attini.pack.Metadata.SamProject;
+
+class SamBuildCacheTest {
+
+    private static final SamProject SAM_PROJECT = new SamProject("app", null, null, "App");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keyShouldOnlyDependOnSourcesAndSamVersion() throws IOException {
+        Path project = createProject(directory.resolve("app"));
+        SamBuildCache cache = new SamBuildCache(directory.resolve("cache"), () -> "SAM CLI, version 1.90.0");
+
+        String key = cache.getKey(SAM_PROJECT, project);
+        Files.createDirectories(project.resolve(".aws-sam/build"));
+        Files.writeString(project.resolve(".aws-sam/build/output.txt"), "built");
+        Files.writeString(project.resolve(SamBuildCache.ZIP_FILE_NAME), "zip");
+        assertEquals(key, cache.getKey(SAM_PROJECT, project));
+
+        Files.writeString(project.resolve("src/app.py"), "print('changed')");
+        assertNotEquals(key, cache.getKey(SAM_PROJECT, project));
+
+        SamBuildCache otherVersion = new SamBuildCache(directory.resolve("cache"), () -> "SAM CLI, version 1.91.0");
+        assertNotEquals(cache.getKey(SAM_PROJECT, project), otherVersion.getKey(SAM_PROJECT, project));
+    }
+
+    @Test
+    void shouldRestoreStoredBuild() throws IOException {
+        Path project = createProject(directory.resolve("app"));
+        SamBuildCache cache = new SamBuildCache(directory.resolve("cache"), () -> "SAM CLI, version 1.90.0");
+        String key = cache.getKey(SAM_PROJECT, project);
+        assertFalse(cache.restore(key, SAM_PROJECT, project));
+
+        Files.createDirectories(project.resolve(".aws-sam/build"));
+        Files.writeString(project.resolve(".aws-sam/build/output.txt"), "built");
+        Files.writeString(project.resolve(SamBuildCache.ZIP_FILE_NAME), "zip");
+        cache.store(key, SAM_PROJECT, project);
+
+        Path clean = createProject(directory.resolve("clean"));
+        String cleanKey = cache.getKey(SAM_PROJECT, clean);
+        assertEquals(key, cleanKey);
+        assertTrue(cache.restore(cleanKey, SAM_PROJECT, clean));
+        assertEquals("built", Files.readString(clean.resolve(".aws-sam/build/output.txt")));
+        assertEquals("zip", Files.readString(clean.resolve(SamBuildCache.ZIP_FILE_NAME)));
+    }
+
+    @Test
+    void keyShouldDependOnCodeOutsideTheProject() throws IOException {
+        Path project = createProject(directory.resolve("app"));
+        Files.createDirectories(directory.resolve("shared"));
+        Files.writeString(directory.resolve("shared/lib.py"), "VALUE = 1");
+        Files.writeString(project.resolve("template.yaml"), """
+                Resources:
+                  Function:
+                    Type: AWS::Serverless::Function
+                    Properties:
+                      CodeUri: src
+                  Layer:
+                    Type: AWS::Serverless::LayerVersion
+                    Properties:
+                      ContentUri: ../shared
+                """);
+        SamBuildCache cache = new SamBuildCache(directory.resolve("cache"), () -> "SAM CLI, version 1.90.0");
+
+        String key = cache.getKey(SAM_PROJECT, project);
+        Files.writeString(directory.resolve("shared/lib.py"), "VALUE = 2");
+        assertNotEquals(key, cache.getKey(SAM_PROJECT, project));
+    }
+
+    @Test
+    void shouldNotCacheProjectWithUnresolvableLocations() throws IOException {
+        Path project = createProject(directory.resolve("app"));
+        Files.writeString(project.resolve("template.yaml"), """
+                Resources:
+                  Function:
+                    Type: AWS::Serverless::Function
+                    Properties:
+                      CodeUri: !Sub "../${Environment}"
+                """);
+        SamBuildCache cache = new SamBuildCache(directory.resolve("cache"), () -> "SAM CLI, version 1.90.0");
+
+        assertNull(cache.getKey(SAM_PROJECT, project));
+    }
+
+    private static Path createProject(Path project) throws IOException {
+        Files.createDirectories(project.resolve("src"));
+        Files.writeString(project.resolve("template.yaml"), "Resources: {}");
+        Files.writeString(project.resolve("src/app.py"), "print('hello')");
+        return project;
+    }
+}
@@ -0,0 +1,71 @@
+package se.attini.pack;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import se.attini.cli.deployment.DataEmitter;
+import se.attini.pack.Metadata.SamProject;
+
+@ExtendWith(MockitoExtension.class)
+class SamProjectBuilderTest {
+
+    @Mock
+    DataEmitter dataEmitter;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void shouldPrefixOutputAndZipProjects() throws IOException {
+        Path project = Files.createDirectories(root.resolve("first"));
+        SamProjectBuilder builder = new SamProjectBuilder(dataEmitter,
+                                                          2,
+                                                          (samProject, path) -> List.of("/bin/sh", "-c", "echo hello"),
+                                                          null);
+
+        builder.buildAll(Map.of(project, new SamProject("first", null, null, "First")));
+
+        verify(dataEmitter).emitString("[First] hello");
+        assertTrue(Files.exists(project.resolve("attiniSamProject.zip")));
+    }
+
+    @Test
+    void shouldCancelOtherBuildsOnFirstFailure() throws IOException {
+        Map<Path, SamProject> projects = new LinkedHashMap<>();
+        projects.put(Files.createDirectories(root.resolve("slow")), new SamProject("slow", null, null, "Slow"));
+        projects.put(Files.createDirectories(root.resolve("failing")), new SamProject("failing", null, null, "Failing"));
+        SamProjectBuilder builder = new SamProjectBuilder(dataEmitter,
+                                                          2,
+                                                          (samProject, path) -> List.of("/bin/sh",
+                                                                                        "-c",
+                                                                                        samProject.stepName()
+                                                                                                  .equals("Slow")
+                                                                                        ? "sleep 60"
+                                                                                        : "exit 3"),
+                                                          null);
+
+        ScriptExecutionException exception = assertTimeoutPreemptively(
+                Duration.ofSeconds(30),
+                () -> assertThrows(ScriptExecutionException.class, () -> builder.buildAll(projects)));
+
+        assertTrue(exception.getMessage().contains("step Failing"));
+        assertTrue(exception.getMessage().contains("exit code: 3"));
+        assertTrue(exception.getMessage().contains("Cancelled builds for steps: Slow"));
+    }
+}
@@ -0,0 +1,69 @@
+package se.attini.pack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import se.attini.deployment.file.ignore.IgnoreMatcher;
+
+class StagingAreaTest {
+
+    @TempDir
+    Path source;
+
+    @TempDir
+    Path target;
+
+    @Test
+    void shouldSkipIgnoredFilesUnlessRequired() throws IOException {
+        Files.createDirectories(source.resolve("src"));
+        Files.createDirectories(source.resolve(".git/objects"));
+        Files.writeString(source.resolve("src/template.yaml"), "template");
+        Files.writeString(source.resolve(".git/objects/object"), "object");
+        Files.writeString(source.resolve("README.md"), "readme");
+        Files.writeString(source.resolve("init.md"), "init");
+        IgnoreMatcher ignores = IgnoreMatcher.compile(List.of(source + "/.git/**", source + "/*.md"));
+
+        StagingArea.Result result = new StagingArea(ignores, Set.of(source.resolve("init.md")), false)
+                .stage(source, target);
+
+        assertTrue(Files.isRegularFile(target.resolve("src/template.yaml")));
+        assertTrue(Files.isRegularFile(target.resolve("init.md")));
+        assertFalse(Files.exists(target.resolve("README.md")));
+        assertFalse(Files.exists(target.resolve(".git")));
+        assertEquals(2, result.getCopied());
+        assertEquals(2, result.getIgnored());
+    }
+
+    @Test
+    void shouldNotStageItself() throws IOException {
+        Files.writeString(source.resolve("attini-config.yaml"), "config");
+        Path stagingDirectory = Files.createDirectories(source.resolve("attini_dist/attini-temp"));
+
+        new StagingArea(IgnoreMatcher.none(), Set.of(), true).stage(source, stagingDirectory);
+
+        assertTrue(Files.isRegularFile(stagingDirectory.resolve("attini-config.yaml")));
+        assertFalse(Files.exists(stagingDirectory.resolve("attini_dist")));
+    }
+
+    @Test
+    void detachedFileShouldNotChangeOriginal() throws IOException {
+        Files.writeString(source.resolve("attini-config.yaml"), "version: 1.0.0");
+
+        new StagingArea(IgnoreMatcher.none(), Set.of(), true).stage(source, target);
+        StagingArea.detach(target.resolve("attini-config.yaml"));
+        Files.writeString(target.resolve("attini-config.yaml"), "version: 2.0.0");
+
+        assertEquals("version: 1.0.0", Files.readString(source.resolve("attini-config.yaml")));
+        assertEquals("version: 2.0.0", Files.readString(target.resolve("attini-config.yaml")));
+    }
+}
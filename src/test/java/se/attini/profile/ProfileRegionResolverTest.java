@@ -0,0 +1,111 @@
+package se.attini.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import software.amazon.awssdk.profiles.ProfileFile;
+
+class ProfileRegionResolverTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldResolveRegionThroughSourceProfileAndSsoSession() throws IOException {
+        Path config = writeConfig("""
+                                  [default]
+                                  region = eu-west-1
+
+                                  [profile assumed]
+                                  role_arn = arn:aws:iam::123456789012:role/deploy
+                                  source_profile = base
+
+                                  [profile base]
+                                  region = eu-north-1
+
+                                  [profile sso]
+                                  sso_session = my-sso
+                                  sso_account_id = 123456789012
+
+                                  [profile sso-without-region]
+                                  sso_session = other-sso
+                                  sso_region = us-east-1
+                                  sso_account_id = 123456789012
+
+                                  [sso-session my-sso]
+                                  region = eu-west-2
+                                  sso_region = us-east-1
+                                  sso_start_url = https://example.awsapps.com/start
+
+                                  [sso-session other-sso]
+                                  sso_region = us-east-1
+                                  sso_start_url = https://example.awsapps.com/start
+
+                                  [profile none]
+                                  output = json
+                                  """);
+        ProfileRegionResolver resolver = resolver(config, () -> readConfig(config));
+
+        assertEquals(Optional.of("eu-west-1"), resolver.getRegion("default"));
+        assertEquals(Optional.of("eu-north-1"), resolver.getRegion("assumed"));
+        assertEquals(Optional.of("eu-west-2"), resolver.getRegion("sso"));
+        assertTrue(resolver.getRegion("sso-without-region").isEmpty());
+        assertTrue(resolver.getRegion("none").isEmpty());
+        assertTrue(resolver.getRegion("missing").isEmpty());
+    }
+
+    @Test
+    void shouldOnlyParseProfileFilesAgainWhenTheyChange() throws IOException {
+        Path config = writeConfig("""
+                                  [default]
+                                  region = eu-west-1
+                                  """);
+        AtomicInteger parsed = new AtomicInteger();
+        Supplier<ProfileFile> profileFile = () -> {
+            parsed.incrementAndGet();
+            return readConfig(config);
+        };
+
+        assertEquals(Optional.of("eu-west-1"), resolver(config, profileFile).getRegion("default"));
+        assertEquals(Optional.of("eu-west-1"), resolver(config, profileFile).getRegion("default"));
+        assertEquals(1, parsed.get());
+
+        Files.writeString(config, """
+                                  [default]
+                                  region = eu-central-1
+                                  """);
+        Files.setLastModifiedTime(config, FileTime.fromMillis(Files.getLastModifiedTime(config).toMillis() + 2000));
+
+        assertEquals(Optional.of("eu-central-1"), resolver(config, profileFile).getRegion("default"));
+        assertEquals(2, parsed.get());
+    }
+
+    private ProfileRegionResolver resolver(Path config, Supplier<ProfileFile> profileFile) {
+        return new ProfileRegionResolver(directory.resolve("cache").resolve("regions.properties"),
+                                         List.of(config),
+                                         profileFile);
+    }
+
+    private Path writeConfig(String content) throws IOException {
+        return Files.writeString(directory.resolve("config"), content);
+    }
+
+    private static ProfileFile readConfig(Path config) {
+        return ProfileFile.builder()
+                          .content(config)
+                          .type(ProfileFile.Type.CONFIGURATION)
+                          .build();
+    }
+}
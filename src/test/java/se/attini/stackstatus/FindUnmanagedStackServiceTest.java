@@ -0,0 +1,129 @@
+package se.attini.stackstatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import se.attini.cli.global.GlobalConfig;
+import se.attini.client.AwsClientFactory;
+import se.attini.domain.Environment;
+import se.attini.domain.EnvironmentName;
+import se.attini.domain.EnvironmentType;
+import se.attini.environment.EnvironmentUserInput;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.sfn.SfnClient;
+import software.amazon.awssdk.services.sfn.model.ExecutionListItem;
+import software.amazon.awssdk.services.sfn.model.ExecutionStatus;
+import software.amazon.awssdk.services.sfn.model.ListExecutionsRequest;
+import software.amazon.awssdk.services.sfn.model.ListExecutionsResponse;
+
+@ExtendWith(MockitoExtension.class)
+class FindUnmanagedStackServiceTest {
+
+    @Mock
+    EnvironmentUserInput environmentUserInput;
+
+    @Mock
+    AwsClientFactory awsClientFactory;
+
+    @Mock
+    GlobalConfig globalConfig;
+
+    @Mock
+    DynamoDbClient dynamoDbClient;
+
+    @Mock
+    SfnClient sfnClient;
+
+    FindUnmanagedStackService findUnmanagedStackService;
+
+    @BeforeEach
+    void setUp() {
+        when(awsClientFactory.dynamoClient()).thenReturn(dynamoDbClient);
+        when(awsClientFactory.sfnClient()).thenReturn(sfnClient);
+        findUnmanagedStackService = new FindUnmanagedStackService(environmentUserInput, awsClientFactory, globalConfig);
+    }
+
+    @Test
+    void shouldReadStacksOnceAndCheckLatestExecutions() {
+        FindUnmanagedStackRequest request = FindUnmanagedStackRequest.builder().build();
+        when(environmentUserInput.getEnvironment(request)).thenReturn(Environment.create(EnvironmentName.create("dev"),
+                                                                                         EnvironmentType.TEST));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest queryRequest = invocation.getArgument(0);
+            String resourceType = queryRequest.expressionAttributeValues().get(":v_resourceType").s();
+            if (resourceType.equals("InitDeployCloudformationStack")) {
+                return QueryResponse.builder()
+                                    .items(initStack("infra", "sfn-infra"), initStack("app", "sfn-app"))
+                                    .build();
+            }
+            if (queryRequest.exclusiveStartKey() == null || queryRequest.exclusiveStartKey().isEmpty()) {
+                return QueryResponse.builder()
+                                    .items(stack("old-stack-eu-west-1-123456789012", "infra", "old"))
+                                    .lastEvaluatedKey(Map.of("name", string("old-stack-eu-west-1-123456789012")))
+                                    .build();
+            }
+            return QueryResponse.builder()
+                                .items(stack("current-stack-eu-west-1-123456789012", "infra", "current"))
+                                .build();
+        });
+        when(sfnClient.listExecutions(argThat((ListExecutionsRequest listRequest) -> listRequest != null
+                                                                                    && listRequest.stateMachineArn()
+                                                                                                  .equals("sfn-infra"))))
+                .thenReturn(execution(ExecutionStatus.SUCCEEDED));
+        when(sfnClient.listExecutions(argThat((ListExecutionsRequest listRequest) -> listRequest != null
+                                                                                    && listRequest.stateMachineArn()
+                                                                                                  .equals("sfn-app"))))
+                .thenReturn(execution(ExecutionStatus.RUNNING));
+
+        List<UnmanagedDistributionStacks> result = findUnmanagedStackService.findUnmanagedStacks(request);
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).getUnmanagedStacks().size());
+        assertEquals("old-stack", result.get(0).getUnmanagedStacks().get(0).getStackName());
+        assertNotNull(result.get(1).getMessage());
+        verify(dynamoDbClient, times(3)).query(any(QueryRequest.class));
+        verify(sfnClient, times(2)).listExecutions(argThat((ListExecutionsRequest listRequest) -> listRequest != null
+                                                                                                 && listRequest.maxResults() == 1));
+    }
+
+    private static Map<String, AttributeValue> initStack(String distributionName, String sfnArn) {
+        return Map.of("distributionName", string(distributionName),
+                      "distributionId", string("current"),
+                      "environment", string("dev"),
+                      "sfnArns", AttributeValue.builder().ss(sfnArn).build());
+    }
+
+    private static Map<String, AttributeValue> stack(String name, String distributionName, String distributionId) {
+        return Map.of("name", string(name),
+                      "distributionName", string(distributionName),
+                      "distributionId", string(distributionId),
+                      "environment", string("dev"));
+    }
+
+    private static ListExecutionsResponse execution(ExecutionStatus status) {
+        return ListExecutionsResponse.builder()
+                                     .executions(ExecutionListItem.builder().status(status).build())
+                                     .build();
+    }
+
+    private static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
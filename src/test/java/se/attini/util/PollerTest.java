@@ -0,0 +1,79 @@
+package se.attini.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class PollerTest {
+
+    private final List<Long> sleeps = new ArrayList<>();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Poller poller = new Poller(Duration.ofMillis(1000),
+                                             Duration.ofMillis(5000),
+                                             null,
+                                             milliseconds -> {
+                                                 sleeps.add(milliseconds);
+                                                 nanos.addAndGet(milliseconds * 1_000_000);
+                                             },
+                                             nanos::get);
+
+    @Test
+    void shouldBackOffUpToMaxInterval() {
+        Poller.Session session = poller.start("testing");
+        for (int i = 0; i < 10; i++) {
+            session.sleep();
+        }
+
+        assertEquals(1000, sleeps.get(0));
+        assertTrue(sleeps.get(1) > 1000);
+        assertEquals(5000, session.getIntervalMillis());
+        sleeps.forEach(sleep -> assertTrue(sleep >= 1000 && sleep <= 5000));
+    }
+
+    @Test
+    void shouldSnapBackWhenStateChanges() {
+        Poller.Session session = poller.start("testing");
+        session.observe("RUNNING");
+        for (int i = 0; i < 5; i++) {
+            session.sleep();
+            session.observe("RUNNING");
+        }
+        assertTrue(session.getIntervalMillis() > 1000);
+
+        session.observe("SUCCEEDED");
+
+        assertEquals(1000, session.getIntervalMillis());
+    }
+
+    @Test
+    void shouldPollUntilConditionIsMet() {
+        AtomicInteger calls = new AtomicInteger();
+
+        int result = poller.pollUntil("testing", calls::incrementAndGet, value -> value == 3);
+
+        assertEquals(3, result);
+        assertEquals(2, sleeps.size());
+    }
+
+    @Test
+    void shouldTimeOut() {
+        Poller withTimeout = poller.withTimeout(Duration.ofSeconds(10));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                                                       () -> withTimeout.pollUntil("waiting for nothing",
+                                                                                   () -> false,
+                                                                                   value -> value));
+
+        assertEquals("Timed out after 10 seconds while waiting for nothing", exception.getMessage());
+        assertEquals(10_000, sleeps.stream().mapToLong(Long::longValue).sum());
+    }
+}